@@ -2,18 +2,30 @@ import repositories.OpportunityRepository;
 import repositories.RequestRepository;
 import repositories.UserRepository;
 import util.AppContext;
+import util.Compactor;
+import util.ConsoleColors;
+import util.Journal;
 import util.LoadFiles;
+import util.PersistenceService;
+import util.Projection;
+import util.StorageBackend;
+import util.StorageBackend.Table;
 import boundaries.*;
 import controllers.*;
 
+import java.io.IOException;
 import java.util.Scanner;
 /**
  * Entry point of the NTU Internship Management System.
  *
  * <p>This class is responsible for bootstrapping the entire application by:</p>
  * <ul>
- *     <li>Initializing all repositories used to store system data</li>
- *     <li>Loading persisted data from CSV files through {@link LoadFiles}</li>
+ *     <li>Initializing all repositories used to store system data, with users held in
+ *     memory or on disk as chosen by the {@code users} system property</li>
+ *     <li>Loading persisted data through {@link LoadFiles}, from the {@link StorageBackend}
+ *     chosen by the {@code storage} system property</li>
+ *     <li>Starting the {@link PersistenceService} that writes changes in the background</li>
+ *     <li>Starting the {@link Compactor} that folds the journal into the stored data in the background</li>
  *     <li>Constructing all controllers that contain business logic</li>
  *     <li>Constructing boundary (view) components for user interaction</li>
  *     <li>Creating the application context and authentication controller</li>
@@ -32,32 +44,98 @@ import java.util.Scanner;
  * any business logic.</p>
  */
 public class App{
+    /**
+     * System property that, set to {@code true}, prints how long startup took and,
+     * on exit, how the background writer, compactor and user cache performed.
+     */
+    public static final String STATISTICS_PROPERTY = "stats";
+    /**
+     * Command-line argument that prints a summary of the data, through a
+     * {@link SummaryView}, instead of starting the system.
+     */
+    public static final String SUMMARY_ARGUMENT = "summary";
+
     /**
      * Launches the Internship Management System.
      *
      * <p>The startup sequence includes:</p>
      * <ol>
      *     <li>Initializing repositories</li>
-     *     <li>Loading CSV data for users, opportunities, and requests</li>
+     *     <li>Loading CSV data for users, opportunities, and requests, and replaying the journal,
+     *     then reporting how long each phase took if the {@code stats} system property is set;
+     *     if the data files cannot be trusted, the system stops instead</li>
+     *     <li>Starting background persistence and compaction, with a shutdown hook that writes any outstanding changes and folds them into a last checkpoint</li>
      *     <li>Setting up controllers for each system role</li>
      *     <li>Creating view classes for user-facing interaction</li>
      *     <li>Initializing the application context</li>
      *     <li>Handing control over to {@link LoginView}</li>
      * </ol>
      *
-     * @param args console arguments (not used)
+     * <p>Given the {@code summary} argument, it instead loads only the columns a
+     * {@link SummaryView} reads, prints the summary and exits. The repositories are
+     * then read-only, and nothing is started that could write to the data.</p>
+     *
+     * @param args console arguments: {@code summary}, or none
      */
     public static void main(String[] args) {
-        UserRepository userRepository = new UserRepository();
+        UserRepository userRepository = UserRepository.configured();
         RequestRepository requestRepository = new RequestRepository();
         OpportunityRepository opportunityRepository = new OpportunityRepository();
 
-        LoadFiles ld = new LoadFiles();
-        ld.loadCSVs(userRepository, requestRepository, opportunityRepository);
+        StorageBackend storage = StorageBackend.configured();
+        if (args.length > 0 && args[0].equals(SUMMARY_ARGUMENT)) {
+            Projection projection = Projection.ALL
+                .select(Table.STUDENTS, "StudentID")
+                .select(Table.OPPORTUNITIES, "OpportunityID", "Status");
+            try {
+                new LoadFiles(storage, projection).loadCSVs(userRepository, requestRepository, opportunityRepository);
+                new SummaryView(userRepository, opportunityRepository).display();
+            } catch (IOException e) {
+                System.out.println(ConsoleColors.RED+"The data could not be loaded: " + e.getMessage()+ConsoleColors.RESET);
+            } finally {
+                if (userRepository.isDiskBacked()) {
+                    userRepository.close();
+                }
+            }
+            return;
+        }
+        LoadFiles ld = new LoadFiles(storage);
+        int journalEntries;
+        try {
+            journalEntries = ld.loadCSVs(userRepository, requestRepository, opportunityRepository);
+        } catch (IOException e) {
+            System.out.println(ConsoleColors.RED+"The data could not be loaded: " + e.getMessage()+ConsoleColors.RESET);
+            return;
+        }
+        boolean showStatistics = Boolean.getBoolean(STATISTICS_PROPERTY);
+        if (showStatistics) {
+            System.out.println(ld.getStartupTimings());
+        }
+        PersistenceService persistence = new PersistenceService(journalEntries);
+        Compactor compactor = new Compactor(persistence, storage);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            compactor.shutdown();
+            persistence.shutdown();
+            if (showStatistics) {
+                if (persistence.getBatchesWritten() > 0) {
+                    System.out.println(persistence.getStatistics());
+                }
+                if (compactor.getCompactions() > 0) {
+                    System.out.println(compactor.getStatistics());
+                }
+                if (userRepository.isDiskBacked()) {
+                    System.out.println(userRepository.getCacheStatistics());
+                }
+            }
+            if (userRepository.isDiskBacked()) {
+                userRepository.close();
+            }
+        }));
+        Journal journal = new Journal(persistence, compactor);
 
-        CompanyRepController companyRepController = new CompanyRepController(userRepository, opportunityRepository);
-        StudentController studentController = new StudentController(requestRepository, userRepository, opportunityRepository);
-        CareerStaffController careerStaffController = new CareerStaffController(requestRepository, userRepository, opportunityRepository);
+        CompanyRepController companyRepController = new CompanyRepController(userRepository, opportunityRepository, journal);
+        StudentController studentController = new StudentController(requestRepository, userRepository, opportunityRepository, journal);
+        CareerStaffController careerStaffController = new CareerStaffController(requestRepository, userRepository, opportunityRepository, journal);
         AuthController authController = new AuthController(userRepository);
         Scanner sc = new Scanner(System.in);
 
@@ -66,7 +144,7 @@ public class App{
         StudentView studentView = new StudentView(studentController);
         CompanyRepView companyRepView = new CompanyRepView(companyRepController);
         CareerStaffView careerStaffView = new CareerStaffView(careerStaffController);
-        LoginView loginView = new LoginView(careerStaffView, companyRepView, studentView,requestRepository);
+        LoginView loginView = new LoginView(careerStaffView, companyRepView, studentView,requestRepository, journal);
         loginView.run(Context, sc);
     }
 }
\ No newline at end of file
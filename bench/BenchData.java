@@ -0,0 +1,180 @@
+package bench;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Random;
+
+import entities.Application;
+import entities.Application.ApplicationStatus;
+import entities.InternshipOpportunity;
+import entities.InternshipOpportunity.InternshipLevel;
+import entities.InternshipOpportunity.Major;
+import entities.InternshipOpportunity.Status;
+import entities.Student;
+import repositories.OpportunityRepository;
+import repositories.RequestRepository;
+import repositories.UserRepository;
+import util.DateConverter;
+import util.SaveFiles;
+
+/**
+ * Generates the data the benchmarks run on.
+ *
+ * <p>Every generator is seeded, so each run of a benchmark sees the same data.
+ * Student IDs follow the format of the real ones, {@code U} followed by seven
+ * digits and a letter, and every user has the password {@link #PASSWORD}.</p>
+ *
+ * <p>Benchmarks that load data files have them written to {@code data/} in the
+ * working directory by {@link #writeDataFiles}, so they must be run from an
+ * empty directory rather than the project folder.</p>
+ */
+final class BenchData {
+    /** Password given to every generated user. */
+    static final String PASSWORD = "password";
+
+    private static final String[] MAJORS = {"CCDS", "IEEE", "DSAI"};
+    /** The first day a generated opportunity may open on. */
+    private static final long FIRST_OPENING_DAY = DateConverter.parseDate("2025-01-01");
+    /** File in {@code data/} describing the data written there by {@link #writeDataFiles}. */
+    private static final Path DESCRIPTION_PATH = Paths.get("data", "bench-data.txt");
+
+    private BenchData(){}
+
+    /**
+     * Returns the ID of the student at a position among those generated.
+     *
+     * @param index the student's position, from {@code 0}
+     * @return the student's ID
+     */
+    static String studentID(int index){
+        return String.format("U%07d%c", index, (char) ('A' + index % 26));
+    }
+
+    /**
+     * Generates students, with IDs in order of {@link #studentID(int)}.
+     *
+     * @param count number of students
+     * @return the students
+     */
+    static ArrayList<Student> students(int count){
+        Random random = new Random(count);
+        ArrayList<Student> students = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String id = studentID(i);
+            students.add(new Student(id, "Student " + i, MAJORS[random.nextInt(MAJORS.length)],
+                1 + random.nextInt(4), id.toLowerCase() + "@e.ntu.edu.sg", PASSWORD));
+        }
+        return students;
+    }
+
+    /**
+     * Generates internship opportunities without applications. Their status,
+     * level and preferred major are spread evenly; they open on a day in 2025,
+     * and close 30 to 120 days later.
+     *
+     * @param count number of opportunities
+     * @return the opportunities, without IDs, to be given them by a repository
+     */
+    static ArrayList<InternshipOpportunity> opportunities(int count){
+        Random random = new Random(count);
+        Status[] statuses = Status.values();
+        Major[] majors = Major.values();
+        InternshipLevel[] levels = InternshipLevel.values();
+        ArrayList<InternshipOpportunity> opportunities = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long opening = FIRST_OPENING_DAY + random.nextInt(365);
+            opportunities.add(new InternshipOpportunity("Internship " + i, "Description of internship " + i,
+                levels[random.nextInt(levels.length)], majors[random.nextInt(majors.length)],
+                opening, opening + 30 + random.nextInt(91), "Company " + i % 100, "Department " + i % 7,
+                "rep" + i % 1000, 1 + random.nextInt(10), statuses[random.nextInt(statuses.length)], true, new ArrayList<>()));
+        }
+        return opportunities;
+    }
+
+    /**
+     * Adds applications from random generated students to every opportunity in
+     * a repository. They were submitted at a random time in 2025, and their
+     * statuses are spread evenly.
+     *
+     * @param opportunities the repository
+     * @param perOpportunity number of applications added to each opportunity
+     * @param students number of generated students the applicants are drawn from
+     */
+    static void addApplications(OpportunityRepository opportunities, int perOpportunity, int students){
+        Random random = new Random(perOpportunity);
+        ApplicationStatus[] statuses = ApplicationStatus.values();
+        long firstMillis = DateConverter.startOfDay(FIRST_OPENING_DAY);
+        for (InternshipOpportunity opportunity : opportunities.getInternshipOpportunityList()) {
+            for (int i = 0; i < perOpportunity; i++) {
+                opportunity.addApplication(new Application(studentID(random.nextInt(students)),
+                    firstMillis + (long) random.nextInt(365 * 24 * 60) * 60_000, statuses[random.nextInt(statuses.length)]));
+            }
+        }
+    }
+
+    /**
+     * Writes the data in repositories to the data files in {@code data/}, and its
+     * binary snapshot, unless they were already written there for the same
+     * description.
+     *
+     * @param description describes the data, such as the parameters it was
+     *        generated from; data written for another description is replaced
+     * @param generator fills the repositories it is given
+     * @throws IOException if the files cannot be written
+     * @throws IllegalStateException if the working directory is the project folder
+     */
+    static void writeDataFiles(String description, DataGenerator generator) throws IOException {
+        if (Files.exists(Paths.get("App.java"))) {
+            throw new IllegalStateException("Run the benchmarks from an empty directory, not the project folder");
+        }
+        if (Files.exists(DESCRIPTION_PATH) && Files.readString(DESCRIPTION_PATH).equals(description)) {
+            return;
+        }
+        Map<String, byte[]> files = render(generator);
+        Files.createDirectories(DESCRIPTION_PATH.getParent());
+        Files.deleteIfExists(DESCRIPTION_PATH);
+        for (Map.Entry<String, byte[]> file : files.entrySet()) {
+            Files.write(Paths.get(file.getKey()), file.getValue());
+        }
+        Files.write(DESCRIPTION_PATH, description.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Renders generated data as the contents of the data files, and its binary
+     * snapshot, through {@link SaveFiles}.
+     *
+     * @param generator fills the repositories it is given
+     * @return the contents of each non-empty file, keyed by its path
+     */
+    static Map<String, byte[]> render(DataGenerator generator){
+        UserRepository users = new UserRepository();
+        RequestRepository requests = new RequestRepository();
+        OpportunityRepository opportunities = new OpportunityRepository();
+        generator.generate(users, requests, opportunities);
+        opportunities.markApplicationFileOutdated();
+        SaveFiles saveFiles = new SaveFiles();
+        saveFiles.saveStudentCSV(users);
+        saveFiles.saveStaffCSV(users);
+        saveFiles.saveCompanyRepCSV(users);
+        saveFiles.saveCompanyRepReqCSV(requests);
+        saveFiles.saveInternshipOpportunityCSV(opportunities);
+        saveFiles.saveApplicationCSV(opportunities);
+        saveFiles.saveInternshipWithdrawalRequests(requests);
+        saveFiles.saveSnapshot(users, requests, opportunities);
+        return saveFiles.takeRenderedFiles();
+    }
+
+    /** Fills empty repositories with generated data. */
+    interface DataGenerator {
+        /**
+         * @param users the repository storing user accounts
+         * @param requests the repository storing account creation and withdrawal requests
+         * @param opportunities the repository storing internship opportunities
+         */
+        void generate(UserRepository users, RequestRepository requests, OpportunityRepository opportunities);
+    }
+}
@@ -0,0 +1,99 @@
+package bench;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import entities.Student;
+import util.DataCodec;
+import util.StorageBackend.Table;
+
+/**
+ * Measures writing a table's file with each {@link DataCodec}, and reading it
+ * back as a loader does.
+ *
+ * <p>The {@code table} parameter picks the generated table: {@code students},
+ * a million students, or {@code opportunities}, 400,000 opportunities. The
+ * compressed size and ratio are printed before measuring.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class CodecBenchmark {
+    /** The codec the file is written with. */
+    @Param({"NONE", "GZIP", "BLOCK"})
+    public DataCodec codec;
+
+    /** The table written: {@code students} or {@code opportunities}. */
+    @Param({"students", "opportunities"})
+    public String table;
+
+    private byte[] content;
+    private Path file;
+
+    @Setup
+    public void setUp() throws IOException {
+        Map<String, byte[]> files;
+        switch (table) {
+            case "students":
+                files = BenchData.render((users, requests, opportunities) -> {
+                    for (Student student : BenchData.students(1_000_000)) {
+                        users.addStudent(student);
+                    }
+                });
+                content = files.get(Table.STUDENTS.getPath());
+                break;
+            case "opportunities":
+                files = BenchData.render((users, requests, opportunities) ->
+                    BenchData.opportunities(400_000).forEach(opportunities::addInternshipOpportunity));
+                content = files.get(Table.OPPORTUNITIES.getPath());
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown table: " + table);
+        }
+        byte[] encoded = codec.encode(content);
+        file = Files.createTempFile("bench", ".csv" + codec.getExtension());
+        Files.write(file, encoded);
+        System.out.printf("%s: %.1f MB, %s %.1f MB (%.2fx)%n", table, content.length / 1e6,
+            codec, encoded.length / 1e6, (double) content.length / encoded.length);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    /** Encodes the table's contents, as a compaction does before committing them. */
+    @Benchmark
+    public byte[] encode(){
+        return codec.encode(content);
+    }
+
+    /**
+     * Reads and decodes the table's file, as a loader does. A plain file is
+     * memory-mapped rather than read, so its pages are only read from disk as
+     * the loader parses them, outside this measurement.
+     */
+    @Benchmark
+    public ByteBuffer read() throws IOException {
+        return codec.read(file);
+    }
+}
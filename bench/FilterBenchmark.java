@@ -0,0 +1,101 @@
+package bench;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import entities.Filter;
+import entities.InternshipOpportunity;
+import entities.InternshipOpportunity.InternshipLevel;
+import entities.InternshipOpportunity.Major;
+import entities.InternshipOpportunity.Status;
+import repositories.OpportunityRepository;
+import util.DateConverter;
+
+/**
+ * Compares answering a {@link Filter} through the {@link OpportunityRepository}'s
+ * bitmaps with testing every opportunity in a stream, as filters were answered
+ * before the repository indexed opportunities.
+ *
+ * <p>The {@code filter} parameter picks the criteria: a status alone, a status
+ * and major, a status, major and level, or a major, level and earliest opening
+ * date. Both ways must find the same opportunities, which is checked once
+ * before measuring.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class FilterBenchmark {
+    /** Number of opportunities in the repository. */
+    @Param("1000000")
+    public int opportunities;
+
+    /** The criteria to filter by. */
+    @Param({"status", "status+major", "status+major+level", "major+level+opening"})
+    public String filter;
+
+    private OpportunityRepository repository;
+    private ArrayList<InternshipOpportunity> list;
+    private Filter criteria;
+
+    @Setup
+    public void setUp(){
+        repository = new OpportunityRepository();
+        for (InternshipOpportunity opportunity : BenchData.opportunities(opportunities)) {
+            repository.addInternshipOpportunity(opportunity);
+        }
+        list = repository.getInternshipOpportunityList();
+        switch (filter) {
+            case "status":
+                criteria = new Filter(Status.APPROVED, null, null, Filter.NO_EARLIEST_OPENING_DATE, Filter.NO_LATEST_CLOSING_DATE);
+                break;
+            case "status+major":
+                criteria = new Filter(Status.APPROVED, Major.CCDS, null, Filter.NO_EARLIEST_OPENING_DATE, Filter.NO_LATEST_CLOSING_DATE);
+                break;
+            case "status+major+level":
+                criteria = new Filter(Status.APPROVED, Major.CCDS, InternshipLevel.BASIC, Filter.NO_EARLIEST_OPENING_DATE, Filter.NO_LATEST_CLOSING_DATE);
+                break;
+            case "major+level+opening":
+                criteria = new Filter(null, Major.IEEE, InternshipLevel.INTERMEDIATE, DateConverter.parseDate("2025-06-01"), Filter.NO_LATEST_CLOSING_DATE);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown filter: " + filter);
+        }
+        if (!stream().equals(bitmaps())) {
+            throw new IllegalStateException("The bitmaps and the stream found different opportunities");
+        }
+    }
+
+    /** Tests every opportunity against each criterion in turn. */
+    @Benchmark
+    public ArrayList<InternshipOpportunity> stream(){
+        Filter f = criteria;
+        return list.stream()
+            .filter(o -> f.getStatus() == null || o.getStatus() == f.getStatus())
+            .filter(o -> f.getMajor() == null || o.getPreferredMajor() == f.getMajor())
+            .filter(o -> f.getLevel() == null || o.getInternshipLevel() == f.getLevel())
+            .filter(o -> f.getEarliestOpeningDate() == Filter.NO_EARLIEST_OPENING_DATE || o.getApplicationOpeningDate() >= f.getEarliestOpeningDate())
+            .filter(o -> f.getLatestClosingDate() == Filter.NO_LATEST_CLOSING_DATE || o.getApplicationClosingDate() <= f.getLatestClosingDate())
+            .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    /** Answers the filter through the repository. */
+    @Benchmark
+    public ArrayList<InternshipOpportunity> bitmaps(){
+        return repository.filterOpportunities(criteria);
+    }
+}
@@ -0,0 +1,116 @@
+package bench;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import entities.InternshipOpportunity;
+import repositories.OpportunityRepository;
+import util.CSVTokenizer;
+import util.DateConverter;
+import util.SaveFiles;
+import util.StorageBackend.Table;
+
+/**
+ * Compares rendering the opportunity and applications files with every row
+ * changed through {@link SaveFiles}, which builds rows field by field in one
+ * buffer, with formatting each row through {@link String#format} and joining an
+ * opportunity's applications with {@code Stream.reduce}, as rows were rendered
+ * before.
+ *
+ * <p>The {@code layout} parameter gives the number of opportunities and of
+ * applications to each, such as {@code 20x10000}. Both ways must render the
+ * same bytes, which is checked once before measuring.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class RenderBenchmark {
+    private static final String OPPORTUNITY_HEADER = "OpportunityID,Title,Description,Level,PreferredMajor,OpeningDate,ClosingDate,CompanyName,Department,CompanyRepInCharge,Slots,Status,Visible";
+    /** Number of students the applicants are drawn from. */
+    private static final int STUDENTS = 20000;
+
+    /** Opportunities, and applications to each, as {@code <opportunities>x<applications>}. */
+    @Param({"20x10000", "5x40000"})
+    public String layout;
+
+    private OpportunityRepository repository;
+    private ArrayList<InternshipOpportunity> list;
+
+    @Setup
+    public void setUp(){
+        String[] counts = layout.split("x");
+        repository = new OpportunityRepository();
+        BenchData.opportunities(Integer.parseInt(counts[0])).forEach(repository::addInternshipOpportunity);
+        BenchData.addApplications(repository, Integer.parseInt(counts[1]), STUDENTS);
+        list = repository.getInternshipOpportunityList();
+        Map<String, byte[]> rendered = saveFiles();
+        byte[][] formatted = formatAndReduce();
+        if (!Arrays.equals(rendered.get(Table.OPPORTUNITIES.getPath()), formatted[0])
+            || !Arrays.equals(rendered.get(SaveFiles.APPLICATIONS_PATH), formatted[1])) {
+            throw new IllegalStateException("SaveFiles and String.format rendered different files");
+        }
+    }
+
+    /** Renders both files through a new {@link SaveFiles}, which has no rows cached. */
+    @Benchmark
+    public Map<String, byte[]> saveFiles(){
+        for (InternshipOpportunity opportunity : list) {
+            repository.detailsChanged(opportunity);
+        }
+        repository.markApplicationFileOutdated();
+        SaveFiles saveFiles = new SaveFiles();
+        saveFiles.saveInternshipOpportunityCSV(repository);
+        saveFiles.saveApplicationCSV(repository);
+        return saveFiles.takeRenderedFiles();
+    }
+
+    /** Renders both files a row at a time with {@link String#format}. */
+    @Benchmark
+    public byte[][] formatAndReduce(){
+        StringBuilder opportunities = new StringBuilder(OPPORTUNITY_HEADER).append('\n');
+        StringBuilder applications = new StringBuilder(SaveFiles.APPLICATIONS_HEADER).append('\n');
+        for (InternshipOpportunity o : list) {
+            opportunities.append(String.format("%d,%s,%s,%s,%s,%s,%s,%s,%s,%s,%d,%s,%b",
+                o.getOpportunityID(),
+                CSVTokenizer.quote(o.getInternshipTitle()),
+                CSVTokenizer.quote(o.getDescription()),
+                o.getInternshipLevel().name(),
+                o.getPreferredMajor().name(),
+                DateConverter.formatDate(o.getApplicationOpeningDate()),
+                DateConverter.formatDate(o.getApplicationClosingDate()),
+                CSVTokenizer.quote(o.getCompanyName()),
+                CSVTokenizer.quote(o.getDepartment()),
+                CSVTokenizer.quote(o.getCompanyRepInCharge()),
+                o.getNoOfSlots(),
+                o.getStatus().name(),
+                o.getVisible())).append('\n');
+            o.getApplicationList().stream()
+                .map(a -> String.format("%d,%d,%s,%s,%s", o.getOpportunityID(), a.getApplicationIndex(),
+                    CSVTokenizer.quote(a.getStudentID()), DateConverter.formatDateTime(a.getAppliedDateTime()),
+                    a.getApplicationStatus().name()))
+                .reduce((a, b) -> a + "\n" + b)
+                .ifPresent(rows -> applications.append(rows).append('\n'));
+        }
+        return new byte[][] {
+            opportunities.toString().getBytes(StandardCharsets.UTF_8),
+            applications.toString().getBytes(StandardCharsets.UTF_8)
+        };
+    }
+}
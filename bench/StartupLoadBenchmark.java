@@ -0,0 +1,107 @@
+package bench;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import entities.Student;
+import repositories.OpportunityRepository;
+import repositories.RequestRepository;
+import repositories.UserRepository;
+import util.BinarySnapshot;
+import util.CSVStorage;
+import util.LoadFiles;
+import util.StorageBackend.Table;
+
+/**
+ * Measures a cold start, loading the data files the way the application does
+ * at startup, either from the CSV files or from the {@link BinarySnapshot}.
+ *
+ * <p>Each fork is a fresh JVM that loads the data once, so the time includes
+ * class loading and an unwarmed JIT, as a real startup does. The data files
+ * are generated in {@code data/} in the working directory, so this must be run
+ * from an empty directory. The {@code source} parameter picks which copy is
+ * read, by making it the most recently written.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(value = 5, jvmArgs = "-Xmx4g")
+public class StartupLoadBenchmark {
+    /** Number of opportunities. */
+    @Param("20000")
+    public int opportunities;
+
+    /** Number of applications to each opportunity. */
+    @Param("50")
+    public int applicationsPerOpportunity;
+
+    /** Number of students. */
+    @Param("20000")
+    public int students;
+
+    /** The copy of the data loaded: {@code csv} or {@code snapshot}. */
+    @Param({"csv", "snapshot"})
+    public String source;
+
+    private LoadFiles loader;
+
+    @Setup
+    public void setUp() throws IOException {
+        String description = String.format("startup: %d opportunities, %d applications each, %d students",
+            opportunities, applicationsPerOpportunity, students);
+        BenchData.writeDataFiles(description, (users, requests, opps) -> {
+            for (Student student : BenchData.students(students)) {
+                users.addStudent(student);
+            }
+            BenchData.opportunities(opportunities).forEach(opps::addInternshipOpportunity);
+            BenchData.addApplications(opps, applicationsPerOpportunity, students);
+        });
+        // The snapshot is read only if it is at least as new as every CSV file.
+        FileTime newer = FileTime.fromMillis(System.currentTimeMillis() + 60_000);
+        if (source.equals("snapshot")) {
+            Files.setLastModifiedTime(Paths.get(BinarySnapshot.SNAPSHOT_PATH), newer);
+        } else {
+            for (Table table : Table.values()) {
+                Path path = Paths.get(table.getPath());
+                if (Files.exists(path)) {
+                    Files.setLastModifiedTime(path, newer);
+                }
+            }
+        }
+        loader = new LoadFiles(new CSVStorage());
+    }
+
+    @TearDown
+    public void checkSource(){
+        boolean csvRead = loader.getStartupTimings().contains("CSV files");
+        if (csvRead != source.equals("csv")) {
+            throw new IllegalStateException("Expected to load from " + source + ": " + loader.getStartupTimings());
+        }
+    }
+
+    /** Loads every repository and replays the (empty) journal. */
+    @Benchmark
+    public OpportunityRepository load() throws IOException {
+        OpportunityRepository opps = new OpportunityRepository();
+        loader.loadCSVs(new UserRepository(), new RequestRepository(), opps);
+        return opps;
+    }
+}
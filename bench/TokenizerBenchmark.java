@@ -0,0 +1,154 @@
+package bench;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import entities.Application;
+import entities.Application.ApplicationStatus;
+import entities.InternshipOpportunity;
+import entities.InternshipOpportunity.InternshipLevel;
+import entities.InternshipOpportunity.Major;
+import entities.InternshipOpportunity.Status;
+import entities.Student;
+import util.CSVTokenizer;
+import util.DateConverter;
+import util.SaveFiles;
+import util.StorageBackend.Table;
+
+/**
+ * Compares reading the rows of the data files with a {@link CSVTokenizer}
+ * with splitting them at every comma and parsing the parts, as the loaders did
+ * before the tokenizer.
+ *
+ * <p>Each call turns every row of one generated table into its entity: the
+ * student file, the opportunity file or the applications file. The rows hold
+ * no quoted fields, so both ways read the same values. Run with
+ * {@code -prof gc} to compare how much each allocates.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class TokenizerBenchmark {
+    private static final InternshipLevel[] LEVELS = InternshipLevel.values();
+    private static final Major[] MAJORS = Major.values();
+    private static final Status[] STATUSES = Status.values();
+    private static final ApplicationStatus[] APPLICATION_STATUSES = ApplicationStatus.values();
+
+    /** Number of students. */
+    @Param("20000")
+    public int students;
+
+    /** Number of opportunities. */
+    @Param("20000")
+    public int opportunities;
+
+    /** Number of applications to each opportunity. */
+    @Param("50")
+    public int applicationsPerOpportunity;
+
+    private String[] studentRows;
+    private String[] opportunityRows;
+    private String[] applicationRows;
+    private final CSVTokenizer tokenizer = new CSVTokenizer();
+
+    @Setup
+    public void setUp(){
+        Map<String, byte[]> files = BenchData.render((users, requests, opps) -> {
+            for (Student student : BenchData.students(students)) {
+                users.addStudent(student);
+            }
+            BenchData.opportunities(opportunities).forEach(opps::addInternshipOpportunity);
+            BenchData.addApplications(opps, applicationsPerOpportunity, students);
+        });
+        studentRows = rows(files.get(Table.STUDENTS.getPath()));
+        opportunityRows = rows(files.get(Table.OPPORTUNITIES.getPath()));
+        applicationRows = rows(files.get(SaveFiles.APPLICATIONS_PATH));
+    }
+
+    /** Splits a file into its rows, leaving out the header line. */
+    private static String[] rows(byte[] content){
+        String[] lines = new String(content, StandardCharsets.UTF_8).split("\n");
+        return Arrays.copyOfRange(lines, 1, lines.length);
+    }
+
+    @Benchmark
+    public void splitStudents(Blackhole blackhole){
+        for (String row : studentRows) {
+            String[] data = row.split(",");
+            blackhole.consume(new Student(data[0], data[1], data[2], Integer.parseInt(data[3]), data[4], data[5]));
+        }
+    }
+
+    @Benchmark
+    public void tokenizeStudents(Blackhole blackhole){
+        for (String row : studentRows) {
+            CSVTokenizer t = tokenizer.reset(row);
+            blackhole.consume(new Student(t.next(), t.next(), t.next(), t.nextInt(), t.next(), t.next()));
+        }
+    }
+
+    @Benchmark
+    public void splitOpportunities(Blackhole blackhole){
+        for (String row : opportunityRows) {
+            String[] data = row.split(",");
+            blackhole.consume(new InternshipOpportunity(Integer.parseInt(data[0]), data[1], data[2],
+                InternshipLevel.valueOf(data[3]), Major.valueOf(data[4]),
+                DateConverter.parseStoredDate(data[5]), DateConverter.parseStoredDate(data[6]),
+                data[7], data[8], data[9], Integer.parseInt(data[10]), Status.valueOf(data[11]),
+                Boolean.parseBoolean(data[12]), new ArrayList<>()));
+        }
+    }
+
+    @Benchmark
+    public void tokenizeOpportunities(Blackhole blackhole){
+        for (String row : opportunityRows) {
+            CSVTokenizer t = tokenizer.reset(row);
+            blackhole.consume(new InternshipOpportunity(t.nextInt(), t.next(), t.next(),
+                t.nextEnum(LEVELS), t.nextEnum(MAJORS),
+                DateConverter.parseStoredDate(t.next()), DateConverter.parseStoredDate(t.next()),
+                t.next(), t.next(), t.next(), t.nextInt(), t.nextEnum(STATUSES),
+                t.nextBoolean(), new ArrayList<>()));
+        }
+    }
+
+    @Benchmark
+    public void splitApplications(Blackhole blackhole){
+        for (String row : applicationRows) {
+            String[] data = row.split(",");
+            int opportunityID = Integer.parseInt(data[0]);
+            blackhole.consume(opportunityID);
+            blackhole.consume(new Application(data[2], DateConverter.parseDateTime(data[3]),
+                ApplicationStatus.valueOf(data[4]), Integer.parseInt(data[1])));
+        }
+    }
+
+    @Benchmark
+    public void tokenizeApplications(Blackhole blackhole){
+        for (String row : applicationRows) {
+            CSVTokenizer t = tokenizer.reset(row);
+            int opportunityID = t.nextInt();
+            int index = t.nextInt();
+            blackhole.consume(opportunityID);
+            blackhole.consume(new Application(t.next(), DateConverter.parseDateTime(t.next()),
+                t.nextEnum(APPLICATION_STATUSES), index));
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package bench;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import controllers.AuthController;
+import entities.Session;
+import entities.Student;
+import repositories.UserRepository;
+
+/**
+ * Compares looking a student up by ID through the {@link UserRepository}'s
+ * index with walking the student list, as lookups did before the repository
+ * indexed users, and measures a whole {@link AuthController#login}.
+ *
+ * <p>Each call looks up the next of a fixed, random sequence of existing IDs.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserLookupBenchmark {
+    /** Number of IDs looked up in turn. */
+    private static final int LOOKUPS = 2000;
+
+    /** Number of students in the repository. */
+    @Param("200000")
+    public int students;
+
+    private UserRepository users;
+    private ArrayList<Student> studentList;
+    private AuthController auth;
+    private String[] ids;
+    private int next;
+    private PrintStream out;
+
+    @Setup
+    public void setUp(){
+        users = new UserRepository();
+        for (Student student : BenchData.students(students)) {
+            users.addStudent(student);
+        }
+        studentList = users.getStudentList();
+        auth = new AuthController(users);
+        Random random = new Random(1);
+        ids = new String[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            ids[i] = BenchData.studentID(random.nextInt(students));
+        }
+        // A login prints a greeting, which would otherwise be timed and flood the output.
+        out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown
+    public void tearDown(){
+        System.setOut(out);
+    }
+
+    private String nextID(){
+        String id = ids[next];
+        next = (next + 1) % ids.length;
+        return id;
+    }
+
+    /** Finds a student by comparing the ID of each one in the list in turn. */
+    @Benchmark
+    public Student linearScan(){
+        String id = nextID();
+        for (Student student : studentList) {
+            if (student.getUserId().equals(id)) {
+                return student;
+            }
+        }
+        return null;
+    }
+
+    /** Finds a student through the repository's index. */
+    @Benchmark
+    public Student indexedLookup(){
+        return users.findStudentByUserID(nextID());
+    }
+
+    /** Logs a student in, which looks them up and checks their password. */
+    @Benchmark
+    public Session login() throws Exception {
+        return auth.login(nextID(), BenchData.PASSWORD, 1);
+    }
+}
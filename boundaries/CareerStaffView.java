@@ -19,6 +19,7 @@ import entities.Filter;
 import util.AppContext;
 import util.ComplexityChecker;
 import util.ConsoleColors;
+import util.DateConverter;
 
 
 /**
@@ -80,7 +81,11 @@ public class CareerStaffView {
                 case 6 -> changePassword(Context, sc, careerStaffController);
                 case 7 -> {
                     Context.clearSession();
-                    careerStaffController.saveFiles();
+                    try {
+                        careerStaffController.saveFiles();
+                    } catch (IOException e) {
+                        System.out.println(ConsoleColors.RED+"Your changes could not be saved yet: " + e.getMessage()+ConsoleColors.RESET);
+                    }
                     System.out.println(ConsoleColors.RED+"You have been logged out."+ConsoleColors.RESET);
                     return;
                 }
@@ -238,9 +243,13 @@ public class CareerStaffView {
             System.out.println(ConsoleColors.RED+checker.checkComplexity(newPassword)+ConsoleColors.RESET);
             newPassword = sc.nextLine();
         }
-        user.changePassword(newPassword);
-        controller.saveFiles();
-        System.out.println(ConsoleColors.GREEN+"Password successfully changed!"+ConsoleColors.RESET);
+        controller.changePassword(user, newPassword);
+        try {
+            controller.saveFiles();
+            System.out.println(ConsoleColors.GREEN+"Password successfully changed!"+ConsoleColors.RESET);
+        } catch (IOException e) {
+            System.out.println(ConsoleColors.RED+"Password changed, but it could not be saved yet: " + e.getMessage()+ConsoleColors.RESET);
+        }
     }
 
      /**
@@ -261,8 +270,8 @@ public class CareerStaffView {
             String line1 = i + ". " + opp.getInternshipTitle() + ", " + opp.getCompanyName() + ", " + opp.getDepartment();
             String line2 = "   " + opp.getInternshipLevel() + ", " + opp.getDescription();
             String line3 = "   Preferred Major: " + opp.getPreferredMajor()
-                + ", Opening: " + opp.getApplicationOpeningDate()
-                + ", Closing: " + opp.getApplicationClosingDate()
+                + ", Opening: " + DateConverter.formatDate(opp.getApplicationOpeningDate())
+                + ", Closing: " + DateConverter.formatDate(opp.getApplicationClosingDate())
                 + ", Company Rep: " + opp.getCompanyRepInCharge()
                 + ", Slots: " + opp.getNoOfSlots()
                 + ", Status: " + opp.getStatus()
@@ -352,8 +361,8 @@ public class CareerStaffView {
                     default -> System.out.println(ConsoleColors.RED+"Invalid choice. Please try again.\n"+ConsoleColors.RESET);
                 }
             }
-            String applicationOpeningDate = null;
-            String applicationClosingDate = null;
+            long applicationOpeningDate = Filter.NO_EARLIEST_OPENING_DATE;
+            long applicationClosingDate = Filter.NO_LATEST_CLOSING_DATE;
             while (true) {
                 System.out.print("How early do you want the Application Opening Date (YYYY-MM-DD, -1 to skip): ");
                 String input = sc.nextLine().trim();
@@ -382,7 +391,7 @@ public class CareerStaffView {
                     System.out.println(ConsoleColors.RED+"Invalid day for that month. Max is " + maxDay + ".\n"+ConsoleColors.RESET);
                     continue;
                 }
-                applicationOpeningDate = input;
+                applicationOpeningDate = DateConverter.parseDate(input);
                 break;
             }
             while (true) {
@@ -413,11 +422,11 @@ public class CareerStaffView {
                     System.out.println(ConsoleColors.RED+"Invalid day for that month. Max is " + maxDay + ".\n"+ConsoleColors.RESET);
                     continue;
                 }
-                if (applicationOpeningDate != null && input.compareTo(applicationOpeningDate) <= 0) {
+                if (applicationOpeningDate != Filter.NO_EARLIEST_OPENING_DATE && DateConverter.parseDate(input) <= applicationOpeningDate) {
                     System.out.println(ConsoleColors.RED+"Closing date must be after opening date.\n"+ConsoleColors.RESET);
                     continue;
                 }
-                applicationClosingDate = input;
+                applicationClosingDate = DateConverter.parseDate(input);
                 break;
             }
             Filter new_filter = new Filter(status, preferredMajor, internshipLevel, applicationOpeningDate, applicationClosingDate);
@@ -430,8 +439,8 @@ public class CareerStaffView {
             String line1 = i + ". " + opp.getInternshipTitle() + ", " + opp.getCompanyName() + ", " + opp.getDepartment();
             String line2 = "   " + opp.getInternshipLevel() + ", " + opp.getDescription();
             String line3 = "   Preferred Major: " + opp.getPreferredMajor()
-                + ", Opening: " + opp.getApplicationOpeningDate()
-                + ", Closing: " + opp.getApplicationClosingDate()
+                + ", Opening: " + DateConverter.formatDate(opp.getApplicationOpeningDate())
+                + ", Closing: " + DateConverter.formatDate(opp.getApplicationClosingDate())
                 + ", Company Rep: " + opp.getCompanyRepInCharge()
                 + ", Slots: " + opp.getNoOfSlots()
                 + ", Status: " + opp.getStatus()
@@ -1,11 +1,13 @@
 package boundaries;
+import java.time.format.DateTimeParseException;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Scanner;
-import java.util.stream.Collectors;
 
 import util.AppContext;
 import util.ComplexityChecker;
 import util.ConsoleColors;
+import util.DateConverter;
 import controllers.CompanyRepController;
 import entities.*;
 import entities.Application.ApplicationStatus;
@@ -78,7 +80,11 @@ public class CompanyRepView {
                 case 6->changePassword(Context,sc,companyRepController);
                 case 7 -> {
                     Context.clearSession();
-                    companyRepController.saveFiles();
+                    try {
+                        companyRepController.saveFiles();
+                    } catch (IOException e) {
+                        System.out.println(ConsoleColors.RED+"Your changes could not be saved yet: " + e.getMessage()+ConsoleColors.RESET);
+                    }
                     System.out.println("You have been logged out.");
                     return;
                 }
@@ -210,7 +216,7 @@ public class CompanyRepView {
                 System.out.println(ConsoleColors.RED+"Invalid day for that month. Max is " + maxDay + ".\n"+ConsoleColors.RESET);
                 continue;
             }
-            if (applicationClosingDate.compareTo(applicationOpeningDate) <= 0) {
+            if (DateConverter.parseDate(applicationClosingDate) <= DateConverter.parseDate(applicationOpeningDate)) {
                 System.out.println(ConsoleColors.RED+"Closing date must be after opening date.\n"+ConsoleColors.RESET);
                 continue;
             }
@@ -230,8 +236,8 @@ public class CompanyRepView {
         }
         sc.nextLine(); 
 
-        InternshipOpportunity internship = new InternshipOpportunity(internshipTitle, internshipDescription, internshipLevel, preferredMajor, applicationOpeningDate, 
-        applicationClosingDate, companyName, department, companyRepID, noOfSlots, Status.PENDING,true, new ArrayList<>());
+        InternshipOpportunity internship = new InternshipOpportunity(internshipTitle, internshipDescription, internshipLevel, preferredMajor, DateConverter.parseDate(applicationOpeningDate), 
+        DateConverter.parseDate(applicationClosingDate), companyName, department, companyRepID, noOfSlots, Status.PENDING,true, new ArrayList<>());
         companyRepController.addInternshipOpportunity(internship);
         System.out.println(ConsoleColors.GREEN+"Internship Opportunity Created Successfully!"+ConsoleColors.RESET);
     }
@@ -267,7 +273,7 @@ public class CompanyRepView {
                 System.out.println(ConsoleColors.RED+"Invalid selection. Please enter a valid index or -1 to return."+ConsoleColors.RESET);
             }
             InternshipOpportunity opp = opportunityList.get(choice3-1);
-            opp.toggleVisibility();
+            companyRepController.toggleVisibility(opp);
             System.out.println(ConsoleColors.GREEN+"Visibility for "+ opp.getInternshipTitle() + " is now "+(opp.getVisible()? "on":"off")+ConsoleColors.RESET);
             break;
         }
@@ -308,8 +314,8 @@ public class CompanyRepView {
                     + req.getCompanyName() + ", "
                     + req.getDepartment());
                 System.out.println("Application Description: "+ req.getDescription());
-                System.out.println("Application Opening Date: "+ req.getApplicationOpeningDate());
-                System.out.println("Application Closing Date: "+ req.getApplicationClosingDate());
+                System.out.println("Application Opening Date: "+ DateConverter.formatDate(req.getApplicationOpeningDate()));
+                System.out.println("Application Closing Date: "+ DateConverter.formatDate(req.getApplicationClosingDate()));
                 System.out.println("Number Of Slots: "+ req.getNoOfSlots());
                 System.out.println("Preferred Major: "+ req.getPreferredMajor().toString());
                 System.out.println("");
@@ -332,8 +338,8 @@ public class CompanyRepView {
                     System.out.println("Choose field to edit: ");
                     System.out.println("1. Internship Title: " + opp.getInternshipTitle());
                     System.out.println("2. Description: " + opp.getDescription());
-                    System.out.println("3. Opening Date (YYYY-MM-DD): " + opp.getApplicationOpeningDate());
-                    System.out.println("4. Closing Date (YYYY-MM-DD): " + opp.getApplicationClosingDate());
+                    System.out.println("3. Opening Date (YYYY-MM-DD): " + DateConverter.formatDate(opp.getApplicationOpeningDate()));
+                    System.out.println("4. Closing Date (YYYY-MM-DD): " + DateConverter.formatDate(opp.getApplicationClosingDate()));
                     System.out.println("5. Preferred Major: " + opp.getPreferredMajor().toString());
                     System.out.printf("6. Number of Slots: %d",opp.getNoOfSlots());
                     System.out.println("\n7. Department: " + opp.getDepartment());
@@ -359,14 +365,22 @@ public class CompanyRepView {
 
                         case 3:
                             System.out.print("Enter new Opening Date (YYYY-MM-DD): ");
-                            opp.setApplicationOpeningDate(sc.nextLine().trim());
-                            System.out.println(ConsoleColors.GREEN+"Updated Opening Date!"+ConsoleColors.RESET);
+                            try {
+                                opp.setApplicationOpeningDate(DateConverter.parseDate(sc.nextLine()));
+                                System.out.println(ConsoleColors.GREEN+"Updated Opening Date!"+ConsoleColors.RESET);
+                            } catch (DateTimeParseException e) {
+                                System.out.println(ConsoleColors.RED+"Invalid date. Please use YYYY-MM-DD."+ConsoleColors.RESET);
+                            }
                             break;
 
                         case 4:
                             System.out.print("Enter new Closing Date (YYYY-MM-DD): ");
-                            opp.setApplicationClosingDate(sc.nextLine().trim());
-                            System.out.println(ConsoleColors.GREEN+"Updated Closing Date!"+ConsoleColors.RESET);
+                            try {
+                                opp.setApplicationClosingDate(DateConverter.parseDate(sc.nextLine()));
+                                System.out.println(ConsoleColors.GREEN+"Updated Closing Date!"+ConsoleColors.RESET);
+                            } catch (DateTimeParseException e) {
+                                System.out.println(ConsoleColors.RED+"Invalid date. Please use YYYY-MM-DD."+ConsoleColors.RESET);
+                            }
                             break;
 
                         case 5:
@@ -432,6 +446,7 @@ public class CompanyRepView {
                         default:
                             System.out.println(ConsoleColors.RED+"Invalid choice, please try again."+ConsoleColors.RESET);
                     }
+                    companyRepController.updateInternshipOpportunity(opp);
                 }
             }
         }
@@ -498,20 +513,12 @@ public class CompanyRepView {
                 InternshipOpportunity selected = currentOppList.get(choice3 - 1);
                 System.out.printf("\nTitle: %s, Department: %s, Description: %s \n", selected.getInternshipTitle(), selected.getDepartment(), selected.getDescription());
                 ArrayList<Application> applicationList = selected.getApplicationList();
-                ArrayList<Application> pendingApplicants = selected.getApplicationList().stream()
-                    .filter(s -> s.getApplicationStatus().equals(ApplicationStatus.PENDING))
-                    .collect(Collectors.toCollection(ArrayList::new));
-                ArrayList<Application> successfulApplicants = selected.getApplicationList().stream()
-                    .filter(s -> s.getApplicationStatus().equals(ApplicationStatus.SUCCESSFUL))
-                    .collect(Collectors.toCollection(ArrayList::new));
-                ArrayList<Application> acceptedApplicants = selected.getApplicationList().stream()
-                    .filter(s -> s.getApplicationStatus().equals(ApplicationStatus.ACCEPTED))
-                    .collect(Collectors.toCollection(ArrayList::new));
-                ArrayList<Application> withdrawnApplicants = selected.getApplicationList().stream()
-                    .filter(s -> s.getApplicationStatus().equals(ApplicationStatus.WITHDRAWN))
-                    .collect(Collectors.toCollection(ArrayList::new));
+                ArrayList<Application> pendingApplicants = selected.getApplicationsWithStatus(ApplicationStatus.PENDING);
+                ArrayList<Application> successfulApplicants = selected.getApplicationsWithStatus(ApplicationStatus.SUCCESSFUL);
+                ArrayList<Application> acceptedApplicants = selected.getApplicationsWithStatus(ApplicationStatus.ACCEPTED);
+                ArrayList<Application> withdrawnApplicants = selected.getApplicationsWithStatus(ApplicationStatus.WITHDRAWN);
                 System.out.printf("Total Number of Students Applied: %d \n", applicationList.size());
-                System.out.printf("Number of Slots Left: %d \n\n", selected.getNoOfSlots()-acceptedApplicants.size());
+                System.out.printf("Number of Slots Left: %d \n\n", selected.getNoOfSlots()-selected.getApplicationCount(ApplicationStatus.ACCEPTED));
                 if(successfulApplicants.size()!=0){
                     System.out.printf("\nThese are the %d applicants you have chosen, but yet to accept the offer: \n", successfulApplicants.size());
                     for (int j = 0; j < successfulApplicants.size(); j++) {
@@ -557,7 +564,7 @@ public class CompanyRepView {
                             }
                             Application approved = pendingApplicants.get(choice4 - 1);
                             Student student = companyRepController.findStudentByUserID(approved.getStudentID());
-                            approved.setApplicationStatus(ApplicationStatus.SUCCESSFUL);
+                            companyRepController.approveApplication(approved);
                             System.out.println(ConsoleColors.GREEN+"Approved "+student.getName()+"\'s application for " + selected.getInternshipTitle()+ConsoleColors.RESET);
                             break;
                         }
@@ -612,9 +619,13 @@ public class CompanyRepView {
             System.out.println(ConsoleColors.RED+checker.checkComplexity(newPassword)+ConsoleColors.RESET);
             newPassword = sc.nextLine();
         }
-        user.changePassword(newPassword);
-        controller.saveFiles();
-        System.out.println(ConsoleColors.GREEN+"Password successfully changed!"+ConsoleColors.RESET);
+        controller.changePassword(user, newPassword);
+        try {
+            controller.saveFiles();
+            System.out.println(ConsoleColors.GREEN+"Password successfully changed!"+ConsoleColors.RESET);
+        } catch (IOException e) {
+            System.out.println(ConsoleColors.RED+"Password changed, but it could not be saved yet: " + e.getMessage()+ConsoleColors.RESET);
+        }
     }
 
     /**
@@ -700,8 +711,8 @@ public class CompanyRepView {
                     default -> System.out.println(ConsoleColors.RED+"Invalid choice. Please try again.\n"+ConsoleColors.RESET);
                 }
             }
-            String applicationOpeningDate = null;
-            String applicationClosingDate = null;
+            long applicationOpeningDate = Filter.NO_EARLIEST_OPENING_DATE;
+            long applicationClosingDate = Filter.NO_LATEST_CLOSING_DATE;
             while (true) {
                 System.out.print("How early do you want the Application Opening Date (YYYY-MM-DD, -1 to skip): ");
                 String input = sc.nextLine().trim();
@@ -730,7 +741,7 @@ public class CompanyRepView {
                     System.out.println(ConsoleColors.RED+"Invalid day for that month. Max is " + maxDay + ".\n"+ConsoleColors.RESET);
                     continue;
                 }
-                applicationOpeningDate = input;
+                applicationOpeningDate = DateConverter.parseDate(input);
                 break;
             }
             while (true) {
@@ -761,11 +772,11 @@ public class CompanyRepView {
                     System.out.println(ConsoleColors.RED+"Invalid day for that month. Max is " + maxDay + ".\n"+ConsoleColors.RESET);
                     continue;
                 }
-                if (applicationOpeningDate != null && input.compareTo(applicationOpeningDate) <= 0) {
+                if (applicationOpeningDate != Filter.NO_EARLIEST_OPENING_DATE && DateConverter.parseDate(input) <= applicationOpeningDate) {
                     System.out.println(ConsoleColors.RED+"Closing date must be after opening date.\n"+ConsoleColors.RESET);
                     continue;
                 }
-                applicationClosingDate = input;
+                applicationClosingDate = DateConverter.parseDate(input);
                 break;
             }
             Filter new_filter = new Filter(status, preferredMajor, internshipLevel, applicationOpeningDate, applicationClosingDate);
@@ -778,8 +789,8 @@ public class CompanyRepView {
             String line1 = i + ". " + opp.getInternshipTitle() + ", " + opp.getCompanyName() + ", " + opp.getDepartment();
             String line2 = "   " + opp.getInternshipLevel() + ", " + opp.getDescription();
             String line3 = "   Preferred Major: " + opp.getPreferredMajor()
-                + ", Opening: " + opp.getApplicationOpeningDate()
-                + ", Closing: " + opp.getApplicationClosingDate()
+                + ", Opening: " + DateConverter.formatDate(opp.getApplicationOpeningDate())
+                + ", Closing: " + DateConverter.formatDate(opp.getApplicationClosingDate())
                 + ", Company Rep: " + opp.getCompanyRepInCharge()
                 + ", Slots: " + opp.getNoOfSlots()
                 + ", Status: " + opp.getStatus()
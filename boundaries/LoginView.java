@@ -7,7 +7,7 @@ import repositories.RequestRepository;
 import repositories.UserRepository;
 import util.AppContext;
 import util.ConsoleColors;
-import util.SaveFiles;
+import util.Journal;
 import entities.CompanyRepCreationReq;
 import entities.Session;
 
@@ -34,6 +34,7 @@ public class LoginView {
     private StudentView studentView;
     private AuthController authController;
     private RequestRepository requests;
+    private Journal journal;
      /**
      * Constructs a LoginView containing the different user views and request storage.
      *
@@ -41,12 +42,17 @@ public class LoginView {
      * @param companyRepView  view for company representative functions
      * @param studentView     view for student functions
      * @param requests        repository storing account creation requests
+     * @param journal         journal recording new account creation requests
+     * @throws IllegalStateException if the requests were only partly loaded, so
+     *         new ones cannot be journaled
      */
-    public LoginView(CareerStaffView careerStaffView, CompanyRepView companyRepView, StudentView studentView, RequestRepository requests){
+    public LoginView(CareerStaffView careerStaffView, CompanyRepView companyRepView, StudentView studentView, RequestRepository requests, Journal journal){
+        requests.checkWritable();
         this.careerStaffView = careerStaffView;
         this.companyRepView = companyRepView;
         this.studentView = studentView;
         this.requests = requests;
+        this.journal = journal;
     }
 
      /**
@@ -105,8 +111,7 @@ public class LoginView {
                 String position = sc.nextLine();
                 CompanyRepCreationReq req = new CompanyRepCreationReq(username,name,companyName,department,position);
                 requests.addCompanyReqCreationReq(req);
-                SaveFiles savefiles = new SaveFiles();
-                savefiles.saveCompanyRepReqCSV(requests);
+                journal.recordCompanyRepRequest(req);
                 System.out.println(ConsoleColors.GREEN+"\nRequest successfully created!"+ConsoleColors.RESET);
                 continue;
             }
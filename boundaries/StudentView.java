@@ -1,5 +1,7 @@
 package boundaries;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Scanner;
 import java.util.stream.Collectors;
 
@@ -16,6 +18,7 @@ import entities.User;
 import util.AppContext;
 import util.ComplexityChecker;
 import util.ConsoleColors;
+import util.DateConverter;
 
 /**
  * Boundary/UI class that manages all interactions between the student user
@@ -82,7 +85,11 @@ public class StudentView{
                 case 6 -> changePassword(Context, sc, studentController);
                 case 7 -> {
                     Context.clearSession();
-                    studentController.saveFiles();
+                    try {
+                        studentController.saveFiles();
+                    } catch (IOException e) {
+                        System.out.println(ConsoleColors.RED+"Your changes could not be saved yet: " + e.getMessage()+ConsoleColors.RESET);
+                    }
                     System.out.println("You have been logged out.");
                     return;
                 }
@@ -310,11 +317,11 @@ public class StudentView{
         String choice3 = sc.next();
         if (choice3.equalsIgnoreCase("Y")){
             ArrayList<InternshipOpportunity> opportunityList = studentController.getAppliedInternshipOpportunityList(UserID);
+            HashSet<Integer> requestedIDs = reqs.stream()
+                .map(InternshipWithdrawalReq::getOpportunityID)
+                .collect(Collectors.toCollection(HashSet::new));
             ArrayList<InternshipOpportunity> filtered_opps = opportunityList.stream()
-                .filter(opp -> reqs.stream().noneMatch(req -> 
-                    req.getInternshipTitle().equals(opp.getInternshipTitle()) && 
-                    req.getCompanyName().equals(opp.getCompanyName())
-                ))
+                .filter(opp -> !requestedIDs.contains(opp.getOpportunityID()))
                 .collect(Collectors.toCollection(ArrayList::new));
             for (int i = 0; i < filtered_opps.size(); i++) {
                 InternshipOpportunity req = filtered_opps.get(i);
@@ -377,9 +384,13 @@ public class StudentView{
             System.out.println(ConsoleColors.RED+checker.checkComplexity(newPassword)+ConsoleColors.RESET);
             newPassword = sc.nextLine();
         }
-        user.changePassword(newPassword);
-        controller.saveFiles();
-        System.out.println(ConsoleColors.GREEN+"Password successfully changed!"+ConsoleColors.RESET);
+        controller.changePassword(user, newPassword);
+        try {
+            controller.saveFiles();
+            System.out.println(ConsoleColors.GREEN+"Password successfully changed!"+ConsoleColors.RESET);
+        } catch (IOException e) {
+            System.out.println(ConsoleColors.RED+"Password changed, but it could not be saved yet: " + e.getMessage()+ConsoleColors.RESET);
+        }
     }
 
     /**
@@ -459,8 +470,8 @@ public class StudentView{
                     default -> System.out.println(ConsoleColors.RED+"Invalid choice. Please try again.\n"+ConsoleColors.RESET);
                 }
             }
-            String applicationOpeningDate = null;
-            String applicationClosingDate = null;
+            long applicationOpeningDate = Filter.NO_EARLIEST_OPENING_DATE;
+            long applicationClosingDate = Filter.NO_LATEST_CLOSING_DATE;
             while (true) {
                 System.out.print("How early do you want the Application Opening Date (YYYY-MM-DD, -1 to skip): ");
                 String input = sc.nextLine().trim();
@@ -489,7 +500,7 @@ public class StudentView{
                     System.out.println(ConsoleColors.RED+"Invalid day for that month. Max is " + maxDay + ".\n"+ConsoleColors.RESET);
                     continue;
                 }
-                applicationOpeningDate = input;
+                applicationOpeningDate = DateConverter.parseDate(input);
                 break;
             }
             while (true) {
@@ -520,11 +531,11 @@ public class StudentView{
                     System.out.println(ConsoleColors.RED+"Invalid day for that month. Max is " + maxDay + ".\n"+ConsoleColors.RESET);
                     continue;
                 }
-                if (applicationOpeningDate != null && input.compareTo(applicationOpeningDate) <= 0) {
+                if (applicationOpeningDate != Filter.NO_EARLIEST_OPENING_DATE && DateConverter.parseDate(input) <= applicationOpeningDate) {
                     System.out.println(ConsoleColors.RED+"Closing date must be after opening date.\n"+ConsoleColors.RESET);
                     continue;
                 }
-                applicationClosingDate = input;
+                applicationClosingDate = DateConverter.parseDate(input);
                 break;
             }
             Filter new_filter = new Filter(status, preferredMajor, internshipLevel, applicationOpeningDate, applicationClosingDate);
@@ -537,8 +548,8 @@ public class StudentView{
             String line1 = i + ". " + opp.getInternshipTitle() + ", " + opp.getCompanyName() + ", " + opp.getDepartment();
             String line2 = "   " + opp.getInternshipLevel() + ", " + opp.getDescription();
             String line3 = "   Preferred Major: " + opp.getPreferredMajor()
-                + ", Opening: " + opp.getApplicationOpeningDate()
-                + ", Closing: " + opp.getApplicationClosingDate()
+                + ", Opening: " + DateConverter.formatDate(opp.getApplicationOpeningDate())
+                + ", Closing: " + DateConverter.formatDate(opp.getApplicationClosingDate())
                 + ", Company Rep: " + opp.getCompanyRepInCharge()
                 + ", Slots: " + opp.getNoOfSlots()
                 + ", Status: " + opp.getStatus()
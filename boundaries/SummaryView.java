@@ -0,0 +1,62 @@
+package boundaries;
+import java.util.EnumMap;
+
+import repositories.OpportunityRepository;
+import repositories.UserRepository;
+import entities.*;
+import entities.Application.ApplicationStatus;
+import entities.InternshipOpportunity.Status;
+
+/**
+ * Boundary (UI) class that prints a summary of the data: how many students there
+ * are, and how many internship opportunities and applications there are in each
+ * status.
+ *
+ * <p>It only reads the repositories, so it can be given ones loaded with just
+ * the columns it needs: each student's ID and each opportunity's ID and status.
+ * Applications are always read in full.</p>
+ */
+public class SummaryView {
+    /** Repository containing the students counted. */
+    private UserRepository users;
+    /** Repository containing the opportunities and applications counted. */
+    private OpportunityRepository opportunities;
+
+    /**
+     * Constructs a new SummaryView.
+     *
+     * @param users         repository storing user information
+     * @param opportunities repository storing internship opportunities
+     */
+    public SummaryView(UserRepository users, OpportunityRepository opportunities){
+        this.users = users;
+        this.opportunities = opportunities;
+    }
+
+    /**
+     * Prints the summary.
+     */
+    public void display(){
+        int[] students = new int[1];
+        users.forEachStudent(s -> students[0]++);
+        EnumMap<Status, Integer> opportunityCounts = new EnumMap<>(Status.class);
+        EnumMap<ApplicationStatus, Integer> applicationCounts = new EnumMap<>(ApplicationStatus.class);
+        int applicationTotal = 0;
+        for (InternshipOpportunity opp : opportunities.getInternshipOpportunityList()) {
+            opportunityCounts.merge(opp.getStatus(), 1, Integer::sum);
+            for (Application app : opp.getApplicationList()) {
+                applicationCounts.merge(app.getApplicationStatus(), 1, Integer::sum);
+                applicationTotal++;
+            }
+        }
+        System.out.println("Students: " + students[0]);
+        System.out.println("Internship opportunities: " + opportunities.getInternshipOpportunityList().size());
+        for (Status status : Status.values()) {
+            System.out.println("   " + status + ": " + opportunityCounts.getOrDefault(status, 0));
+        }
+        System.out.println("Applications: " + applicationTotal);
+        for (ApplicationStatus status : ApplicationStatus.values()) {
+            System.out.println("   " + status + ": " + applicationCounts.getOrDefault(status, 0));
+        }
+    }
+}
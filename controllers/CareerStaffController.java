@@ -1,5 +1,6 @@
 package controllers;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Optional;
 
@@ -13,7 +14,7 @@ import entities.User.Role;
 import repositories.OpportunityRepository;
 import repositories.RequestRepository;
 import repositories.UserRepository;
-import util.SaveFiles;
+import util.Journal;
 import util.UserFactory;
 import entities.User;
 import entities.Application.ApplicationStatus;
@@ -41,17 +42,26 @@ public class CareerStaffController {
     private RequestRepository requests;
     /** Repository containing all internship opportunities. */
     private OpportunityRepository opportunities;
+    /** Journal that every change made through this controller is recorded in. */
+    private Journal journal;
      /**
      * Constructs a CareerStaffController with the required repositories.
      *
      * @param requests      repository storing pending requests
      * @param users         repository storing users
      * @param opportunities repository storing internship opportunities
+     * @param journal       journal recording changes to the data
+     * @throws IllegalStateException if a repository was only partly loaded, so
+     *         changes to it cannot be journaled
      */
-    public CareerStaffController(RequestRepository requests, UserRepository users, OpportunityRepository opportunities){
+    public CareerStaffController(RequestRepository requests, UserRepository users, OpportunityRepository opportunities, Journal journal){
+        requests.checkWritable();
+        users.checkWritable();
+        opportunities.checkWritable();
         this.users = users;
         this.requests = requests;
         this.opportunities = opportunities;
+        this.journal = journal;
     }
 
     /**
@@ -105,11 +115,13 @@ public class CareerStaffController {
      */
     public void addCompanyRepAcct(CompanyRepCreationReq req){
         requests.deleteCompanyReqCreationReq(req);
+        journal.recordCompanyRepRequestRemoved(req);
         UserFactory userFactory = new UserFactory();
         String data = req.getUserID() + "," + req.getName() + "," + req.getCompanyName() + "," + req.getDepartment() + "," + req.getDepartment() + ",password";
         User user = userFactory.addUser(data, Role.COMPANY_REP);
         CompanyRep companyRep = (CompanyRep)user;
         users.addCompanyRep(companyRep);
+        journal.recordCompanyRep(companyRep);
     }
 
      /**
@@ -117,7 +129,7 @@ public class CareerStaffController {
      *
      * <p>This method:
      * <ol>
-     *     <li>Locates the matching internship opportunity</li>
+     *     <li>Locates the matching internship opportunity by its ID</li>
      *     <li>Finds the student's application for that opportunity</li>
      *     <li>If the student had accepted and the opportunity was filled,
      *         adjusts the status back to APPROVED if slots become available</li>
@@ -125,33 +137,31 @@ public class CareerStaffController {
      *     <li>Deletes the withdrawal request from the repository</li>
      * </ol>
      *
+     * <p>A request whose opportunity or application no longer exists is simply removed.
+     *
      * @param req the withdrawal request to approve
      */
     public void approveWithrawReq(InternshipWithdrawalReq req){
-        ArrayList<InternshipOpportunity> opps = opportunities.getInternshipOpportunityList();
-        InternshipOpportunity selected_opp =null;
-        Application selected_app =null;
-        String studentId = req.getUserID();
-        for (InternshipOpportunity opp : opps) {
-            if (opp.getInternshipTitle().equals(req.getInternshipTitle())
-                && opp.getCompanyName().equals(req.getCompanyName())){
-                selected_opp = opp;
-                Optional<Application> application = selected_opp.getApplicationList().stream()
-                    .filter(app -> app.getStudentID().equals(studentId))
-                    .findFirst();
-                if (application.isPresent()){
-                    selected_app = application.get();
-                }
-                break;
-            }
+        InternshipOpportunity selected_opp = opportunities.getInternshipOpportunityByID(req.getOpportunityID());
+        Optional<Application> application = opportunities.getApplicationsByStudent(req.getUserID()).stream()
+            .filter(app -> app.getOpportunity() == selected_opp)
+            .findFirst();
+        if (selected_opp == null || application.isEmpty()) {
+            requests.deleteInternshipWithdrawalReq(req);
+            journal.recordWithdrawalRequestRemoved(req);
+            return;
         }
+        Application selected_app = application.get();
         if (selected_app.getApplicationStatus() == ApplicationStatus.ACCEPTED) {
             if (selected_opp.getNoOfSlots() > 0 && selected_opp.getStatus() == InternshipOpportunity.Status.FILLED) {
                 selected_opp.setStatus(InternshipOpportunity.Status.APPROVED);
+                journal.recordOpportunityStatus(selected_opp);
             }
         }
         selected_app.setApplicationStatus(ApplicationStatus.WITHDRAWN);
+        journal.recordApplication(selected_app);
         requests.deleteInternshipWithdrawalReq(req);
+        journal.recordWithdrawalRequestRemoved(req);
     }
 
     /**
@@ -161,27 +171,33 @@ public class CareerStaffController {
      */
     public void approveInternshipOpportunity(InternshipOpportunity opp){
         opp.setStatus(Status.APPROVED);
+        journal.recordOpportunityStatus(opp);
+    }
+
+    /**
+     * Changes a user's password and records the change.
+     *
+     * @param user        the user whose password is changed
+     * @param newPassword the new password
+     */
+    public void changePassword(User user, String newPassword){
+        users.changePassword(user, newPassword);
+        journal.recordPassword(user);
     }
 
      /**
-     * Saves all relevant data to persistent storage.
+     * Brings persistent storage up to date.
+     *
+     * <p>Every change is already queued in the {@link Journal}; this asks for the
+     * journal to be folded into the CSV files if a checkpoint is due, which happens
+     * in the background, and waits until the queued changes are on disk.</p>
      *
-     * <p>This includes:
-     * <ul>
-     *     <li>Company Representatives</li>
-     *     <li>Company Representative Requests</li>
-     *     <li>Internship Opportunities</li>
-     *     <li>Internship Withdrawal Requests</li>
-     *     <li>Career Staff User Records</li>
-     * </ul>
+     * @throws IOException if the changes could not be written; they stay queued
+     *         and are retried in the background
      */
-    public void saveFiles(){
-        SaveFiles saveFiles = new SaveFiles();
-        saveFiles.saveCompanyRepCSV(users);
-        saveFiles.saveCompanyRepReqCSV(requests);
-        saveFiles.saveInternshipOpportunityCSV(opportunities);
-        saveFiles.saveInternshipWithdrawalRequests(requests);
-        saveFiles.saveStaffCSV(users);
+    public void saveFiles() throws IOException {
+        journal.checkpointIfDue();
+        journal.sync();
     }
 
      /**
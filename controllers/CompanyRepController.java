@@ -1,13 +1,17 @@
 package controllers;
 import repositories.*;
-import util.SaveFiles;
+import util.Journal;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.stream.Collectors;
 
+import entities.Application;
 import entities.Filter;
 import entities.InternshipOpportunity;
 import entities.Student;
+import entities.User;
+import entities.Application.ApplicationStatus;
 import entities.InternshipOpportunity.Status;
 
 /**
@@ -30,17 +34,24 @@ public class CompanyRepController {
     private UserRepository users;
     /** Repository storing all internship opportunities. */
     private OpportunityRepository opportunities;
+    /** Journal that every change made through this controller is recorded in. */
+    private Journal journal;
 
     /**
      * Constructs a CompanyRepController with the required repositories.
      *
-     * @param requests      repository for pending requests
      * @param users         repository containing user information
      * @param opportunities repository containing internship opportunities
+     * @param journal       journal recording changes to the data
+     * @throws IllegalStateException if a repository was only partly loaded, so
+     *         changes to it cannot be journaled
      */
-    public CompanyRepController(UserRepository users, OpportunityRepository opportunities){
+    public CompanyRepController(UserRepository users, OpportunityRepository opportunities, Journal journal){
+        users.checkWritable();
+        opportunities.checkWritable();
         this.users = users;
         this.opportunities = opportunities;
+        this.journal = journal;
     }
 
     /**
@@ -94,19 +105,63 @@ public class CompanyRepController {
      */
     public void addInternshipOpportunity(InternshipOpportunity internshipOpportunity){
         opportunities.addInternshipOpportunity(internshipOpportunity);
+        journal.recordOpportunity(internshipOpportunity);
+    }
+
+    /**
+     * Records the current details of an opportunity after the Company Rep has edited it.
+     *
+     * @param internshipOpportunity the edited opportunity
+     */
+    public void updateInternshipOpportunity(InternshipOpportunity internshipOpportunity){
+        journal.recordOpportunity(internshipOpportunity);
+    }
+
+    /**
+     * Toggles whether an opportunity is visible to students.
+     *
+     * @param internshipOpportunity the opportunity to show or hide
+     */
+    public void toggleVisibility(InternshipOpportunity internshipOpportunity){
+        internshipOpportunity.toggleVisibility();
+        journal.recordOpportunity(internshipOpportunity);
+    }
+
+    /**
+     * Marks a pending application as successful, offering the student a place.
+     *
+     * @param application the application to approve
+     */
+    public void approveApplication(Application application){
+        application.setApplicationStatus(ApplicationStatus.SUCCESSFUL);
+        journal.recordApplication(application);
+    }
+
+    /**
+     * Changes a user's password and records the change.
+     *
+     * @param user        the user whose password is changed
+     * @param newPassword the new password
+     */
+    public void changePassword(User user, String newPassword){
+        users.changePassword(user, newPassword);
+        journal.recordPassword(user);
     }
 
      /**
-     * Saves updated internship opportunities and company representative data
-     * to persistent storage.
+     * Brings persistent storage up to date.
+     *
+     * <p>Every change is already queued in the {@link Journal}; this asks for the
+     * journal to be folded into the CSV files if a checkpoint is due, which happens
+     * in the background, and waits until the queued changes are on disk. This method should be called when the
+     * Company Rep logs out or after major modifications.
      *
-     * <p>This method should be called when the Company Rep logs out
-     * or after major modifications.
+     * @throws IOException if the changes could not be written; they stay queued
+     *         and are retried in the background
      */
-    public void saveFiles(){
-        SaveFiles saveFiles = new SaveFiles();
-        saveFiles.saveInternshipOpportunityCSV(opportunities);
-        saveFiles.saveCompanyRepCSV(users);
+    public void saveFiles() throws IOException {
+        journal.checkpointIfDue();
+        journal.sync();
     }
 
     /**
@@ -1,18 +1,20 @@
 package controllers;
 
 import repositories.UserRepository;
-import util.SaveFiles;
+import util.DateConverter;
+import util.Journal;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.stream.Collectors;
-import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 import java.util.Optional;
 
 import entities.Application;
 import entities.InternshipOpportunity;
 import entities.InternshipWithdrawalReq;
 import entities.Student;
+import entities.User;
 import entities.Application.ApplicationStatus;
 import entities.Filter;
 import entities.InternshipOpportunity.Major;
@@ -41,17 +43,26 @@ public class StudentController {
     private OpportunityRepository opportunities;
     /** Repository containing all pending withdrawal and request records. */
     private RequestRepository requests;
+    /** Journal that every change made through this controller is recorded in. */
+    private Journal journal;
     /**
      * Constructs a StudentController using the required repositories.
      *
      * @param requests      repository storing internship withdrawal requests
      * @param users         repository storing user information
      * @param opportunities repository storing internship opportunities
+     * @param journal       journal recording changes to the data
+     * @throws IllegalStateException if a repository was only partly loaded, so
+     *         changes to it cannot be journaled
      */
-    public StudentController(RequestRepository requests, UserRepository users, OpportunityRepository opportunities){
+    public StudentController(RequestRepository requests, UserRepository users, OpportunityRepository opportunities, Journal journal){
+        requests.checkWritable();
+        users.checkWritable();
+        opportunities.checkWritable();
         this.requests = requests;
         this.users = users;
         this.opportunities = opportunities;
+        this.journal = journal;
     }
      /**
      * Retrieves all internship opportunities in the system.
@@ -73,23 +84,26 @@ public class StudentController {
      *     <li>The application window is currently open</li>
      * </ul>
      *
+     * <p>Candidates are taken from the repository's date index of opportunities
+     * open today, so only those are checked against the remaining rules.</p>
+     *
      * @param student the student searching for opportunities
      * @return list of available {@link InternshipOpportunity}
      */
     public ArrayList<InternshipOpportunity> getAvailableOpps(Student student){
         String userId = student.getUserId();
-        String currentDate = LocalDate.now().format(DateTimeFormatter.ISO_LOCAL_DATE);
-        ArrayList<InternshipOpportunity> opportunityList = getRelevantInternshipOpportunityList(student);
-        ArrayList<InternshipOpportunity> appliedList = getAppliedInternshipOpportunityList(userId);
-        ArrayList<InternshipOpportunity> availableList = opportunityList.stream()
-            .filter(opp -> appliedList.stream().noneMatch(a ->
-                a.getInternshipTitle().equals(opp.getInternshipTitle()) &&
-                a.getCompanyName().equals(opp.getCompanyName()) &&
-                a.getDepartment().equals(opp.getDepartment())
-            ))
+        long currentDate = DateConverter.today();
+        int yearofstudy = student.getYearOfStudy();
+        Major major = student.getMajor();
+        HashSet<Integer> appliedIDs = getAppliedInternshipOpportunityList(userId).stream()
+            .map(InternshipOpportunity::getOpportunityID)
+            .collect(Collectors.toCollection(HashSet::new));
+        ArrayList<InternshipOpportunity> availableList = opportunities.getOpportunitiesOpenOn(currentDate).stream()
+            .filter(opp -> opp.getStatus() == Status.APPROVED)
+            .filter(opp -> opp.getPreferredMajor() == major)
+            .filter(opp -> yearofstudy > 2 || opp.getInternshipLevel() == InternshipOpportunity.InternshipLevel.BASIC)
+            .filter(opp -> !appliedIDs.contains(opp.getOpportunityID()))
             .filter(opp->opp.getVisible().equals(true))
-            .filter(opp->opp.getApplicationOpeningDate().compareTo(currentDate) <= 0)
-            .filter(opp->opp.getApplicationClosingDate().compareTo(currentDate) >= 0)
             .collect(Collectors.toCollection(ArrayList::new));
         return availableList;
     }
@@ -121,12 +135,10 @@ public class StudentController {
      * @return list of relevant {@link InternshipOpportunity}
      */
     public ArrayList<InternshipOpportunity> getRelevantInternshipOpportunityList(Student student){
-        ArrayList<InternshipOpportunity> opps = opportunities.getInternshipOpportunityList();
-        System.out.println(opps.size());
+        ArrayList<InternshipOpportunity> opps = opportunities.getInternshipOpportunitiesByStatus(Status.APPROVED);
         int yearofstudy = student.getYearOfStudy();
         Major major = student.getMajor();
         ArrayList<InternshipOpportunity> filteredOpps = opps.stream()
-        .filter(s->s.getStatus().equals(Status.APPROVED))
         .filter(opp -> {
             if (yearofstudy <= 2) {
                 return opp.getInternshipLevel() == InternshipOpportunity.InternshipLevel.BASIC 
@@ -147,9 +159,10 @@ public class StudentController {
      * @param opportunity the internship opportunity
      */
     public void applyInternship(Student student, InternshipOpportunity opportunity){
-        String appliedDate = LocalDate.now().format(DateTimeFormatter.ISO_LOCAL_DATE);
+        long appliedDate = DateConverter.startOfDay(DateConverter.today());
         Application studentApp = new Application(student.getUserId(), appliedDate, Application.ApplicationStatus.PENDING);
         opportunity.addApplication(studentApp);
+        journal.recordApplication(studentApp);
     }
 
     /**
@@ -167,31 +180,25 @@ public class StudentController {
      * @param userId      the student ID
      */
     public void acceptOpportunity(InternshipOpportunity opportunity, String UserId){
-        Optional<Application> application = opportunity.getApplicationList().stream()
-            .filter(app -> app.getStudentID().equals(UserId))
+        ArrayList<Application> studentApps = opportunities.getApplicationsByStudent(UserId);
+        Optional<Application> application = studentApps.stream()
+            .filter(app -> app.getOpportunity() == opportunity)
             .findFirst();
         if (application.isPresent()) {
             Application app = application.get();
             app.setApplicationStatus(Application.ApplicationStatus.ACCEPTED);
-            long acceptedCount = opportunity.getApplicationList().stream()
-                .filter(a -> a.getApplicationStatus() == ApplicationStatus.ACCEPTED)
-                .count();
-            if (acceptedCount >= opportunity.getNoOfSlots()) {
+            journal.recordApplication(app);
+            if (opportunity.getApplicationCount(ApplicationStatus.ACCEPTED) >= opportunity.getNoOfSlots()) {
                 opportunity.setStatus(InternshipOpportunity.Status.FILLED);
+                journal.recordOpportunityStatus(opportunity);
             }
         }
-        ArrayList<InternshipOpportunity> opps = getAppliedInternshipOpportunityList(UserId);
-        for(InternshipOpportunity opp:opps){
-            if(!(opp.getInternshipTitle().equals(opportunity.getInternshipTitle()) &&
-                 opp.getCompanyName().equals(opportunity.getCompanyName()) &&
-                 opp.getDepartment().equals(opportunity.getDepartment()))){
-                Optional<Application> application2 = opp.getApplicationList().stream()
-                    .filter(app -> app.getStudentID().equals(UserId))
-                    .findFirst();
-                if (application2.isPresent()) {
-                    Application app = application2.get();
-                    app.setApplicationStatus(Application.ApplicationStatus.WITHDRAWN);
-                }
+        HashSet<InternshipOpportunity> withdrawnOpps = new HashSet<>();
+        for(Application app : studentApps){
+            InternshipOpportunity opp = app.getOpportunity();
+            if(opp != opportunity && withdrawnOpps.add(opp)){
+                app.setApplicationStatus(Application.ApplicationStatus.WITHDRAWN);
+                journal.recordApplication(app);
             }
         }
     }
@@ -204,8 +211,9 @@ public class StudentController {
      * @param reason      the withdrawal reason
      */
     public void withdrawRequest(String UserID, InternshipOpportunity opportunity, String reason){
-        InternshipWithdrawalReq req = new InternshipWithdrawalReq(UserID, opportunity.getInternshipTitle(), opportunity.getCompanyName(), reason);
+        InternshipWithdrawalReq req = new InternshipWithdrawalReq(UserID, opportunity.getOpportunityID(), opportunity.getInternshipTitle(), opportunity.getCompanyName(), reason);
         requests.addInternshipWithdrawalReq(req);
+        journal.recordWithdrawalRequest(req);
     }
 
     /**
@@ -215,10 +223,9 @@ public class StudentController {
      * @return list of applied {@link InternshipOpportunity}
      */
     public ArrayList<InternshipOpportunity> getAppliedInternshipOpportunityList(String userID){
-        ArrayList<InternshipOpportunity> opps = opportunities.getInternshipOpportunityList();
-        ArrayList<InternshipOpportunity> appliedOpps = opps.stream()
-        .filter(s->s.getApplicationList().stream()
-            .anyMatch(app->app.getStudentID().equals(userID)))
+        ArrayList<InternshipOpportunity> appliedOpps = opportunities.getApplicationsByStudent(userID).stream()
+        .map(Application::getOpportunity)
+        .distinct()
         .collect(Collectors.toCollection(ArrayList::new));
         return appliedOpps;
     }
@@ -231,30 +238,38 @@ public class StudentController {
      * @return list of {@link InternshipOpportunity} matching the status
      */
     public ArrayList<InternshipOpportunity> getOppByStatus(String userId, ApplicationStatus Status){
-    ArrayList<InternshipOpportunity> opps = opportunities.getInternshipOpportunityList();
-        ArrayList<InternshipOpportunity> appliedOpps = opps.stream()
-        .filter(s->s.getApplicationList().stream()
-            .anyMatch(app->app.getStudentID().equals(userId)&&app.getApplicationStatus().equals(Status))
-            )
+        ArrayList<InternshipOpportunity> appliedOpps = opportunities.getApplicationsByStudent(userId).stream()
+        .filter(app->app.getApplicationStatus().equals(Status))
+        .map(Application::getOpportunity)
+        .distinct()
         .collect(Collectors.toCollection(ArrayList::new));
         return appliedOpps;
     }
 
     /**
-     * Saves all student-related data to persistent storage.
+     * Changes a user's password and records the change.
      *
-     * <p>This includes:
-     * <ul>
-     *     <li>Internship withdrawal requests</li>
-     *     <li>Internship opportunities</li>
-     *     <li>Student account data</li>
-     * </ul>
+     * @param user        the user whose password is changed
+     * @param newPassword the new password
+     */
+    public void changePassword(User user, String newPassword){
+        users.changePassword(user, newPassword);
+        journal.recordPassword(user);
+    }
+
+    /**
+     * Brings persistent storage up to date.
+     *
+     * <p>Every change is already queued in the {@link Journal}; this asks for the
+     * journal to be folded into the CSV files if a checkpoint is due, which happens
+     * in the background, and waits until the queued changes are on disk.</p>
+     *
+     * @throws IOException if the changes could not be written; they stay queued
+     *         and are retried in the background
      */
-    public void saveFiles(){
-        SaveFiles saveFiles = new SaveFiles();
-        saveFiles.saveInternshipWithdrawalRequests(requests);
-        saveFiles.saveInternshipOpportunityCSV(opportunities);
-        saveFiles.saveStudentCSV(users);
+    public void saveFiles() throws IOException {
+        journal.checkpointIfDue();
+        journal.sync();
     }
 
      /**
@@ -16,26 +16,44 @@ package entities;
 public class Application {
     /** The ID of the student who submitted the application. */
     private String studentID;
-    /** The date when the application was submitted (ISO-8601 format: YYYY-MM-DD). */
-    private String appliedDateTime;
+    /** When the application was submitted, in epoch milliseconds, or {@link Long#MIN_VALUE} if unknown. */
+    private long appliedDateTime;
     /**
      * Represents the status of a student's internship application.
      */
     public enum ApplicationStatus {PENDING, REJECTED, SUCCESSFUL, ACCEPTED, WITHDRAWN};
     private ApplicationStatus applicationStatus;
+    /** The opportunity this application was submitted to, set when it is added to that opportunity. */
+    private InternshipOpportunity opportunity;
+    /** Position of this application in its opportunity's application list, or -1 until it is added. */
+    private int applicationIndex = -1;
     /**
      * Constructs a new Application instance.
      *
      * @param studentID          the ID of the student applying
-     * @param appliedDateTime    the date the application was submitted (YYYY-MM-DD)
+     * @param appliedDateTime    when the application was submitted, in epoch milliseconds
      * @param applicationStatus  the initial status of the application
      */
-    public Application(String studentID, String appliedDateTime, ApplicationStatus applicationStatus){
+    public Application(String studentID, long appliedDateTime, ApplicationStatus applicationStatus){
         this.studentID = studentID;
         this.appliedDateTime = appliedDateTime;
         this.applicationStatus = applicationStatus;
     }
 
+    /**
+     * Constructs an application as it was stored, at a known position in its
+     * opportunity's application list.
+     *
+     * @param studentID          the ID of the student applying
+     * @param appliedDateTime    when the application was submitted, in epoch milliseconds
+     * @param applicationStatus  the stored status of the application
+     * @param applicationIndex   the application's position in its opportunity's list
+     */
+    public Application(String studentID, long appliedDateTime, ApplicationStatus applicationStatus, int applicationIndex){
+        this(studentID, appliedDateTime, applicationStatus);
+        this.applicationIndex = applicationIndex;
+    }
+
     /**
      * Returns the ID of the student who submitted the application.
      *
@@ -46,11 +64,11 @@ public class Application {
     }
 
      /**
-     * Returns the date when the student applied.
+     * Returns when the student applied.
      *
-     * @return the applied date (YYYY-MM-DD)
+     * @return the submission time in epoch milliseconds, or {@link Long#MIN_VALUE} if unknown
      */
-    public String getAppliedDateTime(){
+    public long getAppliedDateTime(){
         return appliedDateTime;
     }
 
@@ -64,11 +82,49 @@ public class Application {
     }
 
     /**
-     * Updates the application's status.
+     * Returns the internship opportunity this application belongs to.
+     *
+     * @return the opportunity, or {@code null} if the application has not been added to one
+     */
+    public InternshipOpportunity getOpportunity(){
+        return opportunity;
+    }
+
+    /**
+     * Returns the position of this application in its opportunity's application
+     * list. A student who applies to the same opportunity again has a second
+     * application at another position, so the position, not the student ID,
+     * identifies the application within its opportunity.
+     *
+     * @return the position, or -1 if the application has neither been added to
+     *         an opportunity nor loaded with one
+     */
+    public int getApplicationIndex(){
+        return applicationIndex;
+    }
+
+    /**
+     * Links this application to the opportunity whose application list holds it.
+     *
+     * @param opportunity      the owning opportunity
+     * @param applicationIndex the application's position in that opportunity's list
+     */
+    void setOpportunity(InternshipOpportunity opportunity, int applicationIndex){
+        this.opportunity = opportunity;
+        this.applicationIndex = applicationIndex;
+    }
+
+    /**
+     * Updates the application's status, keeping the owning opportunity's
+     * per-status counts in step.
      *
      * @param applicationStatus the new status to assign
      */
     public void setApplicationStatus(ApplicationStatus applicationStatus){
+        ApplicationStatus oldStatus = this.applicationStatus;
         this.applicationStatus = applicationStatus;
+        if (opportunity != null && oldStatus != applicationStatus) {
+            opportunity.applicationStatusChanged(oldStatus, applicationStatus);
+        }
     }
 }
@@ -20,15 +20,22 @@ import entities.InternshipOpportunity.Status;
  *     <li>Date constraints on application closing date</li>
  * </ul>
  *
- * <p>Any of these fields may be {@code null} to indicate that the user chose to skip that filter.</p>
+ * <p>Any of the status, major and level fields may be {@code null} to indicate that the
+ * user chose to skip that filter. Dates are held as epoch days; a skipped date bound is
+ * {@link #NO_EARLIEST_OPENING_DATE} or {@link #NO_LATEST_CLOSING_DATE}.</p>
  */
 
 public class Filter {
     private Status status;
     private Major major;
     private InternshipLevel level ;
-    private String earliestOpeningDate;
-    private String latestClosingDate;
+    private long earliestOpeningDate;
+    private long latestClosingDate;
+
+    /** Value of {@link #getEarliestOpeningDate()} when opening dates are not constrained. */
+    public static final long NO_EARLIEST_OPENING_DATE = Long.MIN_VALUE;
+    /** Value of {@link #getLatestClosingDate()} when closing dates are not constrained. */
+    public static final long NO_LATEST_CLOSING_DATE = Long.MAX_VALUE;
 
     /**
      * Constructs a filter with the given criteria.
@@ -36,10 +43,10 @@ public class Filter {
      * @param status               the internship status to filter by, or {@code null} if skipped
      * @param major                the preferred major to filter by, or {@code null} if skipped
      * @param level                the internship level to filter by, or {@code null} if skipped
-     * @param earliestOpeningDate  the earliest acceptable opening date (YYYY-MM-DD), or {@code null}
-     * @param latestClosingDate    the latest acceptable closing date (YYYY-MM-DD), or {@code null}
+     * @param earliestOpeningDate  the earliest acceptable opening date as an epoch day, or {@link #NO_EARLIEST_OPENING_DATE}
+     * @param latestClosingDate    the latest acceptable closing date as an epoch day, or {@link #NO_LATEST_CLOSING_DATE}
      */
-    public Filter(Status status, Major major, InternshipLevel level, String earliestOpeningDate, String latestClosingDate){
+    public Filter(Status status, Major major, InternshipLevel level, long earliestOpeningDate, long latestClosingDate){
         this.status = status;
         this.major = major;
         this.level = level;
@@ -81,18 +88,18 @@ public class Filter {
      /**
      * Returns the earliest acceptable application opening date.
      *
-     * @return the earliest opening date (YYYY-MM-DD), or {@code null}
+     * @return the earliest opening date as an epoch day, or {@link #NO_EARLIEST_OPENING_DATE}
      */
-    public String getEarliestOpeningDate() {
+    public long getEarliestOpeningDate() {
         return earliestOpeningDate;
     }
 
     /**
      * Returns the latest acceptable application closing date.
      *
-     * @return the latest closing date (YYYY-MM-DD), or {@code null}
+     * @return the latest closing date as an epoch day, or {@link #NO_LATEST_CLOSING_DATE}
      */
-    public String getLatestClosingDate() {
+    public long getLatestClosingDate() {
         return latestClosingDate;
     }
 }
@@ -1,6 +1,9 @@
 package entities;
 
 import java.util.ArrayList;
+import java.util.function.Function;
+
+import entities.Application.ApplicationStatus;
 
 /**
  * Represents an internship opportunity offered by a company in the NTU Internship System.
@@ -25,9 +28,20 @@ import java.util.ArrayList;
  *     <li>Company representative management</li>
  *     <li>Career Staff review and approval</li>
  * </ul>
+ *
+ * <p>An opportunity loaded from file may keep its applications in their stored
+ * text form until they are first needed, since most sessions only look at the
+ * applications of a few opportunities. The text is attached through
+ * {@link #addStoredApplications} and converted by the parser given with it the
+ * first time the application list, its counts or its applicants are used; the
+ * listener is then told through
+ * {@link OpportunityListener#applicationsLoaded(InternshipOpportunity)}.</p>
  */
 
 public class InternshipOpportunity{
+    /** Numeric ID of the opportunity, or 0 until the repository assigns one. */
+    private int opportunityID;
+
     /** Title of the internship opportunity. */
     private String internshipTitle;
 
@@ -55,11 +69,11 @@ public class InternshipOpportunity{
     /** The preferred major of eligible applicants. */
     private Major preferredMajor;
 
-    /** Application opening date in YYYY-MM-DD format. */
-    private String applicationOpeningDate;
+    /** Application opening date, as days since 1970-01-01, or {@link Long#MIN_VALUE} if unknown. */
+    private long applicationOpeningDate;
 
-    /** Application closing date in YYYY-MM-DD format. */
-    private String applicationClosingDate;
+    /** Application closing date, as days since 1970-01-01, or {@link Long#MIN_VALUE} if unknown. */
+    private long applicationClosingDate;
 
     /** Name of the company offering the internship. */
     private String companyName;
@@ -79,18 +93,54 @@ public class InternshipOpportunity{
     /** Indicates whether the opportunity is visible to students. */
     private Boolean visible;
 
-    /** List of applications submitted for this opportunity. */
+    /** List of applications submitted for this opportunity, or {@code null} until they are parsed. */
     private ArrayList<Application> applicationList;
 
+    /** The applications in their stored text form, or {@code null} once they have been parsed. */
+    private String serializedApplications;
+
+    /** Converts {@link #serializedApplications} into applications. */
+    private Function<String, ArrayList<Application>> applicationParser;
+
+    /** Number of applications in each {@link ApplicationStatus}, indexed by ordinal. */
+    private int[] applicationStatusCounts = new int[ApplicationStatus.values().length];
+
+    /** Listener notified of changes that affect indexing, usually the owning repository. */
+    private OpportunityListener listener;
+
+    /**
+     * Constructs a new InternshipOpportunity with all required fields and no ID.
+     * An ID is assigned when the opportunity is added to an
+     * {@link repositories.OpportunityRepository}.
+     *
+     * @param internshipTitle          the title of the internship role
+     * @param description              a detailed description of the role
+     * @param internshipLevel          the level of the internship
+     * @param preferredMajor           the preferred major of applicants
+     * @param applicationOpeningDate   the date applications open, as an epoch day
+     * @param applicationClosingDate   the date applications close, as an epoch day
+     * @param companyName              the name of the offering company
+     * @param department               the department offering the internship
+     * @param companyRep               the user ID of the representative in charge
+     * @param noOfSlots                number of internship slots available
+     * @param status                   the approval status of the opportunity
+     * @param visible                  whether the opportunity is visible to students
+     * @param applicationList          the list of student applications
+     */
+    public InternshipOpportunity(String internshipTitle, String description, InternshipLevel internshipLevel, Major preferredMajor, long applicationOpeningDate,long applicationClosingDate,String companyName,String department,String companyRep,int noOfSlots, Status status, boolean visible, ArrayList<Application> applicationList) {
+        this(0, internshipTitle, description, internshipLevel, preferredMajor, applicationOpeningDate, applicationClosingDate, companyName, department, companyRep, noOfSlots, status, visible, applicationList);
+    }
+
     /**
      * Constructs a new InternshipOpportunity with all required fields.
      *
+     * @param opportunityID            the numeric ID of the opportunity, or 0 to have one assigned
      * @param internshipTitle          the title of the internship role
      * @param description              a detailed description of the role
      * @param internshipLevel          the level of the internship
      * @param preferredMajor           the preferred major of applicants
-     * @param applicationOpeningDate   the date applications open (YYYY-MM-DD)
-     * @param applicationClosingDate   the date applications close (YYYY-MM-DD)
+     * @param applicationOpeningDate   the date applications open, as an epoch day
+     * @param applicationClosingDate   the date applications close, as an epoch day
      * @param companyName              the name of the offering company
      * @param department               the department offering the internship
      * @param companyRep               the user ID of the representative in charge
@@ -99,7 +149,8 @@ public class InternshipOpportunity{
      * @param visible                  whether the opportunity is visible to students
      * @param applicationList          the list of student applications
      */
-    public InternshipOpportunity(String internshipTitle, String description, InternshipLevel internshipLevel, Major preferredMajor, String applicationOpeningDate,String applicationClosingDate,String companyName,String department,String companyRep,int noOfSlots, Status status, boolean visible, ArrayList<Application> applicationList) {
+    public InternshipOpportunity(int opportunityID, String internshipTitle, String description, InternshipLevel internshipLevel, Major preferredMajor, long applicationOpeningDate,long applicationClosingDate,String companyName,String department,String companyRep,int noOfSlots, Status status, boolean visible, ArrayList<Application> applicationList) {
+        this.opportunityID = opportunityID;
         this.internshipTitle = internshipTitle;
         this.description = description;
         this.internshipLevel = internshipLevel;
@@ -112,7 +163,39 @@ public class InternshipOpportunity{
         this.noOfSlots = noOfSlots;
         this.status = status;
         this.visible = visible;
+        setApplications(applicationList);
+    }
+
+    private void setApplications(ArrayList<Application> applicationList){
         this.applicationList = applicationList;
+        for (int i = 0; i < applicationList.size(); i++) {
+            Application application = applicationList.get(i);
+            application.setOpportunity(this, i);
+            applicationStatusCounts[application.getApplicationStatus().ordinal()]++;
+        }
+    }
+
+    /** @return the application list, parsing the stored applications first if necessary */
+    private ArrayList<Application> applications(){
+        if (applicationList == null) {
+            setApplications(applicationParser.apply(serializedApplications));
+            serializedApplications = null;
+            applicationParser = null;
+            if (listener != null) {
+                listener.applicationsLoaded(this);
+            }
+        }
+        return applicationList;
+    }
+
+    /** @return the numeric ID of the opportunity, or 0 if none has been assigned */
+    public int getOpportunityID() {
+        return opportunityID;
+    }
+
+    /** @param opportunityID the ID assigned by the repository storing this opportunity */
+    public void setOpportunityID(int opportunityID) {
+        this.opportunityID = opportunityID;
     }
 
     /** @return the title of the internship opportunity */
@@ -123,6 +206,9 @@ public class InternshipOpportunity{
     /** @param internshipTitle new title for the opportunity */
     public void setInternshipTitle(String internshipTitle) {
         this.internshipTitle = internshipTitle;
+        if (listener != null) {
+            listener.detailsChanged(this);
+        }
     }
 
     /** @return the role description */
@@ -133,6 +219,9 @@ public class InternshipOpportunity{
     /** @param description updates the role description */
     public void setDescription(String description) {
         this.description = description;
+        if (listener != null) {
+            listener.detailsChanged(this);
+        }
     }
 
     /** @return the internship experience level */
@@ -142,7 +231,11 @@ public class InternshipOpportunity{
 
     /** @param internshipLevel updates the internship level */
     public void setInternshipLevel(InternshipLevel internshipLevel) {
+        InternshipLevel oldLevel = this.internshipLevel;
         this.internshipLevel = internshipLevel;
+        if (listener != null && oldLevel != internshipLevel) {
+            listener.internshipLevelChanged(this, oldLevel);
+        }
     }
 
     /** @return the preferred major for applicants */
@@ -152,27 +245,39 @@ public class InternshipOpportunity{
 
     /** @param preferredMajor updates the preferred major */
     public void setPreferredMajor(Major preferredMajor) {
+        Major oldMajor = this.preferredMajor;
         this.preferredMajor = preferredMajor;
+        if (listener != null && oldMajor != preferredMajor) {
+            listener.preferredMajorChanged(this, oldMajor);
+        }
     }
 
-    /** @return the application opening date */
-    public String getApplicationOpeningDate() {
+    /** @return the application opening date, as an epoch day */
+    public long getApplicationOpeningDate() {
         return applicationOpeningDate;
     }
 
-    /** @param applicationOpeningDate updates the opening date */
-    public void setApplicationOpeningDate(String applicationOpeningDate) {
+    /** @param applicationOpeningDate updates the opening date, given as an epoch day */
+    public void setApplicationOpeningDate(long applicationOpeningDate) {
+        long oldOpeningDate = this.applicationOpeningDate;
         this.applicationOpeningDate = applicationOpeningDate;
+        if (listener != null && oldOpeningDate != applicationOpeningDate) {
+            listener.openingDateChanged(this, oldOpeningDate);
+        }
     }
 
-    /** @return the application closing date */
-    public String getApplicationClosingDate() {
+    /** @return the application closing date, as an epoch day */
+    public long getApplicationClosingDate() {
         return applicationClosingDate;
     }
 
-     /** @param applicationClosingDate updates the closing date */
-    public void setApplicationClosingDate(String applicationClosingDate) {
+     /** @param applicationClosingDate updates the closing date, given as an epoch day */
+    public void setApplicationClosingDate(long applicationClosingDate) {
+        long oldClosingDate = this.applicationClosingDate;
         this.applicationClosingDate = applicationClosingDate;
+        if (listener != null && oldClosingDate != applicationClosingDate) {
+            listener.closingDateChanged(this, oldClosingDate);
+        }
     }
 
     /** @return the company name */
@@ -188,6 +293,9 @@ public class InternshipOpportunity{
     /** @param department updates the department */
     public void setDepartment(String department) {
         this.department = department;
+        if (listener != null) {
+            listener.detailsChanged(this);
+        }
     }
 
     /** @return the company representative's user ID */
@@ -195,6 +303,20 @@ public class InternshipOpportunity{
         return companyRepInCharge;
     }
 
+    /** @param companyRepInCharge reassigns the opportunity to another company representative */
+    public void setCompanyRepInCharge(String companyRepInCharge) {
+        String oldCompanyRep = this.companyRepInCharge;
+        this.companyRepInCharge = companyRepInCharge;
+        if (listener != null && !oldCompanyRep.equals(companyRepInCharge)) {
+            listener.companyRepChanged(this, oldCompanyRep);
+        }
+    }
+
+    /** @param listener the listener to notify of changes, or {@code null} to stop notifications */
+    public void setListener(OpportunityListener listener) {
+        this.listener = listener;
+    }
+
      /** @return total number of available slots */
     public int getNoOfSlots() {
         return noOfSlots;
@@ -203,6 +325,9 @@ public class InternshipOpportunity{
     /** @param noOfSlots updates the number of slots */
     public void setNoOfSlots(int noOfSlots) {
         this.noOfSlots = noOfSlots;
+        if (listener != null) {
+            listener.detailsChanged(this);
+        }
     }
 
     /** @return the current approval or filled status */
@@ -215,19 +340,60 @@ public class InternshipOpportunity{
         return visible;
     }
 
-     /** @return visibility of the opportunity */
+    /** @return the applications submitted for this opportunity, parsing them first if they are still stored as text */
     public ArrayList<Application> getApplicationList() {
-        return applicationList;
+        return applications();
+    }
+
+    /** @return {@code true} once the applications have been parsed, or if they were never stored as text */
+    public boolean isApplicationListLoaded() {
+        return applicationList != null;
+    }
+
+    /**
+     * Returns the applications in the stored text form they were loaded with, so
+     * that they can be written back without being parsed.
+     *
+     * @return the stored applications, or {@code null} if they have been parsed
+     */
+    public String getSerializedApplications() {
+        return serializedApplications;
+    }
+
+    /**
+     * Checks whether a student might have applied to this opportunity, without
+     * parsing applications that are still stored as text.
+     *
+     * @param studentID the User ID of the student
+     * @return {@code false} only if the student has certainly not applied
+     */
+    public boolean mayHaveApplicationFrom(String studentID) {
+        if (applicationList == null) {
+            return serializedApplications.contains(studentID);
+        }
+        for (Application application : applicationList) {
+            if (application.getStudentID().equals(studentID)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /** @param status updates the opportunity status */
     public void setStatus(Status status) {
+        Status oldStatus = this.status;
         this.status = status;
+        if (listener != null && oldStatus != status) {
+            listener.statusChanged(this, oldStatus);
+        }
     }
 
     /** @param noOfSlots alias to update slot count */
     public void setSlots(int noOfSlots){
         this.noOfSlots=noOfSlots;
+        if (listener != null) {
+            listener.detailsChanged(this);
+        }
     }
 
      /**
@@ -241,6 +407,54 @@ public class InternshipOpportunity{
         else{
             visible = true;
         }
+        if (listener != null) {
+            listener.detailsChanged(this);
+        }
+    }
+
+    /**
+     * Adds applications held in their stored text form, such as this
+     * opportunity's rows of the applications file.
+     *
+     * <p>If the opportunity has no applications yet, the text is kept as it is and
+     * only parsed when the applications are first needed; the listener is told
+     * through {@link OpportunityListener#storedApplicationsAdded(InternshipOpportunity)}.
+     * If its applications are still stored as text, the new text is added after
+     * it, since later rows are applied over earlier ones when it is parsed, and
+     * the listener is told again. Otherwise the text is parsed straight away and applied over the existing
+     * applications by position: a stored application at a position the list
+     * already holds updates the status of the application there, one at the next
+     * free position is added to the end of the list, and one beyond it is
+     * dropped.</p>
+     *
+     * @param serializedApplications the applications as stored
+     * @param applicationParser      converts the stored applications into a list
+     */
+    public void addStoredApplications(String serializedApplications, Function<String, ArrayList<Application>> applicationParser){
+        if (applicationList != null && applicationList.isEmpty()) {
+            this.applicationList = null;
+            this.serializedApplications = serializedApplications;
+            this.applicationParser = applicationParser;
+            if (listener != null) {
+                listener.storedApplicationsAdded(this);
+            }
+            return;
+        }
+        if (applicationList == null) {
+            this.serializedApplications += serializedApplications;
+            if (listener != null) {
+                listener.storedApplicationsAdded(this);
+            }
+            return;
+        }
+        for (Application stored : applicationParser.apply(serializedApplications)) {
+            int index = stored.getApplicationIndex();
+            if (index < applications().size()) {
+                applications().get(index).setApplicationStatus(stored.getApplicationStatus());
+            } else if (index == applications().size()) {
+                addApplication(stored);
+            }
+        }
     }
 
     /**
@@ -249,6 +463,55 @@ public class InternshipOpportunity{
      * @param application the application to add
      */
     public void addApplication(Application application){
-        applicationList.add(application);
+        application.setOpportunity(this, applications().size());
+        applications().add(application);
+        applicationStatusCounts[application.getApplicationStatus().ordinal()]++;
+        if (listener != null) {
+            listener.applicationAdded(this, application);
+        }
+    }
+
+    /**
+     * Returns how many applications to this opportunity currently have the given status.
+     *
+     * @param applicationStatus the status to count
+     * @return the number of applications with that status
+     */
+    public int getApplicationCount(ApplicationStatus applicationStatus){
+        applications();
+        return applicationStatusCounts[applicationStatus.ordinal()];
+    }
+
+    /**
+     * Returns the applications to this opportunity that currently have the given
+     * status, in the order they were submitted. The application list is not
+     * scanned when no application has that status.
+     *
+     * @param applicationStatus the status to look for
+     * @return the matching applications
+     */
+    public ArrayList<Application> getApplicationsWithStatus(ApplicationStatus applicationStatus){
+        int count = getApplicationCount(applicationStatus);
+        ArrayList<Application> matches = new ArrayList<>(count);
+        if (count == 0) {
+            return matches;
+        }
+        for (Application application : applications()) {
+            if (application.getApplicationStatus() == applicationStatus) {
+                matches.add(application);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Moves one application between status counters after its status changes.
+     *
+     * @param oldStatus the status the application had
+     * @param newStatus the status the application has now
+     */
+    void applicationStatusChanged(ApplicationStatus oldStatus, ApplicationStatus newStatus){
+        applicationStatusCounts[oldStatus.ordinal()]--;
+        applicationStatusCounts[newStatus.ordinal()]++;
     }
 }
@@ -10,6 +10,7 @@ package entities;
  * <p>Each withdrawal request contains:</p>
  * <ul>
  *     <li>The user ID of the student requesting withdrawal</li>
+ *     <li>The ID of the internship opportunity</li>
  *     <li>The title of the internship</li>
  *     <li>The name of the company offering the internship</li>
  *     <li>The student's reason for withdrawing</li>
@@ -17,6 +18,7 @@ package entities;
  */
 public class InternshipWithdrawalReq{
     private String userID;
+    private int opportunityID;
     private String internshipTitle;
     private String companyName;
     private String withdrawalReason;
@@ -24,12 +26,14 @@ public class InternshipWithdrawalReq{
      * Constructs a new internship withdrawal request.
      *
      * @param userID            the ID of the student requesting withdrawal
+     * @param opportunityID     the ID of the internship opportunity
      * @param internshipTitle   the title of the internship
      * @param companyName       the name of the company offering the internship
      * @param withdrawalReason  the reason for withdrawing the application
      */
-    public InternshipWithdrawalReq(String userID, String internshipTitle, String companyName, String withdrawalReason){
+    public InternshipWithdrawalReq(String userID, int opportunityID, String internshipTitle, String companyName, String withdrawalReason){
         this.userID = userID;
+        this.opportunityID = opportunityID;
         this.internshipTitle = internshipTitle;
         this.companyName = companyName;
         this.withdrawalReason = withdrawalReason;
@@ -42,6 +46,14 @@ public class InternshipWithdrawalReq{
     public String getUserID(){
         return userID;
     }
+    /**
+     * Returns the ID of the internship opportunity being withdrawn from.
+     *
+     * @return the opportunity ID
+     */
+    public int getOpportunityID(){
+        return opportunityID;
+    }
     /**
      * Returns the title of the internship being withdrawn from.
      *
@@ -0,0 +1,95 @@
+package entities;
+
+/**
+ * Receives notifications when an {@link InternshipOpportunity} changes in a way
+ * that affects how it is indexed.
+ *
+ * <p>An opportunity holds at most one listener, normally the
+ * {@link repositories.OpportunityRepository} that stores it, so that the
+ * repository's lookup structures stay in step with changes made directly on the
+ * entity by controllers and views. Changes to fields that are not indexed are
+ * reported through {@link #detailsChanged(InternshipOpportunity)} so the
+ * repository still knows the opportunity needs saving.</p>
+ */
+public interface OpportunityListener {
+    /**
+     * Called after the company representative in charge of an opportunity changes.
+     *
+     * @param opportunity   the opportunity that was reassigned
+     * @param oldCompanyRep the user ID of the previous representative in charge
+     */
+    void companyRepChanged(InternshipOpportunity opportunity, String oldCompanyRep);
+
+    /**
+     * Called after the approval status of an opportunity changes.
+     *
+     * @param opportunity the opportunity whose status changed
+     * @param oldStatus   the status the opportunity had before the change
+     */
+    void statusChanged(InternshipOpportunity opportunity, InternshipOpportunity.Status oldStatus);
+
+    /**
+     * Called after the preferred major of an opportunity changes.
+     *
+     * @param opportunity the opportunity that was edited
+     * @param oldMajor    the preferred major before the change
+     */
+    void preferredMajorChanged(InternshipOpportunity opportunity, InternshipOpportunity.Major oldMajor);
+
+    /**
+     * Called after the internship level of an opportunity changes.
+     *
+     * @param opportunity the opportunity that was edited
+     * @param oldLevel    the internship level before the change
+     */
+    void internshipLevelChanged(InternshipOpportunity opportunity, InternshipOpportunity.InternshipLevel oldLevel);
+
+    /**
+     * Called after the application opening date of an opportunity changes.
+     *
+     * @param opportunity    the opportunity that was edited
+     * @param oldOpeningDate the opening date before the change, as an epoch day
+     */
+    void openingDateChanged(InternshipOpportunity opportunity, long oldOpeningDate);
+
+    /**
+     * Called after the application closing date of an opportunity changes.
+     *
+     * @param opportunity    the opportunity that was edited
+     * @param oldClosingDate the closing date before the change, as an epoch day
+     */
+    void closingDateChanged(InternshipOpportunity opportunity, long oldClosingDate);
+
+    /**
+     * Called after a new application is added to an opportunity.
+     *
+     * @param opportunity the opportunity that received the application
+     * @param application the application that was added
+     */
+    void applicationAdded(InternshipOpportunity opportunity, Application application);
+
+    /**
+     * Called after applications in stored text form are added to an opportunity
+     * that had none, to be parsed when they are first needed. This is not a change
+     * to the opportunity.
+     *
+     * @param opportunity the opportunity whose applications are now stored as text
+     */
+    void storedApplicationsAdded(InternshipOpportunity opportunity);
+
+    /**
+     * Called after the applications of an opportunity, stored as text until then,
+     * have been parsed. This is not a change to the opportunity.
+     *
+     * @param opportunity the opportunity whose applications are now available
+     */
+    void applicationsLoaded(InternshipOpportunity opportunity);
+
+    /**
+     * Called after a field that is not indexed, such as the title, slot count or
+     * visibility, is set.
+     *
+     * @param opportunity the opportunity that was edited
+     */
+    void detailsChanged(InternshipOpportunity opportunity);
+}
@@ -0,0 +1,191 @@
+package repositories;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import entities.User;
+
+/**
+ * One group of users kept on disk in a {@link KeyedRowFile}, with a bounded
+ * least-recently-used cache of the users looked up from it.
+ *
+ * <p>A user is parsed from its row the first time it is looked up, and kept in
+ * the cache until the estimated size of the cached users exceeds the memory
+ * budget, when the least recently used are dropped. A user who is changed, or
+ * added after the file was built, is pinned in memory instead, and is never
+ * dropped: the file is not rewritten, so the pinned object is the only copy of
+ * the change until the next checkpoint. Users are small, so their size is
+ * estimated from the length of their row.</p>
+ *
+ * <p>Lookups update the cache, so every method is synchronized.</p>
+ *
+ * @param <T> the type of user in the group
+ */
+final class DiskUserGroup<T extends User> {
+    /**
+     * Estimated bytes taken by a cached user and its cache entry, on top of one
+     * per character of its row, as most fields are stored one byte per character.
+     */
+    private static final int USER_OVERHEAD_BYTES = 400;
+
+    private final long budgetBytes;
+    private KeyedRowFile file;
+    private Function<String, T> parser;
+    /** Users parsed from the file, least recently used first. */
+    private final LinkedHashMap<String, CachedUser<T>> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedBytes = 0;
+    /** Users changed or added since the file was built, keyed by User ID. */
+    private final HashMap<String, T> pinned = new HashMap<>();
+    /** Changed users, keyed by the position of the row they replace. */
+    private final HashMap<Integer, T> replacedRows = new HashMap<>();
+    /** Users added since the file was built, in the order they were added. */
+    private final ArrayList<T> added = new ArrayList<>();
+
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    private static final class CachedUser<T> {
+        private final T user;
+        private final int ordinal;
+        private final long bytes;
+
+        private CachedUser(T user, int ordinal, long bytes){
+            this.user = user;
+            this.ordinal = ordinal;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * @param budgetBytes the most memory the cache may take, in bytes
+     */
+    DiskUserGroup(long budgetBytes){
+        this.budgetBytes = budgetBytes;
+    }
+
+    /**
+     * Replaces the group's users with the rows of a table.
+     *
+     * @param content   the table's header line and rows
+     * @param keyColumn the position of the User ID among a row's fields
+     * @param parser    converts a row into a user
+     * @throws IOException if the file cannot be written
+     */
+    synchronized void load(ByteBuffer content, int keyColumn, Function<String, T> parser) throws IOException {
+        close();
+        file = KeyedRowFile.build(content, keyColumn);
+        this.parser = parser;
+    }
+
+    synchronized T find(String userID){
+        T user = pinned.get(userID);
+        if (user != null) {
+            hits++;
+            return user;
+        }
+        CachedUser<T> cached = cache.get(userID);
+        if (cached != null) {
+            hits++;
+            return cached.user;
+        }
+        misses++;
+        KeyedRowFile.Row row = file == null ? null : file.find(userID);
+        if (row == null) {
+            return null;
+        }
+        user = parser.apply(row.text);
+        cached = new CachedUser<>(user, row.ordinal, USER_OVERHEAD_BYTES + (long) row.text.length());
+        cache.put(userID, cached);
+        cachedBytes += cached.bytes;
+        Iterator<CachedUser<T>> eldest = cache.values().iterator();
+        while (cachedBytes > budgetBytes && eldest.hasNext()) {
+            cachedBytes -= eldest.next().bytes;
+            eldest.remove();
+            evictions++;
+        }
+        return user;
+    }
+
+    synchronized void add(T user){
+        added.add(user);
+        String userID = user.getUserId();
+        if (!pinned.containsKey(userID) && !cache.containsKey(userID) && (file == null || file.find(userID) == null)) {
+            pinned.put(userID, user);
+        }
+    }
+
+    /**
+     * Pins a user who has been changed, so the change is kept.
+     *
+     * @param user the changed user, as returned by {@link #find} or added
+     */
+    synchronized void changed(T user){
+        String userID = user.getUserId();
+        if (pinned.get(userID) == user || added.contains(user)) {
+            return;
+        }
+        CachedUser<T> cached = cache.remove(userID);
+        int ordinal;
+        if (cached != null) {
+            cachedBytes -= cached.bytes;
+            ordinal = cached.ordinal;
+        } else {
+            // Dropped from the cache while its caller held on to it.
+            KeyedRowFile.Row row = file == null ? null : file.find(userID);
+            if (row == null) return;
+            ordinal = row.ordinal;
+        }
+        pinned.put(userID, user);
+        replacedRows.put(ordinal, user);
+    }
+
+    synchronized int size(){
+        return (file == null ? 0 : file.size()) + added.size();
+    }
+
+    /**
+     * Passes every user to the consumer, in the order they were loaded and then
+     * added. Users that are not pinned are parsed for the call and not cached.
+     */
+    synchronized void forEach(Consumer<? super T> consumer){
+        if (file != null) {
+            file.forEach((row, ordinal) -> {
+                T user = replacedRows.get(ordinal);
+                consumer.accept(user != null ? user : parser.apply(row));
+            });
+        }
+        added.forEach(consumer);
+    }
+
+    /**
+     * Summarises how the cache has performed.
+     *
+     * @param name the name of the group, for the summary
+     * @return a one-line summary
+     */
+    synchronized String getStatistics(String name){
+        long lookups = hits + misses;
+        return String.format("%s: %d on disk, %d lookups, %d hits (%.1f%%), %d misses, %d evicted, %d cached in %d of %d KB, %d pinned",
+            name, file == null ? 0 : file.size(), lookups, hits, lookups == 0 ? 0 : 100.0 * hits / lookups, misses, evictions,
+            cache.size(), cachedBytes / 1024, budgetBytes / 1024, pinned.size());
+    }
+
+    /** Deletes the group's file and forgets its users. */
+    synchronized void close(){
+        if (file != null) {
+            file.delete();
+            file = null;
+        }
+        cache.clear();
+        cachedBytes = 0;
+        pinned.clear();
+        replacedRows.clear();
+        added.clear();
+    }
+}
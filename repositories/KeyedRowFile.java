@@ -0,0 +1,308 @@
+package repositories;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * A read-only file of CSV rows, each found by its key field through an index
+ * of hash-bucketed pages.
+ *
+ * <p>The file is built once from a table's contents, so the rows take up disk
+ * rather than heap. As the rows include passwords, it is created in the data
+ * directory rather than the shared temporary directory, readable only by its
+ * owner where the file system supports it, and opened to be deleted as soon as
+ * it has been mapped; a file left behind by a process that was killed while
+ * building one is removed by {@link #deleteStaleFiles()}. It starts with the index:
+ * {@code bucketCount} pages of {@link #PAGE_SIZE} bytes, each holding an entry
+ * count followed by up to {@link #ENTRIES_PER_PAGE} entries of
+ * {@code int keyHash, int ordinal, long offset, int length}. The rows follow,
+ * in table order, as they were in the table. A row's bucket is chosen by the
+ * hash of its key; buckets are sized for half a page each, so in practice a
+ * lookup reads one index page and one row. Entries that do not fit in their
+ * bucket's page are kept in memory instead.</p>
+ *
+ * <p>Both parts of the file are memory-mapped, so the operating system decides
+ * how much of it stays in memory. Reads do not change the file and may be made
+ * from several threads at once.</p>
+ */
+final class KeyedRowFile {
+    /** Size of one index page, in bytes. */
+    static final int PAGE_SIZE = 4096;
+    private static final int HEADER_SIZE = Integer.BYTES;
+    private static final int ENTRY_SIZE = 3 * Integer.BYTES + Long.BYTES;
+    private static final int ENTRIES_PER_PAGE = (PAGE_SIZE - HEADER_SIZE) / ENTRY_SIZE;
+    /** Directory the files are created in, alongside the tables they are built from. */
+    private static final Path DIRECTORY = Paths.get("data");
+    private static final String PREFIX = "users";
+    private static final String SUFFIX = ".rows";
+    /** Whether this process has already removed files left behind by earlier ones. */
+    private static final AtomicBoolean staleFilesDeleted = new AtomicBoolean(false);
+    /** Permissions of a new file, where the file system has them: read and write by its owner only. */
+    private static final FileAttribute<?> OWNER_ONLY = PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------"));
+
+    private final Path path;
+    private final int bucketCount;
+    private final int rowCount;
+    private final MappedByteBuffer index;
+    private final MappedByteBuffer rows;
+    /** Position of the key among a row's fields. */
+    private final int keyColumn;
+    /** Entries that did not fit in their bucket's page, keyed by bucket, in table order. */
+    private final HashMap<Integer, ArrayList<long[]>> overflow = new HashMap<>();
+
+    /** A row found in the file, with its position among the rows. */
+    static final class Row {
+        final int ordinal;
+        final String text;
+
+        private Row(int ordinal, String text){
+            this.ordinal = ordinal;
+            this.text = text;
+        }
+    }
+
+    private KeyedRowFile(Path path, int bucketCount, int rowCount, MappedByteBuffer index, MappedByteBuffer rows, int keyColumn){
+        this.path = path;
+        this.bucketCount = bucketCount;
+        this.rowCount = rowCount;
+        this.index = index;
+        this.rows = rows;
+        this.keyColumn = keyColumn;
+    }
+
+    /**
+     * Removes files left behind by a process that stopped while building one.
+     * Only the first call in a process does anything, so it must be made before
+     * this process builds a file of its own.
+     */
+    static void deleteStaleFiles(){
+        if (!staleFilesDeleted.compareAndSet(false, true) || !Files.isDirectory(DIRECTORY)) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(DIRECTORY, PREFIX + "*" + SUFFIX)) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Writes a table's rows to a new file and indexes them by one of their fields.
+     *
+     * @param content   the table's header line and rows, positioned at its start
+     * @param keyColumn the position of the key among a row's fields, from {@code 0}
+     * @return the file
+     * @throws IOException if the file cannot be written
+     */
+    static KeyedRowFile build(ByteBuffer content, int keyColumn) throws IOException {
+        int size = content.limit();
+        int start = lineEnd(content, 0, size);
+        int rowCount = 0;
+        for (int p = start; p < size; p = lineEnd(content, p, size)) {
+            rowCount++;
+        }
+        int bucketCount = Math.max(1, rowCount / (ENTRIES_PER_PAGE / 2) + 1);
+        long indexSize = (long) bucketCount * PAGE_SIZE;
+        if (indexSize > Integer.MAX_VALUE) {
+            throw new IOException("Too many rows to index: " + rowCount);
+        }
+        deleteStaleFiles();
+        Path path = DIRECTORY.getFileSystem().supportedFileAttributeViews().contains("posix")
+            ? Files.createTempFile(DIRECTORY, PREFIX, SUFFIX, OWNER_ONLY)
+            : Files.createTempFile(DIRECTORY, PREFIX, SUFFIX);
+        KeyedRowFile file;
+        // The mappings stay usable once the channel has closed and the file's name is gone.
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE)) {
+            ByteBuffer body = content.duplicate().position(start).limit(size);
+            long position = indexSize;
+            while (body.hasRemaining()) {
+                position += channel.write(body, position);
+            }
+            MappedByteBuffer index = channel.map(FileChannel.MapMode.READ_WRITE, 0, indexSize);
+            MappedByteBuffer rows = channel.map(FileChannel.MapMode.READ_ONLY, indexSize, size - start);
+            file = new KeyedRowFile(path, bucketCount, rowCount, index, rows, keyColumn);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(path);
+            throw e;
+        }
+        int ordinal = 0;
+        for (int p = start; p < size; ordinal++) {
+            int end = lineEnd(content, p, size);
+            String key = keyOf(decode(content, p, trimmedEnd(content, p, end)), keyColumn);
+            file.addEntry(key.hashCode(), ordinal, p - start, trimmedEnd(content, p, end) - p);
+            p = end;
+        }
+        return file;
+    }
+
+    /** @return the number of rows */
+    int size(){
+        return rowCount;
+    }
+
+    /**
+     * Finds the first row whose key field is the given key.
+     *
+     * @param key the key
+     * @return the row, or {@code null} if there is none
+     */
+    Row find(String key){
+        int hash = key.hashCode();
+        int bucket = Math.floorMod(hash, bucketCount);
+        int base = bucket * PAGE_SIZE;
+        int count = index.getInt(base);
+        for (int i = 0; i < count; i++) {
+            int entry = base + HEADER_SIZE + i * ENTRY_SIZE;
+            if (index.getInt(entry) == hash) {
+                Row row = matchingRow(key, index.getInt(entry + 4), index.getLong(entry + 8), index.getInt(entry + 16));
+                if (row != null) return row;
+            }
+        }
+        for (long[] entry : overflow.getOrDefault(bucket, new ArrayList<>())) {
+            if ((int) entry[0] == hash) {
+                Row row = matchingRow(key, (int) entry[1], entry[2], (int) entry[3]);
+                if (row != null) return row;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Passes every row, in table order, to the consumer, together with its
+     * position among the rows.
+     *
+     * @param consumer receives each row and its ordinal
+     */
+    void forEach(ObjIntConsumer<String> consumer){
+        int size = rows.limit();
+        int ordinal = 0;
+        for (int p = 0; p < size; ordinal++) {
+            int end = lineEnd(rows, p, size);
+            consumer.accept(decode(rows, p, trimmedEnd(rows, p, end)), ordinal);
+            p = end;
+        }
+    }
+
+    /**
+     * Deletes the file, if the file system has not already done so when it was
+     * closed. It must not be used afterwards.
+     */
+    void delete(){
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void addEntry(int hash, int ordinal, long offset, int length){
+        int bucket = Math.floorMod(hash, bucketCount);
+        int base = bucket * PAGE_SIZE;
+        int count = index.getInt(base);
+        if (count == ENTRIES_PER_PAGE) {
+            overflow.computeIfAbsent(bucket, b -> new ArrayList<>()).add(new long[] {hash, ordinal, offset, length});
+            return;
+        }
+        int entry = base + HEADER_SIZE + count * ENTRY_SIZE;
+        index.putInt(entry, hash);
+        index.putInt(entry + 4, ordinal);
+        index.putLong(entry + 8, offset);
+        index.putInt(entry + 16, length);
+        index.putInt(base, count + 1);
+    }
+
+    private Row matchingRow(String key, int ordinal, long offset, int length){
+        String text = decode(rows, (int) offset, (int) offset + length);
+        return key.equals(keyOf(text, keyColumn)) ? new Row(ordinal, text) : null;
+    }
+
+    /**
+     * Reads one field of a CSV row. Fields may be quoted, with doubled quotes
+     * standing for one.
+     *
+     * @param row    the row
+     * @param column the position of the field, from {@code 0}
+     * @return the field, or an empty string if the row has too few fields
+     */
+    private static String keyOf(String row, int column){
+        int i = 0;
+        for (int field = 0; field < column && i <= row.length(); field++) {
+            i = fieldEnd(row, i) + 1;
+        }
+        if (i > row.length()) {
+            return "";
+        }
+        if (i == row.length() || row.charAt(i) != '"') {
+            int comma = row.indexOf(',', i);
+            return row.substring(i, comma < 0 ? row.length() : comma);
+        }
+        StringBuilder key = new StringBuilder();
+        for (i++; i < row.length(); i++) {
+            char c = row.charAt(i);
+            if (c == '"') {
+                if (i + 1 < row.length() && row.charAt(i + 1) == '"') {
+                    key.append('"');
+                    i++;
+                } else {
+                    break;
+                }
+            } else {
+                key.append(c);
+            }
+        }
+        return key.toString();
+    }
+
+    /** Returns the position of the comma ending the field that starts at {@code start}, or the row's length. */
+    private static int fieldEnd(String row, int start){
+        boolean quoted = false;
+        for (int i = start; i < row.length(); i++) {
+            char c = row.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (c == ',' && !quoted) {
+                return i;
+            }
+        }
+        return row.length();
+    }
+
+    /** Returns the position just after the next line feed at or after {@code from}, or {@code size}. */
+    private static int lineEnd(ByteBuffer buffer, int from, int size){
+        for (int i = from; i < size; i++) {
+            if (buffer.get(i) == '\n') {
+                return i + 1;
+            }
+        }
+        return size;
+    }
+
+    /** Returns the end of a line without its line feed and any carriage return before it. */
+    private static int trimmedEnd(ByteBuffer buffer, int start, int end){
+        if (end > start && buffer.get(end - 1) == '\n') end--;
+        if (end > start && buffer.get(end - 1) == '\r') end--;
+        return end;
+    }
+
+    private static String decode(ByteBuffer buffer, int start, int end){
+        byte[] bytes = new byte[end - start];
+        buffer.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -1,12 +1,21 @@
 package repositories;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.TreeMap;
 
+import entities.Application;
 import entities.Filter;
 import entities.InternshipOpportunity;
+import entities.OpportunityListener;
+import entities.InternshipOpportunity.InternshipLevel;
+import entities.InternshipOpportunity.Major;
 import entities.InternshipOpportunity.Status;
 
-import java.util.stream.Collectors;
-
 /**
  * Repository class that stores and manages all {@link InternshipOpportunity} records
  * within the system.
@@ -20,11 +29,84 @@ import java.util.stream.Collectors;
  *     <li>Filter opportunities based on a {@link Filter}</li>
  * </ul>
  *
- * <p>The repository internally uses an {@code ArrayList} as its storage structure.</p>
+ * <p>The repository internally uses an {@code ArrayList} as its storage structure.
+ * Every stored opportunity carries a numeric ID, assigned here if it has none, and
+ * can be looked up by that ID in constant time.
+ * Opportunities are also indexed by the company representative in charge, so a
+ * representative's listings can be retrieved without scanning every opportunity.
+ * Each opportunity is additionally held in a bucket for its current {@link Status}, so
+ * status-scoped queries such as the pending review queue only touch that
+ * partition. For filtering, every status, major and internship level value also
+ * has a {@link BitSet} over opportunity ordinals (positions in the list), so a
+ * {@link Filter} is answered by intersecting bitmaps before any opportunity is
+ * examined. Opening and closing dates are held in sorted maps keyed by epoch day,
+ * so date bounds and the "open on a given day" window are answered from sub-map
+ * slices rather than by comparing every opportunity's dates.
+ * Applications are indexed by student ID as well, so one student's
+ * application history is a direct lookup. Opportunities whose applications are
+ * still stored as text are left out of that index until their applications are
+ * parsed; a student's history only parses those whose text mentions the student.
+ * The repository registers itself as each
+ * stored opportunity's {@link OpportunityListener} to keep these indexes current
+ * when an opportunity is reassigned, edited, changes status or receives an
+ * application. The same notifications record which opportunities have changed
+ * since the opportunity file was last saved, so {@link util.SaveFiles} can skip
+ * the file when nothing changed and reuse the rows of unchanged opportunities.
+ * Applications are not part of the opportunity file: they are appended to the
+ * applications file as they change, so they never make an opportunity unsaved.
+ * That file is only rewritten in full when it is marked as outdated.</p>
  */
-public class OpportunityRepository {
+public class OpportunityRepository implements OpportunityListener {
     private ArrayList<InternshipOpportunity> internshipOpportunityList = new ArrayList<>();
-    public OpportunityRepository(){}
+    /** Opportunities keyed by their numeric ID. */
+    private HashMap<Integer, InternshipOpportunity> opportunitiesByID = new HashMap<>();
+    /** The ID given to the next opportunity added without one. */
+    private int nextOpportunityID = 1;
+    /** Position of each opportunity in the list, keyed by opportunity ID; used as its bit in the bitmaps. */
+    private HashMap<Integer, Integer> ordinalsByID = new HashMap<>();
+    /** For each status, the ordinals of opportunities with that status. */
+    private EnumMap<Status, BitSet> statusBitmaps = new EnumMap<>(Status.class);
+    /** For each major, the ordinals of opportunities preferring that major. */
+    private EnumMap<Major, BitSet> majorBitmaps = new EnumMap<>(Major.class);
+    /** For each internship level, the ordinals of opportunities at that level. */
+    private EnumMap<InternshipLevel, BitSet> levelBitmaps = new EnumMap<>(InternshipLevel.class);
+    /** Ordinals of opportunities keyed by the epoch day of their application opening date. */
+    private TreeMap<Long, ArrayList<Integer>> ordinalsByOpeningDay = new TreeMap<>();
+    /** Ordinals of opportunities keyed by the epoch day of their application closing date. */
+    private TreeMap<Long, ArrayList<Integer>> ordinalsByClosingDay = new TreeMap<>();
+    /** Opportunities keyed by the User ID of the company representative in charge, each keyed by ordinal so it keeps list order. */
+    private HashMap<String, TreeMap<Integer, InternshipOpportunity>> opportunitiesByCompanyRep = new HashMap<>();
+    /** Opportunities partitioned by status, each bucket keyed by ordinal so it keeps list order. */
+    private EnumMap<Status, TreeMap<Integer, InternshipOpportunity>> opportunitiesByStatus = new EnumMap<>(Status.class);
+    /**
+     * Applications stored with their opportunity when it was added, keyed by the
+     * student who submitted them, in opportunity order; each knows its opportunity.
+     */
+    private HashMap<String, ArrayList<Application>> storedApplicationsByStudent = new HashMap<>();
+    /** Applications submitted to a stored opportunity afterwards, keyed by student, in submission order. */
+    private HashMap<String, ArrayList<Application>> submittedApplicationsByStudent = new HashMap<>();
+    /** Opportunities whose applications are still stored as text, and so not yet indexed. */
+    private LinkedHashSet<InternshipOpportunity> unparsedOpportunities = new LinkedHashSet<>();
+    /** Students already checked for in {@link #unparsedOpportunities}. */
+    private HashSet<String> searchedStudentIDs = new HashSet<>();
+    /** IDs of opportunities added or changed since the opportunity file was last saved. */
+    private HashSet<Integer> unsavedOpportunityIDs = new HashSet<>();
+    /** Whether the applications file must be rewritten in full rather than only appended to. */
+    private boolean applicationFileOutdated = false;
+    /** Whether the opportunities were only partly loaded, so must not be saved. */
+    private boolean readOnly = false;
+    public OpportunityRepository(){
+        for (Status status : Status.values()) {
+            opportunitiesByStatus.put(status, new TreeMap<>());
+            statusBitmaps.put(status, new BitSet());
+        }
+        for (Major major : Major.values()) {
+            majorBitmaps.put(major, new BitSet());
+        }
+        for (InternshipLevel level : InternshipLevel.values()) {
+            levelBitmaps.put(level, new BitSet());
+        }
+    }
 
     /**
      * Returns the complete list of internship opportunities.
@@ -34,18 +116,32 @@ public class OpportunityRepository {
     public ArrayList<InternshipOpportunity> getInternshipOpportunityList(){
         return internshipOpportunityList;
     }
+
+    /**
+     * Looks up an internship opportunity by its numeric ID.
+     *
+     * @param opportunityID the ID of the opportunity
+     * @return the matching opportunity, or {@code null} if there is none
+     */
+    public InternshipOpportunity getInternshipOpportunityByID(int opportunityID){
+        return opportunitiesByID.get(opportunityID);
+    }
+
     /**
      * Retrieves internship opportunities created by or assigned to a specific
      * company representative.
      *
+     * <p>Results keep list order, whatever order the opportunities were assigned in.</p>
+     *
      * @param name the user ID or name of the company representative in charge
      * @return the list of relevant internship opportunities
      */
     public ArrayList<InternshipOpportunity> getRelevantInternshipOpportunities(String name){
-        ArrayList<InternshipOpportunity> filteredOpportunities= internshipOpportunityList.stream()
-        .filter(s->s.getCompanyRepInCharge().equals(name))
-        .collect(Collectors.toCollection(ArrayList::new));
-        return filteredOpportunities;
+        TreeMap<Integer, InternshipOpportunity> repOpportunities = opportunitiesByCompanyRep.get(name);
+        if (repOpportunities == null) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(repOpportunities.values());
     }
       /**
      * Retrieves all internship opportunities that are still pending approval.
@@ -53,19 +149,372 @@ public class OpportunityRepository {
      * @return a list of opportunities with status {@link Status#PENDING}
      */
     public ArrayList<InternshipOpportunity> getPendingInternshipOpportunities(){
-        ArrayList<InternshipOpportunity> pendingOpportunities= internshipOpportunityList.stream()
-        .filter(s->s.getStatus().equals(Status.PENDING))
-        .collect(Collectors.toCollection(ArrayList::new));
-        return pendingOpportunities;
+        return getInternshipOpportunitiesByStatus(Status.PENDING);
+    }
+
+    /**
+     * Retrieves all internship opportunities that currently have the given status.
+     *
+     * <p>Results keep list order, whatever order the opportunities reached the status in.</p>
+     *
+     * @param status the status to look up
+     * @return a list of opportunities with that status
+     */
+    public ArrayList<InternshipOpportunity> getInternshipOpportunitiesByStatus(Status status){
+        return new ArrayList<>(opportunitiesByStatus.get(status).values());
     }
 
      /**
+     * Retrieves every application submitted by a student, in the order they were
+     * recorded. Each application's opportunity is available through
+     * {@link Application#getOpportunity()}.
+     *
+     * @param studentID the User ID of the student
+     * @return the student's applications, or an empty list if there are none
+     */
+    public ArrayList<Application> getApplicationsByStudent(String studentID){
+        if (!unparsedOpportunities.isEmpty() && searchedStudentIDs.add(studentID)) {
+            // Parsing an opportunity's applications indexes them and removes it from the set.
+            for (InternshipOpportunity opportunity : new ArrayList<>(unparsedOpportunities)) {
+                if (opportunity.mayHaveApplicationFrom(studentID)) {
+                    opportunity.getApplicationList();
+                }
+            }
+        }
+        ArrayList<Application> applications = new ArrayList<>();
+        applications.addAll(storedApplicationsByStudent.getOrDefault(studentID, new ArrayList<>()));
+        applications.addAll(submittedApplicationsByStudent.getOrDefault(studentID, new ArrayList<>()));
+        return applications;
+    }
+
+    /**
      * Adds a new internship opportunity to the repository.
      *
+     * <p>An opportunity without an ID, or whose ID is already taken, is given the
+     * next free ID.</p>
+     *
      * @param internshipOpportunity the opportunity to be added
      */
     public void addInternshipOpportunity(InternshipOpportunity internshipOpportunity){
+        int opportunityID = internshipOpportunity.getOpportunityID();
+        if (opportunityID <= 0 || opportunitiesByID.containsKey(opportunityID)) {
+            opportunityID = nextOpportunityID;
+            internshipOpportunity.setOpportunityID(opportunityID);
+        }
+        nextOpportunityID = Math.max(nextOpportunityID, opportunityID + 1);
+        opportunitiesByID.put(opportunityID, internshipOpportunity);
+        int ordinal = internshipOpportunityList.size();
+        ordinalsByID.put(opportunityID, ordinal);
         internshipOpportunityList.add(internshipOpportunity);
+        statusBitmaps.get(internshipOpportunity.getStatus()).set(ordinal);
+        majorBitmaps.get(internshipOpportunity.getPreferredMajor()).set(ordinal);
+        levelBitmaps.get(internshipOpportunity.getInternshipLevel()).set(ordinal);
+        indexDate(ordinalsByOpeningDay, internshipOpportunity.getApplicationOpeningDate(), ordinal);
+        indexDate(ordinalsByClosingDay, internshipOpportunity.getApplicationClosingDate(), ordinal);
+        opportunitiesByCompanyRep
+            .computeIfAbsent(internshipOpportunity.getCompanyRepInCharge(), k -> new TreeMap<>())
+            .put(ordinal, internshipOpportunity);
+        opportunitiesByStatus.get(internshipOpportunity.getStatus()).put(ordinal, internshipOpportunity);
+        if (internshipOpportunity.isApplicationListLoaded()) {
+            for (Application application : internshipOpportunity.getApplicationList()) {
+                indexStoredApplication(application, ordinal);
+            }
+        } else {
+            unparsedOpportunities.add(internshipOpportunity);
+        }
+        internshipOpportunity.setListener(this);
+        unsavedOpportunityIDs.add(opportunityID);
+    }
+
+    /**
+     * Moves a reassigned opportunity from its previous representative's listings
+     * to those of its new representative, where it keeps its place in list order.
+     *
+     * @param opportunity   the opportunity that was reassigned
+     * @param oldCompanyRep the user ID of the previous representative in charge
+     */
+    @Override
+    public void companyRepChanged(InternshipOpportunity opportunity, String oldCompanyRep){
+        unsavedOpportunityIDs.add(opportunity.getOpportunityID());
+        int ordinal = ordinalsByID.get(opportunity.getOpportunityID());
+        TreeMap<Integer, InternshipOpportunity> oldListings = opportunitiesByCompanyRep.get(oldCompanyRep);
+        if (oldListings != null) {
+            oldListings.remove(ordinal);
+            if (oldListings.isEmpty()) {
+                opportunitiesByCompanyRep.remove(oldCompanyRep);
+            }
+        }
+        opportunitiesByCompanyRep
+            .computeIfAbsent(opportunity.getCompanyRepInCharge(), k -> new TreeMap<>())
+            .put(ordinal, opportunity);
+    }
+
+    /**
+     * Moves an opportunity from the bucket and bitmap of its previous status to
+     * those of its new status.
+     *
+     * @param opportunity the opportunity whose status changed
+     * @param oldStatus   the status the opportunity had before the change
+     */
+    @Override
+    public void statusChanged(InternshipOpportunity opportunity, Status oldStatus){
+        unsavedOpportunityIDs.add(opportunity.getOpportunityID());
+        int ordinal = ordinalsByID.get(opportunity.getOpportunityID());
+        opportunitiesByStatus.get(oldStatus).remove(ordinal);
+        opportunitiesByStatus.get(opportunity.getStatus()).put(ordinal, opportunity);
+        statusBitmaps.get(oldStatus).clear(ordinal);
+        statusBitmaps.get(opportunity.getStatus()).set(ordinal);
+    }
+
+    /**
+     * Moves an opportunity's bit from the bitmap of its previous major to that of its new major.
+     *
+     * @param opportunity the opportunity that was edited
+     * @param oldMajor    the preferred major before the change
+     */
+    @Override
+    public void preferredMajorChanged(InternshipOpportunity opportunity, Major oldMajor){
+        unsavedOpportunityIDs.add(opportunity.getOpportunityID());
+        int ordinal = ordinalsByID.get(opportunity.getOpportunityID());
+        majorBitmaps.get(oldMajor).clear(ordinal);
+        majorBitmaps.get(opportunity.getPreferredMajor()).set(ordinal);
+    }
+
+    /**
+     * Moves an opportunity's bit from the bitmap of its previous level to that of its new level.
+     *
+     * @param opportunity the opportunity that was edited
+     * @param oldLevel    the internship level before the change
+     */
+    @Override
+    public void internshipLevelChanged(InternshipOpportunity opportunity, InternshipLevel oldLevel){
+        unsavedOpportunityIDs.add(opportunity.getOpportunityID());
+        int ordinal = ordinalsByID.get(opportunity.getOpportunityID());
+        levelBitmaps.get(oldLevel).clear(ordinal);
+        levelBitmaps.get(opportunity.getInternshipLevel()).set(ordinal);
+    }
+
+    /**
+     * Re-keys an opportunity in the opening date index after its opening date changes.
+     *
+     * @param opportunity    the opportunity that was edited
+     * @param oldOpeningDate the opening date before the change
+     */
+    @Override
+    public void openingDateChanged(InternshipOpportunity opportunity, long oldOpeningDate){
+        unsavedOpportunityIDs.add(opportunity.getOpportunityID());
+        int ordinal = ordinalsByID.get(opportunity.getOpportunityID());
+        unindexDate(ordinalsByOpeningDay, oldOpeningDate, ordinal);
+        indexDate(ordinalsByOpeningDay, opportunity.getApplicationOpeningDate(), ordinal);
+    }
+
+    /**
+     * Re-keys an opportunity in the closing date index after its closing date changes.
+     *
+     * @param opportunity    the opportunity that was edited
+     * @param oldClosingDate the closing date before the change
+     */
+    @Override
+    public void closingDateChanged(InternshipOpportunity opportunity, long oldClosingDate){
+        unsavedOpportunityIDs.add(opportunity.getOpportunityID());
+        int ordinal = ordinalsByID.get(opportunity.getOpportunityID());
+        unindexDate(ordinalsByClosingDay, oldClosingDate, ordinal);
+        indexDate(ordinalsByClosingDay, opportunity.getApplicationClosingDate(), ordinal);
+    }
+
+    /**
+     * Indexes an application newly added to a stored opportunity under its student.
+     *
+     * @param opportunity the opportunity that received the application
+     * @param application the application that was added
+     */
+    @Override
+    public void applicationAdded(InternshipOpportunity opportunity, Application application){
+        submittedApplicationsByStudent
+            .computeIfAbsent(application.getStudentID(), k -> new ArrayList<>())
+            .add(application);
+    }
+
+    /**
+     * Leaves an opportunity's applications out of the student index while they are
+     * stored as text, and has every student's history check the opportunity again.
+     *
+     * @param opportunity the opportunity whose applications are stored as text
+     */
+    @Override
+    public void storedApplicationsAdded(InternshipOpportunity opportunity){
+        unparsedOpportunities.add(opportunity);
+        searchedStudentIDs.clear();
+    }
+
+    /**
+     * Indexes the applications of an opportunity once they have been parsed from
+     * their stored text form.
+     *
+     * @param opportunity the opportunity whose applications were parsed
+     */
+    @Override
+    public void applicationsLoaded(InternshipOpportunity opportunity){
+        if (unparsedOpportunities.remove(opportunity)) {
+            int ordinal = ordinalsByID.get(opportunity.getOpportunityID());
+            for (Application application : opportunity.getApplicationList()) {
+                indexStoredApplication(application, ordinal);
+            }
+        }
+    }
+
+    /**
+     * Records that an opportunity has changed in a way that does not affect the indexes.
+     *
+     * @param opportunity the opportunity that was edited
+     */
+    @Override
+    public void detailsChanged(InternshipOpportunity opportunity){
+        unsavedOpportunityIDs.add(opportunity.getOpportunityID());
+    }
+
+    /**
+     * Checks whether any opportunity has been added or changed since the
+     * opportunity file was last saved.
+     *
+     * @return {@code true} if the opportunity file is out of date
+     */
+    public boolean hasUnsavedChanges(){
+        return !unsavedOpportunityIDs.isEmpty();
+    }
+
+    /**
+     * Checks whether an opportunity has been added or changed since the
+     * opportunity file was last saved.
+     *
+     * @param opportunityID the ID of the opportunity
+     * @return {@code true} if the opportunity's saved row is out of date
+     */
+    public boolean hasUnsavedChanges(int opportunityID){
+        return unsavedOpportunityIDs.contains(opportunityID);
+    }
+
+    /**
+     * Marks every opportunity as saved, after the opportunity file has been
+     * written or freshly loaded.
+     */
+    public void markSaved(){
+        unsavedOpportunityIDs.clear();
+    }
+
+    /**
+     * Records that the applications file no longer reflects the applications held
+     * here and must be rewritten in full at the next save, for example because
+     * they were loaded from an opportunity file that still listed them.
+     */
+    public void markApplicationFileOutdated(){
+        applicationFileOutdated = true;
+    }
+
+    /**
+     * Checks whether the applications file must be rewritten in full.
+     *
+     * @return {@code true} if the applications file is out of date
+     */
+    public boolean isApplicationFileOutdated(){
+        return applicationFileOutdated;
+    }
+
+    /**
+     * Marks the applications file as up to date, after it has been rewritten.
+     */
+    public void markApplicationFileSaved(){
+        applicationFileOutdated = false;
+    }
+
+    /**
+     * Marks the repository as holding only some fields of its opportunities, as loaded
+     * for a tool that only reads them. From then on it cannot be saved, and
+     * changes to it cannot be recorded.
+     */
+    public void markReadOnly(){
+        readOnly = true;
+    }
+
+    /**
+     * Checks that the repository may be saved and its changes recorded.
+     *
+     * @throws IllegalStateException if it has been {@linkplain #markReadOnly() marked read-only}
+     */
+    public void checkWritable(){
+        if (readOnly) {
+            throw new IllegalStateException("The opportunities were only partly loaded, so they cannot be saved");
+        }
+    }
+
+    /**
+     * Indexes a stored application under its student, after the student's stored
+     * applications to opportunities at the same or an earlier position in the list.
+     */
+    private void indexStoredApplication(Application application, int ordinal){
+        ArrayList<Application> applications = storedApplicationsByStudent
+            .computeIfAbsent(application.getStudentID(), k -> new ArrayList<>());
+        int index = applications.size();
+        while (index > 0 && ordinalsByID.get(applications.get(index - 1).getOpportunity().getOpportunityID()) > ordinal) {
+            index--;
+        }
+        applications.add(index, application);
+    }
+
+    /**
+     * Adds an ordinal to a date index. Unknown dates ({@link Long#MIN_VALUE}) are
+     * left out, so they never satisfy a date bound.
+     */
+    private static void indexDate(TreeMap<Long, ArrayList<Integer>> index, long day, int ordinal){
+        if (day == Long.MIN_VALUE) {
+            return;
+        }
+        index.computeIfAbsent(day, k -> new ArrayList<>()).add(ordinal);
+    }
+
+    private static void unindexDate(TreeMap<Long, ArrayList<Integer>> index, long day, int ordinal){
+        ArrayList<Integer> ordinals = index.get(day);
+        if (ordinals != null) {
+            ordinals.remove(Integer.valueOf(ordinal));
+            if (ordinals.isEmpty()) {
+                index.remove(day);
+            }
+        }
+    }
+
+    /**
+     * Collects the ordinals held in a slice of a date index into a bitmap.
+     *
+     * @param slice the date-keyed sub-map to collect
+     * @return a bitmap with one bit set per ordinal in the slice
+     */
+    private static BitSet toBitmap(Collection<ArrayList<Integer>> slice){
+        BitSet bitmap = new BitSet();
+        for (ArrayList<Integer> ordinals : slice) {
+            for (int ordinal : ordinals) {
+                bitmap.set(ordinal);
+            }
+        }
+        return bitmap;
+    }
+
+    /**
+     * Retrieves the internship opportunities whose application window includes
+     * the given date, that is, opening on or before it and closing on or after it.
+     *
+     * <p>Both bounds are taken as slices of the date indexes. Results keep list order.</p>
+     *
+     * @param day the date to check, as an epoch day
+     * @return the opportunities open for applications on that date
+     */
+    public ArrayList<InternshipOpportunity> getOpportunitiesOpenOn(long day){
+        ArrayList<InternshipOpportunity> open = new ArrayList<>();
+        BitSet matches = toBitmap(ordinalsByOpeningDay.headMap(day, true).values());
+        matches.and(toBitmap(ordinalsByClosingDay.tailMap(day, true).values()));
+        for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+            open.add(internshipOpportunityList.get(i));
+        }
+        return open;
     }
 
     /**
@@ -81,18 +530,36 @@ public class OpportunityRepository {
      *     <li>Latest application closing date</li>
      * </ul>
      *
-     * <p>Any {@code null} filter values are ignored.</p>
+     * <p>Any {@code null} filter values and unset date bounds are ignored. The
+     * status, major and level criteria are answered by AND-ing their bitmaps, and
+     * each date bound by AND-ing the bitmap of its slice of the opening or closing
+     * date index. Results keep list order.</p>
      *
      * @param filter the filtering criteria to apply
      * @return a filtered list of internship opportunities
      */
     public ArrayList<InternshipOpportunity> filterOpportunities(Filter filter){
-        return internshipOpportunityList.stream()
-            .filter(opp -> filter.getStatus() == null || opp.getStatus().equals(filter.getStatus()))
-            .filter(opp -> filter.getMajor() == null || opp.getPreferredMajor().equals(filter.getMajor()))
-            .filter(opp -> filter.getLevel() == null || opp.getInternshipLevel().equals(filter.getLevel()))
-            .filter(opp -> filter.getEarliestOpeningDate() == null || opp.getApplicationOpeningDate().compareTo(filter.getEarliestOpeningDate()) >= 0)
-            .filter(opp -> filter.getLatestClosingDate() == null || opp.getApplicationClosingDate().compareTo(filter.getLatestClosingDate()) <= 0)
-            .collect(Collectors.toCollection(ArrayList::new));
+        BitSet matches = new BitSet();
+        matches.set(0, internshipOpportunityList.size());
+        if (filter.getStatus() != null) {
+            matches.and(statusBitmaps.get(filter.getStatus()));
+        }
+        if (filter.getMajor() != null) {
+            matches.and(majorBitmaps.get(filter.getMajor()));
+        }
+        if (filter.getLevel() != null) {
+            matches.and(levelBitmaps.get(filter.getLevel()));
+        }
+        if (filter.getEarliestOpeningDate() != Filter.NO_EARLIEST_OPENING_DATE) {
+            matches.and(toBitmap(ordinalsByOpeningDay.tailMap(filter.getEarliestOpeningDate(), true).values()));
+        }
+        if (filter.getLatestClosingDate() != Filter.NO_LATEST_CLOSING_DATE) {
+            matches.and(toBitmap(ordinalsByClosingDay.headMap(filter.getLatestClosingDate(), true).values()));
+        }
+        ArrayList<InternshipOpportunity> filtered = new ArrayList<>(matches.cardinality());
+        for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+            filtered.add(internshipOpportunityList.get(i));
+        }
+        return filtered;
     }
 }
@@ -19,11 +19,19 @@ import entities.InternshipWithdrawalReq;
  *     <li>{@link controllers.StudentController}</li>
  * </ul>
  *
- * <p>Internally, the repository uses {@code ArrayList} to store the two types of requests.</p>
+ * <p>Internally, the repository uses {@code ArrayList} to store the two types of requests.
+ * It also records whether each list has changed since it was last saved, so
+ * {@link util.SaveFiles} can skip rewriting a file whose requests are unchanged.</p>
  */
 public class RequestRepository {
     private ArrayList<CompanyRepCreationReq> companyRepCreationReqList = new ArrayList<>();
     private ArrayList<InternshipWithdrawalReq> internshipWithdrawalReqList = new ArrayList<>();
+    /** Whether account creation requests have changed since they were last saved. */
+    private boolean companyRepCreationReqsUnsaved = false;
+    /** Whether withdrawal requests have changed since they were last saved. */
+    private boolean internshipWithdrawalReqsUnsaved = false;
+    /** Whether the requests were only partly loaded, so must not be saved. */
+    private boolean readOnly = false;
     public RequestRepository(){}
     /**
      * Returns all pending company representative creation requests.
@@ -50,6 +58,7 @@ public class RequestRepository {
      */
     public void addCompanyReqCreationReq(CompanyRepCreationReq companyRepCreationReq){
         companyRepCreationReqList.add(companyRepCreationReq);
+        companyRepCreationReqsUnsaved = true;
     }
 
       /**
@@ -58,7 +67,9 @@ public class RequestRepository {
      * @param companyRepCreationReq the request to remove
      */
     public void deleteCompanyReqCreationReq(CompanyRepCreationReq companyRepCreationReq){
-        companyRepCreationReqList.remove(companyRepCreationReq);
+        if (companyRepCreationReqList.remove(companyRepCreationReq)) {
+            companyRepCreationReqsUnsaved = true;
+        }
     }
 
     /**
@@ -68,6 +79,7 @@ public class RequestRepository {
      */
     public void addInternshipWithdrawalReq(InternshipWithdrawalReq internshipWithdrawalReq){
         internshipWithdrawalReqList.add(internshipWithdrawalReq);
+        internshipWithdrawalReqsUnsaved = true;
     }
 
     /**
@@ -76,6 +88,60 @@ public class RequestRepository {
      * @param internshipWithdrawalReq the request to remove
      */
     public void deleteInternshipWithdrawalReq(InternshipWithdrawalReq internshipWithdrawalReq){
-        internshipWithdrawalReqList.remove(internshipWithdrawalReq);
+        if (internshipWithdrawalReqList.remove(internshipWithdrawalReq)) {
+            internshipWithdrawalReqsUnsaved = true;
+        }
+    }
+
+    /**
+     * Checks whether account creation requests have been added or removed since they were last saved.
+     *
+     * @return {@code true} if the account creation request file is out of date
+     */
+    public boolean hasUnsavedCompanyRepCreationReqs(){
+        return companyRepCreationReqsUnsaved;
+    }
+
+    /**
+     * Marks account creation requests as saved, after their file has been written or freshly loaded.
+     */
+    public void markCompanyRepCreationReqsSaved(){
+        companyRepCreationReqsUnsaved = false;
+    }
+
+    /**
+     * Checks whether withdrawal requests have been added or removed since they were last saved.
+     *
+     * @return {@code true} if the withdrawal request file is out of date
+     */
+    public boolean hasUnsavedInternshipWithdrawalReqs(){
+        return internshipWithdrawalReqsUnsaved;
+    }
+
+    /**
+     * Marks withdrawal requests as saved, after their file has been written or freshly loaded.
+     */
+    public void markInternshipWithdrawalReqsSaved(){
+        internshipWithdrawalReqsUnsaved = false;
+    }
+
+    /**
+     * Marks the repository as holding only some fields of its requests, as loaded
+     * for a tool that only reads them. From then on it cannot be saved, and
+     * changes to it cannot be recorded.
+     */
+    public void markReadOnly(){
+        readOnly = true;
+    }
+
+    /**
+     * Checks that the repository may be saved and its changes recorded.
+     *
+     * @throws IllegalStateException if it has been {@linkplain #markReadOnly() marked read-only}
+     */
+    public void checkWritable(){
+        if (readOnly) {
+            throw new IllegalStateException("The requests were only partly loaded, so they cannot be saved");
+        }
     }
 }
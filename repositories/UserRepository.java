@@ -0,0 +1,396 @@
+package repositories;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import entities.Student;
+import entities.CompanyRep;
+import entities.CareerStaff;
+import entities.User;
+import entities.User.Role;
+
+/**
+ * Repository class responsible for storing and managing all user-related data in the system.
+ *
+ * <p>This includes three distinct user types:</p>
+ * <ul>
+ *     <li>{@link Student} – Students applying for internships</li>
+ *     <li>{@link CompanyRep} – Company representatives in charge of internship postings</li>
+ *     <li>{@link CareerStaff} – NTU career centre staff responsible for approvals</li>
+ * </ul>
+ *
+ * <p>The repository provides methods to add new users and search for users by User ID.
+ * It is used heavily by:</p>
+ * <ul>
+ *     <li>{@link controllers.AuthController} – during login</li>
+ *     <li>{@link controllers.CareerStaffController}</li>
+ *     <li>{@link controllers.CompanyRepController}</li>
+ *     <li>{@link controllers.StudentController}</li>
+ * </ul>
+ *
+ * <p>Internally, each user group is stored in its own {@code ArrayList}, which keeps
+ * the original file order for saving. Each group is also indexed by User ID in a
+ * {@code HashMap} so that lookups during login and applicant listing take constant
+ * time instead of scanning the whole list.</p>
+ *
+ * <p>The repository also records which groups have gained a user or had a
+ * password changed since they were last saved, so {@link util.SaveFiles} only
+ * rewrites the files of groups that actually changed.</p>
+ *
+ * <p>{@link util.LoadFiles} fills the three groups from separate threads at
+ * startup. Each group's list and index are only written by one thread, but the
+ * record of unsaved groups is shared, so the methods that update it are
+ * synchronized.</p>
+ *
+ * <p>For cohorts too large to hold comfortably as objects, students and company
+ * representatives can instead be kept on disk, with the {@code users=disk}
+ * system property. Their rows are then loaded into a file indexed by User ID,
+ * and {@link #findStudentByUserID} and {@link #findCompanyRepByUserID} parse
+ * users from it as they are looked up, keeping recently used ones in a cache
+ * bounded by the {@code users.cache} property, in megabytes. Users who are
+ * changed or added are kept in memory until the next checkpoint. The whole
+ * group can then only be walked with {@link #forEachStudent} and
+ * {@link #forEachCompanyRep}; {@link #getStudentList()} and
+ * {@link #getCompanyRepList()} are unavailable. Career staff are few and always
+ * kept in memory.</p>
+ */
+public class UserRepository {
+    private ArrayList<Student> studentList = new ArrayList<>();
+    private ArrayList<CompanyRep> companyRepList = new ArrayList<>();
+    private ArrayList<CareerStaff> careerStaffList = new ArrayList<>();
+    /** Students keyed by User ID. */
+    private HashMap<String, Student> studentsByID = new HashMap<>();
+    /** Company representatives keyed by User ID. */
+    private HashMap<String, CompanyRep> companyRepsByID = new HashMap<>();
+    /** Career staff keyed by User ID. */
+    private HashMap<String, CareerStaff> careerStaffByID = new HashMap<>();
+    /** User groups changed since their file was last saved. */
+    private EnumSet<Role> unsavedRoles = EnumSet.noneOf(Role.class);
+    /** Whether the users were only partly loaded, so must not be saved. */
+    private boolean readOnly = false;
+    /** Students kept on disk, or {@code null} if they are held in {@link #studentList}. */
+    private final DiskUserGroup<Student> diskStudents;
+    /** Company representatives kept on disk, or {@code null} if they are held in {@link #companyRepList}. */
+    private final DiskUserGroup<CompanyRep> diskCompanyReps;
+
+    /** Default memory budget of each on-disk group's cache, in megabytes. */
+    public static final long DEFAULT_CACHE_MEGABYTES = 16;
+
+    /**
+     * Constructs a repository that holds every user in memory.
+     */
+    public UserRepository(){
+        diskStudents = null;
+        diskCompanyReps = null;
+    }
+
+    /**
+     * Constructs a repository that keeps students and company representatives on
+     * disk, each group with a cache of recently looked up users.
+     *
+     * @param cacheBytes the most memory each group's cache may take, in bytes
+     */
+    public UserRepository(long cacheBytes){
+        diskStudents = new DiskUserGroup<>(cacheBytes);
+        diskCompanyReps = new DiskUserGroup<>(cacheBytes);
+    }
+
+    /**
+     * Constructs a repository as chosen by the {@code users} and
+     * {@code users.cache} system properties. The first call in a process also
+     * removes any user files a previous process left on disk, whichever is
+     * chosen.
+     *
+     * @return a repository keeping users on disk if {@code users} is {@code disk},
+     *         otherwise one holding them in memory
+     * @throws IllegalArgumentException if either property is not recognised
+     */
+    public static UserRepository configured(){
+        KeyedRowFile.deleteStaleFiles();
+        String mode = System.getProperty("users", "memory");
+        switch (mode) {
+            case "memory":
+                return new UserRepository();
+            case "disk":
+                long megabytes = Long.parseLong(System.getProperty("users.cache", String.valueOf(DEFAULT_CACHE_MEGABYTES)));
+                return new UserRepository(megabytes << 20);
+            default:
+                throw new IllegalArgumentException("Unknown user storage: " + mode);
+        }
+    }
+
+    /**
+     * Checks whether students and company representatives are kept on disk.
+     *
+     * @return {@code true} if they are looked up through a cache
+     */
+    public boolean isDiskBacked(){
+        return diskStudents != null;
+    }
+
+     /**
+     * Returns the list of all registered students.
+     *
+     * @return list of students
+     * @throws IllegalStateException if students are kept on disk
+     */
+    public ArrayList<Student> getStudentList(){
+        if (diskStudents != null) {
+            throw new IllegalStateException("Students are kept on disk");
+        }
+        return studentList;
+    }
+
+    /**
+     * Passes every registered student to the consumer, in the order they were
+     * loaded and added. Students kept on disk are read for the call.
+     *
+     * @param consumer receives each student
+     */
+    public void forEachStudent(Consumer<? super Student> consumer){
+        if (diskStudents != null) {
+            diskStudents.forEach(consumer);
+        } else {
+            studentList.forEach(consumer);
+        }
+    }
+
+    /** @return the number of registered students */
+    public int getStudentCount(){
+        return diskStudents != null ? diskStudents.size() : studentList.size();
+    }
+
+    /**
+     * Adds a new student to the repository.
+     *
+     * @param student the student to add
+     */
+    public synchronized void addStudent(Student student){
+        if (diskStudents != null) {
+            diskStudents.add(student);
+        } else {
+            studentList.add(student);
+            studentsByID.putIfAbsent(student.getUserId(), student);
+        }
+        unsavedRoles.add(Role.STUDENT);
+    }
+
+    /**
+     * Replaces the students kept on disk with the rows of a student table.
+     *
+     * @param content   the table's header line and rows
+     * @param keyColumn the position of the User ID among a row's fields
+     * @param parser    converts a row into a student
+     * @throws IOException if the students cannot be written to disk
+     * @throws IllegalStateException if students are held in memory
+     */
+    public void loadStudentRows(ByteBuffer content, int keyColumn, Function<String, Student> parser) throws IOException {
+        if (diskStudents == null) {
+            throw new IllegalStateException("Students are held in memory");
+        }
+        diskStudents.load(content, keyColumn, parser);
+        synchronized (this) {
+            unsavedRoles.add(Role.STUDENT);
+        }
+    }
+
+     /**
+     * Searches for a student by their User ID.
+     *
+     * @param userID the User ID of the student
+     * @return the matching Student object, or {@code null} if not found
+     */
+    public Student findStudentByUserID(String userID){
+        return diskStudents != null ? diskStudents.find(userID) : studentsByID.get(userID);
+    }
+
+    /**
+     * Returns the list of all registered career staff members.
+     *
+     * @return list of career staff
+     */
+    public ArrayList<CareerStaff> getCareerStaffList(){
+        return careerStaffList;
+    }
+
+     /**
+     * Adds a new career staff member to the repository.
+     *
+     * @param careerStaff the staff member to add
+     */
+    public synchronized void addCareerStaff(CareerStaff careerStaff){
+        careerStaffList.add(careerStaff);
+        careerStaffByID.putIfAbsent(careerStaff.getUserId(), careerStaff);
+        unsavedRoles.add(Role.CAREER_STAFF);
+    }
+
+    /**
+     * Searches for a career staff user by User ID.
+     *
+     * @param userID the User ID to search for
+     * @return the matching CareerStaff object, or {@code null} if not found
+     */
+    public User findCareerStaffByUserID(String userID){
+        return careerStaffByID.get(userID);
+    }
+
+    /**
+     * Returns the list of all registered company representatives.
+     *
+     * @return list of company representatives
+     * @throws IllegalStateException if company representatives are kept on disk
+     */
+    public ArrayList<CompanyRep> getCompanyRepList(){
+        if (diskCompanyReps != null) {
+            throw new IllegalStateException("Company representatives are kept on disk");
+        }
+        return companyRepList;
+    }
+
+    /**
+     * Passes every registered company representative to the consumer, in the
+     * order they were loaded and added. Representatives kept on disk are read
+     * for the call.
+     *
+     * @param consumer receives each company representative
+     */
+    public void forEachCompanyRep(Consumer<? super CompanyRep> consumer){
+        if (diskCompanyReps != null) {
+            diskCompanyReps.forEach(consumer);
+        } else {
+            companyRepList.forEach(consumer);
+        }
+    }
+
+    /** @return the number of registered company representatives */
+    public int getCompanyRepCount(){
+        return diskCompanyReps != null ? diskCompanyReps.size() : companyRepList.size();
+    }
+
+    /**
+     * Adds a new company representative to the repository.
+     *
+     * @param companyRep the company representative to add
+     */
+    public synchronized void addCompanyRep(CompanyRep companyRep){
+        if (diskCompanyReps != null) {
+            diskCompanyReps.add(companyRep);
+        } else {
+            companyRepList.add(companyRep);
+            companyRepsByID.putIfAbsent(companyRep.getUserId(), companyRep);
+        }
+        unsavedRoles.add(Role.COMPANY_REP);
+    }
+
+    /**
+     * Replaces the company representatives kept on disk with the rows of a
+     * company representative table.
+     *
+     * @param content   the table's header line and rows
+     * @param keyColumn the position of the User ID among a row's fields
+     * @param parser    converts a row into a company representative
+     * @throws IOException if the representatives cannot be written to disk
+     * @throws IllegalStateException if company representatives are held in memory
+     */
+    public void loadCompanyRepRows(ByteBuffer content, int keyColumn, Function<String, CompanyRep> parser) throws IOException {
+        if (diskCompanyReps == null) {
+            throw new IllegalStateException("Company representatives are held in memory");
+        }
+        diskCompanyReps.load(content, keyColumn, parser);
+        synchronized (this) {
+            unsavedRoles.add(Role.COMPANY_REP);
+        }
+    }
+
+     /**
+     * Searches for a company representative by User ID.
+     *
+     * @param userID the User ID to search for
+     * @return the matching CompanyRep object, or {@code null} if not found
+     */
+    public User findCompanyRepByUserID(String userID){
+        return diskCompanyReps != null ? diskCompanyReps.find(userID) : companyRepsByID.get(userID);
+    }
+
+    /**
+     * Changes a user's password and marks the user's group as unsaved.
+     *
+     * @param user     the user whose password is changed
+     * @param password the new password
+     */
+    public synchronized void changePassword(User user, String password){
+        user.changePassword(password);
+        unsavedRoles.add(user.getRole());
+        if (diskStudents != null && user instanceof Student) {
+            diskStudents.changed((Student) user);
+        } else if (diskCompanyReps != null && user instanceof CompanyRep) {
+            diskCompanyReps.changed((CompanyRep) user);
+        }
+    }
+
+    /**
+     * Checks whether a group of users has changed since its file was last saved.
+     *
+     * @param role the user group
+     * @return {@code true} if the group's file is out of date
+     */
+    public synchronized boolean hasUnsavedChanges(Role role){
+        return unsavedRoles.contains(role);
+    }
+
+    /**
+     * Marks a group of users as saved, after its file has been written or freshly loaded.
+     *
+     * @param role the user group
+     */
+    public synchronized void markSaved(Role role){
+        unsavedRoles.remove(role);
+    }
+
+    /**
+     * Marks the repository as holding only some fields of its users, as loaded
+     * for a tool that only reads them. From then on it cannot be saved, and
+     * changes to it cannot be recorded.
+     */
+    public synchronized void markReadOnly(){
+        readOnly = true;
+    }
+
+    /**
+     * Checks that the repository may be saved and its changes recorded.
+     *
+     * @throws IllegalStateException if it has been {@linkplain #markReadOnly() marked read-only}
+     */
+    public synchronized void checkWritable(){
+        if (readOnly) {
+            throw new IllegalStateException("The users were only partly loaded, so they cannot be saved");
+        }
+    }
+
+    /**
+     * Summarises how the caches of the groups kept on disk have performed.
+     *
+     * @return a one-line summary, or an empty string if users are held in memory
+     */
+    public String getCacheStatistics(){
+        if (diskStudents == null) {
+            return "";
+        }
+        return "User cache: " + diskStudents.getStatistics("students") + "; " + diskCompanyReps.getStatistics("company reps");
+    }
+
+    /**
+     * Deletes the files of the groups kept on disk. The repository must not be
+     * used afterwards.
+     */
+    public void close(){
+        if (diskStudents != null) {
+            diskStudents.close();
+            diskCompanyReps.close();
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package util;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import entities.CareerStaff;
+import entities.CompanyRep;
+import entities.CompanyRepCreationReq;
+import entities.InternshipOpportunity;
+import entities.InternshipOpportunity.InternshipLevel;
+import entities.InternshipOpportunity.Major;
+import entities.InternshipOpportunity.Status;
+import entities.InternshipWithdrawalReq;
+import entities.Student;
+import repositories.OpportunityRepository;
+import repositories.RequestRepository;
+import repositories.UserRepository;
+
+/**
+ * Compact binary copy of every repository, written alongside the CSV files so
+ * that startup does not have to parse text.
+ *
+ * <p>The snapshot is written by {@link SaveFiles} at every checkpoint that changes
+ * any data, and is committed in the same group as the CSV files. {@link LoadFiles}
+ * reads it instead of the CSV files when it is at least as new as all of them; a
+ * CSV file edited after the snapshot was written, or a snapshot that cannot be
+ * read, makes it fall back to the CSV files. Applications are not part of the
+ * snapshot: the applications file is appended to between checkpoints, so it is
+ * always read itself, after the snapshot or the CSV files.</p>
+ *
+ * <p>Layout, all numbers big-endian:</p>
+ * <ul>
+ *     <li>magic number and format version;</li>
+ *     <li>a string table: a count followed by each distinct string, so repeated
+ *     values such as student IDs and company names are stored once;</li>
+ *     <li>students, career staff, company representatives, account creation
+ *     requests, opportunities and withdrawal requests, each a count followed by
+ *     fixed-layout records.</li>
+ * </ul>
+ *
+ * <p>Within records, strings are indexes into the string table ({@code -1} for
+ * {@code null}), enums are stored by ordinal, and opening and closing dates are
+ * stored as epoch days, kept as longs so an unknown date survives the round trip. Because enums are stored
+ * by ordinal, {@link #VERSION} must be increased if an enum's constants are
+ * reordered.</p>
+ */
+public class BinarySnapshot {
+    /** Location of the snapshot file. */
+    public static final String SNAPSHOT_PATH = "data/snapshot.bin";
+    /** Format version; snapshots of any other version are ignored. */
+    public static final int VERSION = 4;
+    private static final int MAGIC = 0x4E545553;
+
+    /**
+     * Encodes the contents of every repository as a snapshot.
+     *
+     * @param users         repository of all user accounts
+     * @param requests      repository of account creation and withdrawal requests
+     * @param opportunities repository of internship opportunities
+     * @return the snapshot file's contents, or {@code null} if the data cannot be
+     *         represented, such as a string longer than the format allows
+     */
+    public byte[] write(UserRepository users, RequestRepository requests, OpportunityRepository opportunities){
+        HashMap<String, Integer> stringIndexes = new HashMap<>();
+        ArrayList<String> strings = new ArrayList<>();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(body)) {
+            out.writeInt(users.getStudentList().size());
+            for (Student s : users.getStudentList()) {
+                writeString(out, s.getUserId(), stringIndexes, strings);
+                writeString(out, s.getName(), stringIndexes, strings);
+                out.writeByte(s.getMajor().ordinal());
+                out.writeInt(s.getYearOfStudy());
+                writeString(out, s.getEmail(), stringIndexes, strings);
+                writeString(out, s.getPassword(), stringIndexes, strings);
+            }
+            out.writeInt(users.getCareerStaffList().size());
+            for (CareerStaff s : users.getCareerStaffList()) {
+                writeString(out, s.getUserId(), stringIndexes, strings);
+                writeString(out, s.getName(), stringIndexes, strings);
+                writeString(out, s.getStaffDepartment(), stringIndexes, strings);
+                writeString(out, s.getEmail(), stringIndexes, strings);
+                writeString(out, s.getPassword(), stringIndexes, strings);
+            }
+            out.writeInt(users.getCompanyRepList().size());
+            for (CompanyRep s : users.getCompanyRepList()) {
+                writeString(out, s.getUserId(), stringIndexes, strings);
+                writeString(out, s.getName(), stringIndexes, strings);
+                writeString(out, s.getCompanyName(), stringIndexes, strings);
+                writeString(out, s.getDepartment(), stringIndexes, strings);
+                writeString(out, s.getPosition(), stringIndexes, strings);
+                writeString(out, s.getPassword(), stringIndexes, strings);
+            }
+            out.writeInt(requests.getAllCompanyRepCreationReq().size());
+            for (CompanyRepCreationReq s : requests.getAllCompanyRepCreationReq()) {
+                writeString(out, s.getUserID(), stringIndexes, strings);
+                writeString(out, s.getName(), stringIndexes, strings);
+                writeString(out, s.getCompanyName(), stringIndexes, strings);
+                writeString(out, s.getDepartment(), stringIndexes, strings);
+                writeString(out, s.getPosition(), stringIndexes, strings);
+            }
+            out.writeInt(opportunities.getInternshipOpportunityList().size());
+            for (InternshipOpportunity s : opportunities.getInternshipOpportunityList()) {
+                out.writeInt(s.getOpportunityID());
+                writeString(out, s.getInternshipTitle(), stringIndexes, strings);
+                writeString(out, s.getDescription(), stringIndexes, strings);
+                out.writeByte(s.getInternshipLevel().ordinal());
+                out.writeByte(s.getPreferredMajor().ordinal());
+                out.writeLong(s.getApplicationOpeningDate());
+                out.writeLong(s.getApplicationClosingDate());
+                writeString(out, s.getCompanyName(), stringIndexes, strings);
+                writeString(out, s.getDepartment(), stringIndexes, strings);
+                writeString(out, s.getCompanyRepInCharge(), stringIndexes, strings);
+                out.writeInt(s.getNoOfSlots());
+                out.writeByte(s.getStatus().ordinal());
+                out.writeBoolean(s.getVisible());
+            }
+            out.writeInt(requests.getInternshipWithdrawalReqList().size());
+            for (InternshipWithdrawalReq s : requests.getInternshipWithdrawalReqList()) {
+                writeString(out, s.getUserID(), stringIndexes, strings);
+                out.writeInt(s.getOpportunityID());
+                writeString(out, s.getInternshipTitle(), stringIndexes, strings);
+                writeString(out, s.getCompanyName(), stringIndexes, strings);
+                writeString(out, s.getWithdrawalReason(), stringIndexes, strings);
+            }
+
+            ByteArrayOutputStream snapshot = new ByteArrayOutputStream(body.size() + strings.size() * 16);
+            try (DataOutputStream header = new DataOutputStream(snapshot)) {
+                header.writeInt(MAGIC);
+                header.writeInt(VERSION);
+                header.writeInt(strings.size());
+                for (String string : strings) {
+                    header.writeUTF(string);
+                }
+                body.writeTo(header);
+            }
+            return snapshot.toByteArray();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Checks whether a snapshot exists and was written no earlier than every CSV file.
+     *
+     * @return {@code true} if the snapshot can stand in for the CSV files
+     */
+    public boolean isUpToDate(){
+        try {
+            Path snapshotPath = Paths.get(SNAPSHOT_PATH);
+            if (!Files.exists(snapshotPath)) {
+                return false;
+            }
+            FileTime snapshotTime = Files.getLastModifiedTime(snapshotPath);
+            for (StorageBackend.Table table : StorageBackend.Table.values()) {
+                Path csvPath = CSVStorage.pathOf(table);
+                if (Files.exists(csvPath) && Files.getLastModifiedTime(csvPath).compareTo(snapshotTime) > 0) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Loads every repository from the snapshot file.
+     *
+     * <p>The whole snapshot is decoded before anything is added, so the
+     * repositories are left untouched if it cannot be read.</p>
+     *
+     * @param users         the repository storing user accounts
+     * @param requests      the repository storing account creation and withdrawal requests
+     * @param opportunities the repository storing internship opportunities
+     * @return {@code true} if the snapshot was loaded
+     */
+    public boolean read(UserRepository users, RequestRepository requests, OpportunityRepository opportunities){
+        ArrayList<Student> students = new ArrayList<>();
+        ArrayList<CareerStaff> staff = new ArrayList<>();
+        ArrayList<CompanyRep> companyReps = new ArrayList<>();
+        ArrayList<CompanyRepCreationReq> companyRepReqs = new ArrayList<>();
+        ArrayList<InternshipOpportunity> opportunityList = new ArrayList<>();
+        ArrayList<InternshipWithdrawalReq> withdrawalReqs = new ArrayList<>();
+        Major[] majors = Major.values();
+        InternshipLevel[] levels = InternshipLevel.values();
+        Status[] statuses = Status.values();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(Paths.get(SNAPSHOT_PATH)), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return false;
+            }
+            String[] strings = new String[in.readInt()];
+            for (int i = 0; i < strings.length; i++) {
+                strings[i] = in.readUTF();
+            }
+            for (int n = in.readInt(); n > 0; n--) {
+                String userID = readString(in, strings);
+                String name = readString(in, strings);
+                String major = majors[in.readByte()].name();
+                int yearOfStudy = in.readInt();
+                students.add(new Student(userID, name, major, yearOfStudy, readString(in, strings), readString(in, strings)));
+            }
+            for (int n = in.readInt(); n > 0; n--) {
+                staff.add(new CareerStaff(readString(in, strings), readString(in, strings), readString(in, strings),
+                    readString(in, strings), readString(in, strings)));
+            }
+            for (int n = in.readInt(); n > 0; n--) {
+                companyReps.add(new CompanyRep(readString(in, strings), readString(in, strings), readString(in, strings),
+                    readString(in, strings), readString(in, strings), readString(in, strings)));
+            }
+            for (int n = in.readInt(); n > 0; n--) {
+                companyRepReqs.add(new CompanyRepCreationReq(readString(in, strings), readString(in, strings),
+                    readString(in, strings), readString(in, strings), readString(in, strings)));
+            }
+            for (int n = in.readInt(); n > 0; n--) {
+                int opportunityID = in.readInt();
+                String title = readString(in, strings);
+                String description = readString(in, strings);
+                InternshipLevel level = levels[in.readByte()];
+                Major major = majors[in.readByte()];
+                long openingDate = in.readLong();
+                long closingDate = in.readLong();
+                String companyName = readString(in, strings);
+                String department = readString(in, strings);
+                String companyRep = readString(in, strings);
+                int slots = in.readInt();
+                Status status = statuses[in.readByte()];
+                boolean visible = in.readBoolean();
+                opportunityList.add(new InternshipOpportunity(opportunityID, title, description, level, major, openingDate, closingDate,
+                    companyName, department, companyRep, slots, status, visible, new ArrayList<>()));
+            }
+            for (int n = in.readInt(); n > 0; n--) {
+                String userID = readString(in, strings);
+                int opportunityID = in.readInt();
+                withdrawalReqs.add(new InternshipWithdrawalReq(userID, opportunityID, readString(in, strings),
+                    readString(in, strings), readString(in, strings)));
+            }
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Could not read " + SNAPSHOT_PATH + "; loading the CSV files instead.");
+            return false;
+        }
+        for (Student s : students) users.addStudent(s);
+        for (CareerStaff s : staff) users.addCareerStaff(s);
+        for (CompanyRep s : companyReps) users.addCompanyRep(s);
+        for (CompanyRepCreationReq s : companyRepReqs) requests.addCompanyReqCreationReq(s);
+        for (InternshipOpportunity s : opportunityList) opportunities.addInternshipOpportunity(s);
+        for (InternshipWithdrawalReq s : withdrawalReqs) requests.addInternshipWithdrawalReq(s);
+        return true;
+    }
+
+    private static void writeString(DataOutputStream out, String value, HashMap<String, Integer> stringIndexes, ArrayList<String> strings) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        Integer index = stringIndexes.get(value);
+        if (index == null) {
+            index = strings.size();
+            stringIndexes.put(value, index);
+            strings.add(value);
+        }
+        out.writeInt(index);
+    }
+
+    private static String readString(DataInputStream in, String[] strings) throws IOException {
+        int index = in.readInt();
+        return index < 0 ? null : strings[index];
+    }
+}
@@ -0,0 +1,155 @@
+package util;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps each table in its own CSV file under {@code data/}, the format the
+ * system has always used.
+ *
+ * <p>A table that changes is rewritten in full, and every file rewritten by a
+ * checkpoint is committed in one atomic group through {@link DataCommit},
+ * together with the {@link BinarySnapshot} that lets startup skip parsing them.
+ * Files of at least {@link ParallelCSVReader#PARALLEL_THRESHOLD} bytes are read
+ * by memory-mapping them; smaller ones are read into memory.</p>
+ *
+ * <p>A table's file may also be compressed, and is then named with the
+ * extension of its {@link DataCodec}, such as {@code student_list.csv.gz}. It is
+ * decompressed as it is read, and written back with the same codec, unless the
+ * {@value DataCodec#PROPERTY} system property selects another. The file in the
+ * old format is removed in the same {@link DataCommit} group that commits the
+ * new one, so the manifest never lists two files for a table. A table is read
+ * from the file the manifest lists for it, whatever other files for the table
+ * there are, such as one restored from a backup in another format; only a
+ * table the manifest lists no file for, because it has never been committed, is
+ * read from whichever of its files exists, the plain one first.</p>
+ */
+public class CSVStorage implements StorageBackend {
+    /** Codec tables are written with, or {@code null} to keep each table's current one. */
+    private final DataCodec codec = DataCodec.configured();
+
+    @Override
+    public boolean exists(){
+        for (Table table : Table.values()) {
+            if (Files.exists(pathOf(table))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * {@inheritDoc} A table is rewritten if its file was written with a different
+     * codec from the one the {@value DataCodec#PROPERTY} system property selects.
+     */
+    @Override
+    public boolean needsFullCheckpoint(){
+        if (!exists()) {
+            return true;
+        }
+        if (codec == null) {
+            return false;
+        }
+        for (Table table : Table.values()) {
+            Path path = pathOf(table);
+            if (Files.exists(path) && DataCodec.forPath(path.toString()) != codec) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean keepsSnapshot(){
+        return true;
+    }
+
+    @Override
+    public ByteBuffer readTable(Table table) throws IOException {
+        Path path = pathOf(table);
+        if (!Files.exists(path)) {
+            return null;
+        }
+        return DataCodec.forPath(path.toString()).read(path);
+    }
+
+    @Override
+    public Checkpoint newCheckpoint(Map<String, byte[]> files){
+        LinkedHashMap<String, byte[]> staged = new LinkedHashMap<>();
+        // The table held in each staged file that holds one.
+        LinkedHashMap<String, Table> tables = new LinkedHashMap<>();
+        for (Map.Entry<String, byte[]> e : files.entrySet()) {
+            Table table = Table.forPath(e.getKey());
+            if (table == null) {
+                staged.put(e.getKey(), e.getValue());
+                continue;
+            }
+            DataCodec tableCodec = codec != null ? codec : DataCodec.forPath(pathOf(table).toString());
+            String path = table.getPath() + tableCodec.getExtension();
+            staged.put(path, tableCodec.encode(e.getValue()));
+            tables.put(path, table);
+        }
+        return new Checkpoint() {
+            @Override
+            public boolean isEmpty(){
+                return staged.isEmpty();
+            }
+
+            @Override
+            public void write(DataCommit group) throws IOException {
+                for (Map.Entry<String, byte[]> e : staged.entrySet()) {
+                    group.stage(e.getKey(), e.getValue());
+                }
+                // The table's files in other formats are out of date once the group is committed.
+                for (Map.Entry<String, Table> written : tables.entrySet()) {
+                    for (DataCodec codec : DataCodec.values()) {
+                        String variant = written.getValue().getPath() + codec.getExtension();
+                        if (!variant.equals(written.getKey())) {
+                            group.stageDeletion(variant);
+                        }
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * Finds the file a table is kept in.
+     *
+     * @param table the table
+     * @return the table's file listed in the manifest, preferring one that
+     *         exists; if none is listed, its first file that exists, in the order
+     *         of {@link DataCodec#values()}; or the path of its plain file if it
+     *         has none
+     */
+    static Path pathOf(Table table){
+        Path plain = Paths.get(table.getPath());
+        Set<String> committed = DataCommit.committedFiles(plain.getParent().toString());
+        Path listed = null;
+        Path existing = null;
+        for (DataCodec codec : DataCodec.values()) {
+            Path path = Paths.get(table.getPath() + codec.getExtension());
+            boolean exists = Files.exists(path);
+            if (committed.contains(path.getFileName().toString())) {
+                if (exists) {
+                    return path;
+                }
+                if (listed == null) {
+                    listed = path;
+                }
+            }
+            if (existing == null && exists) {
+                existing = path;
+            }
+        }
+        if (listed != null) {
+            return listed;
+        }
+        return existing != null ? existing : plain;
+    }
+}
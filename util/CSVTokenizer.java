@@ -0,0 +1,295 @@
+package util;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads the fields of one CSV record at a time, following RFC 4180 quoting.
+ *
+ * <p>A field may be enclosed in double quotes, in which case it can contain the
+ * delimiter, and a double quote inside it is written twice. Unquoted fields are
+ * taken as they are. The tokenizer works directly on the record's characters: it
+ * does not split the record into an array, numbers, booleans and enum constants
+ * are read without creating a string, and a tokenizer can be {@link #reset} and
+ * reused for every record of a file. {@link #quote(String)} is the matching
+ * writer side, used by {@link SaveFiles} and the {@link Journal}.</p>
+ *
+ * <p>Records are single lines: every file is written one record per line and
+ * no field contains a line break, since every value is entered on one console
+ * line.</p>
+ *
+ * <p>An empty record, and a record ending in a delimiter, end with an empty
+ * field, as with {@code String.split(delimiter, -1)}. Reading past the last field
+ * throws {@link NoSuchElementException}. A tokenizer is not safe for use by
+ * several threads at once.</p>
+ */
+public class CSVTokenizer {
+    private final char delimiter;
+    /** Unescaped contents of the current field if it was quoted; created on first use. */
+    private StringBuilder unquoted;
+
+    private CharSequence text;
+    /** End of the record within {@link #text}. */
+    private int end;
+    /** Start of the next field, or {@code end + 1} once every field has been read. */
+    private int position;
+
+    /** Bounds of the current field within {@link #text}, if it was not quoted. */
+    private int fieldStart;
+    private int fieldEnd;
+    private boolean fieldQuoted;
+
+    /**
+     * Constructs a tokenizer for comma-separated records.
+     */
+    public CSVTokenizer(){
+        this(',');
+    }
+
+    /**
+     * Constructs a tokenizer for records separated by the given delimiter.
+     *
+     * @param delimiter the character between fields
+     */
+    public CSVTokenizer(char delimiter){
+        this.delimiter = delimiter;
+    }
+
+    /**
+     * Constructs a comma-separated tokenizer positioned at the start of a record.
+     *
+     * @param record the record, without its line terminator
+     */
+    public CSVTokenizer(CharSequence record){
+        this(',');
+        reset(record);
+    }
+
+    /**
+     * Starts reading a new record.
+     *
+     * @param record the record, without its line terminator
+     * @return this tokenizer
+     */
+    public CSVTokenizer reset(CharSequence record){
+        return reset(record, 0, record.length());
+    }
+
+    /**
+     * Starts reading a record held in part of a larger sequence of characters.
+     *
+     * @param text  the characters holding the record
+     * @param start the index of the record's first character
+     * @param end   the index just after the record's last character
+     * @return this tokenizer
+     */
+    public CSVTokenizer reset(CharSequence text, int start, int end){
+        this.text = text;
+        this.end = end;
+        this.position = start;
+        return this;
+    }
+
+    /** @return {@code true} if the record has another field */
+    public boolean hasNext(){
+        return position <= end;
+    }
+
+    /**
+     * Reads the next field as a string.
+     *
+     * @return the field's value, without enclosing quotes
+     * @throws NoSuchElementException if every field has been read
+     */
+    public String next(){
+        advance();
+        return fieldString();
+    }
+
+    /**
+     * Skips the next field.
+     *
+     * @throws NoSuchElementException if every field has been read
+     */
+    public void skip(){
+        advance();
+    }
+
+    /**
+     * Reads the next field as a decimal integer.
+     *
+     * @return the field's value
+     * @throws NumberFormatException if the field is not an integer
+     * @throws NoSuchElementException if every field has been read
+     */
+    public int nextInt(){
+        advance();
+        CharSequence field = field();
+        return Integer.parseInt(field, fieldQuoted ? 0 : fieldStart, fieldQuoted ? field.length() : fieldEnd, 10);
+    }
+
+    /**
+     * Reads the next field as a boolean, in the same way as
+     * {@link Boolean#parseBoolean(String)}.
+     *
+     * @return {@code true} if the field is {@code true}, ignoring case
+     * @throws NoSuchElementException if every field has been read
+     */
+    public boolean nextBoolean(){
+        advance();
+        return fieldEquals("true", true);
+    }
+
+    /**
+     * Reads the next field as the name of an enum constant, in the same way as
+     * {@code valueOf}.
+     *
+     * @param constants every constant of the enum, as returned by {@code values()}
+     * @param <E>       the enum type
+     * @return the constant with that name
+     * @throws IllegalArgumentException if no constant has that name
+     * @throws NoSuchElementException if every field has been read
+     */
+    public <E extends Enum<E>> E nextEnum(E[] constants){
+        advance();
+        for (E constant : constants) {
+            if (fieldEquals(constant.name(), false)) {
+                return constant;
+            }
+        }
+        throw new IllegalArgumentException("No enum constant " + fieldString());
+    }
+
+    /**
+     * Checks whether the next field is empty, without reading it.
+     *
+     * @return {@code true} if there is no next field or it is empty
+     */
+    public boolean nextIsEmpty(){
+        if (position >= end || text.charAt(position) == delimiter) {
+            return true;
+        }
+        // A quoted empty field: two quotes followed by the end of the record or a delimiter.
+        return text.charAt(position) == '"' && position + 1 < end && text.charAt(position + 1) == '"'
+            && (position + 2 == end || text.charAt(position + 2) == delimiter);
+    }
+
+    /**
+     * Formats a value as a CSV field, enclosing it in quotes only if it contains a
+     * comma, a double quote or a line break.
+     *
+     * @param field the value to write
+     * @return the field as it should appear in a record
+     */
+    public static String quote(String field){
+        String value = String.valueOf(field);
+        boolean needsQuotes = false;
+        for (int i = 0; i < value.length() && !needsQuotes; i++) {
+            char c = value.charAt(i);
+            needsQuotes = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!needsQuotes) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * Quotes the field at the end of a row being built, if it needs quoting, so a
+     * long field can be written straight into the row and quoted afterwards.
+     *
+     * @param row   the row being built
+     * @param start the index in {@code row} at which the field starts; the field
+     *              runs to the end of the row
+     */
+    public static void quoteFrom(StringBuilder row, int start){
+        boolean needsQuotes = false;
+        for (int i = start; i < row.length() && !needsQuotes; i++) {
+            char c = row.charAt(i);
+            needsQuotes = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!needsQuotes) {
+            return;
+        }
+        for (int i = row.length() - 1; i >= start; i--) {
+            if (row.charAt(i) == '"') {
+                row.insert(i, '"');
+            }
+        }
+        row.insert(start, '"').append('"');
+    }
+
+    /** Finds the bounds of the next field and moves past it. */
+    private void advance(){
+        if (position > end) {
+            throw new NoSuchElementException("The record has no more fields");
+        }
+        fieldQuoted = position < end && text.charAt(position) == '"';
+        if (!fieldQuoted) {
+            int i = indexOfDelimiter(position);
+            fieldStart = position;
+            fieldEnd = i;
+            position = i + 1;
+            return;
+        }
+        if (unquoted == null) {
+            unquoted = new StringBuilder();
+        }
+        unquoted.setLength(0);
+        int i = position + 1;
+        while (i < end) {
+            char c = text.charAt(i++);
+            if (c != '"') {
+                unquoted.append(c);
+            } else if (i < end && text.charAt(i) == '"') {
+                unquoted.append('"');
+                i++;
+            } else {
+                break;
+            }
+        }
+        // Anything between the closing quote and the delimiter is kept, rather than lost.
+        while (i < end && text.charAt(i) != delimiter) {
+            unquoted.append(text.charAt(i++));
+        }
+        position = i + 1;
+    }
+
+    /** @return the index of the next delimiter at or after {@code from}, or {@link #end} if there is none */
+    private int indexOfDelimiter(int from){
+        if (text instanceof String) {
+            // String.indexOf is intrinsified, and much faster than a charAt loop over long fields.
+            int i = ((String) text).indexOf(delimiter, from);
+            return i < 0 || i > end ? end : i;
+        }
+        int i = from;
+        while (i < end && text.charAt(i) != delimiter) {
+            i++;
+        }
+        return i;
+    }
+
+    private String fieldString(){
+        return fieldQuoted ? unquoted.toString() : text.subSequence(fieldStart, fieldEnd).toString();
+    }
+
+    /** @return the characters of the current field; bounded by fieldStart and fieldEnd if it was not quoted */
+    private CharSequence field(){
+        return fieldQuoted ? unquoted : text;
+    }
+
+    private boolean fieldEquals(String value, boolean ignoreCase){
+        CharSequence field = field();
+        int start = fieldQuoted ? 0 : fieldStart;
+        int length = (fieldQuoted ? field.length() : fieldEnd) - start;
+        if (length != value.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            char a = field.charAt(start + i);
+            char b = value.charAt(i);
+            if (a != b && !(ignoreCase && Character.toLowerCase(a) == Character.toLowerCase(b))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,161 @@
+package util;
+import java.util.ArrayList;
+import java.util.Set;
+
+/**
+ * Which of a loader's known columns each field of a table's rows holds, found
+ * by matching the table's header line by name.
+ *
+ * <p>A loader lists the columns it knows as an enum implementing {@link Column}.
+ * The header is read once per file, so columns may appear in any order, and
+ * columns the loader does not know are skipped. A {@link Projection} can narrow
+ * the columns that are parsed further; every other field is only skipped over by
+ * the {@link CSVTokenizer}, without a string being made of it, and fields after
+ * the last parsed column are not read at all. The first constant of the enum is
+ * the table's key, which the repositories are indexed by, so it is always
+ * parsed, as are any other columns that are {@link Column#isIndexed() indexed}.</p>
+ *
+ * <p>A header that names none of the known columns is taken to list them in the
+ * order they are declared, as the files have always been written.</p>
+ *
+ * <p>A map does not change once read, so it can be shared by the threads that
+ * load a file in parallel.</p>
+ *
+ * @param <C> the enum of known columns
+ */
+public final class ColumnMap<C extends Enum<C> & ColumnMap.Column> {
+    /** A column a loader knows how to parse. */
+    public interface Column {
+        /** @return the column's name in the header line */
+        String getHeader();
+
+        /**
+         * @return {@code true} if the repositories index rows by this column, so
+         *         it is parsed whatever the projection
+         */
+        default boolean isIndexed(){
+            return false;
+        }
+    }
+
+    /** The parsed column at each position of a row, or {@code null} if that field is skipped. */
+    private final ArrayList<C> columns;
+    /** Number of fields a row has to be read up to, to reach every parsed column. */
+    private final int width;
+
+    private ColumnMap(ArrayList<C> columns){
+        this.columns = columns;
+        int last = columns.size() - 1;
+        while (last >= 0 && columns.get(last) == null) {
+            last--;
+        }
+        this.width = last + 1;
+    }
+
+    /**
+     * Matches a table's header line against the known columns.
+     *
+     * @param header     the header line, or {@code null} if the table is empty
+     * @param type       the enum of known columns, with the key column first
+     * @param projection names of the columns to parse, or {@code null} to parse
+     *                   every known column
+     * @param <C>        the enum of known columns
+     * @return the map
+     * @throws IllegalArgumentException if the projection names a column that is
+     *         not known
+     */
+    public static <C extends Enum<C> & Column> ColumnMap<C> read(String header, Class<C> type, Set<String> projection){
+        C[] known = type.getEnumConstants();
+        if (projection != null) {
+            for (String name : projection) {
+                if (find(known, name) == null) {
+                    throw new IllegalArgumentException("Unknown column: " + name);
+                }
+            }
+        }
+        ArrayList<C> columns = new ArrayList<>();
+        boolean matched = false;
+        if (header != null) {
+            // A byte order mark, left by some spreadsheet programs, is not part of the first name.
+            CSVTokenizer names = new CSVTokenizer(header.startsWith("\uFEFF") ? header.substring(1) : header);
+            while (names.hasNext()) {
+                C column = find(known, names.next().trim());
+                if (column != null && columns.contains(column)) {
+                    column = null;
+                }
+                columns.add(column);
+                matched |= column != null;
+            }
+        }
+        if (!matched) {
+            columns.clear();
+            for (C column : known) {
+                columns.add(column);
+            }
+        }
+        if (projection != null) {
+            for (int i = 0; i < columns.size(); i++) {
+                C column = columns.get(i);
+                if (column != null && column != known[0] && !column.isIndexed() && !projection.contains(column.getHeader())) {
+                    columns.set(i, null);
+                }
+            }
+        }
+        return new ColumnMap<>(columns);
+    }
+
+    /**
+     * @return the number of fields a row has to be read up to, to reach every
+     *         parsed column
+     */
+    public int width(){
+        return width;
+    }
+
+    /**
+     * Finds the column held by a field.
+     *
+     * @param position the field's position in the row, from {@code 0}
+     * @return the column, or {@code null} if the field is to be skipped
+     */
+    public C get(int position){
+        return position < columns.size() ? columns.get(position) : null;
+    }
+
+    /**
+     * Checks whether a column is in the table and parsed.
+     *
+     * @param column the column
+     * @return {@code true} if some field holds the column and it is parsed
+     */
+    public boolean contains(C column){
+        return columns.contains(column);
+    }
+
+    /**
+     * Finds the position of a parsed column.
+     *
+     * @param column the column
+     * @return its position in the row, or {@code -1} if it is not parsed
+     */
+    public int indexOf(C column){
+        return columns.indexOf(column);
+    }
+
+    /**
+     * @param position a field's position in the row, from {@code 0}
+     * @return {@code true} if the header has no column after it
+     */
+    public boolean isLastField(int position){
+        return position == columns.size() - 1;
+    }
+
+    private static <C extends Enum<C> & Column> C find(C[] known, String name){
+        for (C column : known) {
+            if (column.getHeader().equals(name)) {
+                return column;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,358 @@
+package util;
+import entities.InternshipOpportunity;
+import repositories.OpportunityRepository;
+import repositories.RequestRepository;
+import repositories.UserRepository;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+
+/**
+ * Background process that folds the {@link Journal} into a fresh checkpoint of
+ * the data files, so that the journal, and with it the time taken to replay it
+ * at startup, stays bounded however long the application runs.
+ *
+ * <p>A compaction never reads the repositories the console thread is working on.
+ * It asks the {@link PersistenceService} to {@link PersistenceService#seal() seal}
+ * the journal and applications file at their current length, which is a point at
+ * which every change made so far has been written, and brings its own copy of
+ * the data up to that point. The first compaction loads the copy through
+ * {@link LoadFiles#loadUpTo}, from the last checkpoint plus the journal and
+ * applications file up to the seal point; each later one only folds in the
+ * journal records and application rows written since the previous seal point,
+ * through {@link LoadFiles#replayUpTo}. It then renders every table whose data
+ * the journal changed through {@link SaveFiles}. The tables are handed to the
+ * {@link StorageBackend} as a checkpoint, which the service commits in one atomic
+ * group while cutting the journal back to the records appended after the seal
+ * point. The console keeps working, and journaling, throughout. If a compaction
+ * fails, the copy may disagree with the data files, so it is discarded and the
+ * next compaction loads it again. That includes a file that cannot be read
+ * while loading the copy, which would otherwise leave the copy without its data
+ * and have the checkpoint lose it.</p>
+ *
+ * <p>The applications file is compacted too. Each status change appends a row
+ * that supersedes an earlier one; the rows are counted as they are folded in, so
+ * once superseded rows make up more than a quarter of the file, a compaction
+ * rewrites it with one row per application. Rows appended after the seal point
+ * are carried over onto the rewritten file.</p>
+ *
+ * <p>The compactor checks every {@link #CHECK_INTERVAL_MILLIS} whether a
+ * compaction is due: when the journal holds {@link Journal#CHECKPOINT_INTERVAL}
+ * records, or when anything has been journaled or applied for since the last
+ * compaction and {@link #COMPACTION_INTERVAL_MILLIS} have passed. A backend that
+ * holds no data yet is filled by the first check, from the CSV files, and CSV
+ * files written with a different {@link DataCodec} from the configured one are
+ * all rewritten by it. {@link #shutdown()} runs a last compaction if anything
+ * has changed since the previous one, or the backend still needs every table
+ * written, so that a session shorter than the interval still leaves a
+ * checkpoint rather than only a journal, and in the configured format.</p>
+ *
+ * <p>The copy of the data is kept from the first compaction until shutdown, so
+ * while the application runs the data is held twice. If users are kept on disk,
+ * so are the copy's, and the students and company representatives are streamed
+ * from its file when their tables are rendered.</p>
+ */
+public class Compactor {
+    /** How often the compactor checks whether a compaction is due, in milliseconds. */
+    public static final long CHECK_INTERVAL_MILLIS = 10_000;
+    /** Longest time changes are left in the journal before being compacted, in milliseconds. */
+    public static final long COMPACTION_INTERVAL_MILLIS = 5 * 60_000;
+    /** Share of superseded rows at which the applications file is rewritten. */
+    private static final int SUPERSEDED_ROW_DIVISOR = 4;
+
+    private final PersistenceService persistence;
+    private final StorageBackend storage;
+    /** Kept across compactions, as it tracks the application positions already read. */
+    private final LoadFiles loader;
+    /** Kept across compactions so unchanged opportunity rows can be reused. */
+    private final SaveFiles saveFiles = new SaveFiles();
+    /** Held for the whole of a compaction, so compactions never overlap. */
+    private final Object compactionLock = new Object();
+    private final Thread worker;
+    private boolean checkRequested = false;
+    private boolean stopped = false;
+
+    /** Time of the last compaction, from {@link System#nanoTime()}. */
+    private long lastCompactionNanos = System.nanoTime();
+    /** Length of the applications file after the last compaction, or when the compactor started. */
+    private long lastApplicationsLength;
+
+    // The copy of the data, used only while holding compactionLock; null until the first compaction or after a failed one.
+    private UserRepository users;
+    private RequestRepository requests;
+    private OpportunityRepository opportunities;
+    /** Position in the applications file up to which the copy holds its rows. */
+    private long copiedApplicationsLength;
+    /** Number of rows in the applications file up to that position. */
+    private long applicationRows;
+    /** Number of those rows that supersede an earlier row. */
+    private long supersedingApplicationRows;
+
+    private long compactions = 0;
+    private long recordsCompacted = 0;
+    private long totalCompactionNanos = 0;
+    private long maxCompactionNanos = 0;
+
+    /**
+     * Constructs the compactor and starts its background thread.
+     *
+     * @param persistence the service that writes the data files
+     * @param storage the backend the data is checkpointed to
+     */
+    public Compactor(PersistenceService persistence, StorageBackend storage){
+        this.persistence = persistence;
+        this.storage = storage;
+        this.loader = new LoadFiles(storage);
+        try {
+            lastApplicationsLength = persistence.seal().getApplicationsLength();
+        } catch (IOException e) {
+            // Nothing has been submitted yet; a length of 0 only makes the first check compact sooner.
+            e.printStackTrace();
+        }
+        worker = new Thread(this::run, "compactor");
+        worker.setDaemon(true);
+        worker.setPriority(Thread.MIN_PRIORITY);
+        worker.start();
+    }
+
+    /**
+     * Wakes the compactor to check straight away whether a compaction is due,
+     * without waiting for it.
+     */
+    public synchronized void requestCheck(){
+        checkRequested = true;
+        notifyAll();
+    }
+
+    /**
+     * Stops the background thread, waits for a compaction that is running, and
+     * runs a last one on the calling thread if anything has been journaled or
+     * applied for since, or the backend still needs every table written. This must be called before the
+     * {@link PersistenceService} is shut down. If the last compaction fails, the
+     * journal it would have folded is kept, so nothing is lost.
+     */
+    public void shutdown(){
+        synchronized (this) {
+            stopped = true;
+            notifyAll();
+        }
+        synchronized (compactionLock) {
+            try {
+                if (hasChanges() || storage.needsFullCheckpoint()) {
+                    compact();
+                }
+            } catch (IOException e) {
+                // The changes could not be written, which the PersistenceService reports as it
+                // shuts down, or the data could not be read; either way the journal is kept.
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+            discardCopy();
+        }
+    }
+
+    /**
+     * Checks whether a compaction is due.
+     *
+     * @return {@code true} if the journal has reached {@link Journal#CHECKPOINT_INTERVAL}
+     *         records, anything has been written since the last compaction and
+     *         {@link #COMPACTION_INTERVAL_MILLIS} have passed, or the backend
+     *         {@link StorageBackend#needsFullCheckpoint() needs every table written}
+     * @throws IOException if the changes made so far could not be written
+     */
+    public boolean isDue() throws IOException {
+        int records = persistence.getJournalRecords();
+        if (records >= Journal.CHECKPOINT_INTERVAL || storage.needsFullCheckpoint()) {
+            return true;
+        }
+        long elapsedMillis;
+        synchronized (this) {
+            elapsedMillis = (System.nanoTime() - lastCompactionNanos) / 1_000_000;
+        }
+        if (elapsedMillis < COMPACTION_INTERVAL_MILLIS) {
+            return false;
+        }
+        return hasChanges();
+    }
+
+    /**
+     * Checks whether anything has been journaled or applied for since the last compaction.
+     *
+     * @throws IOException if the changes made so far could not be written
+     */
+    private boolean hasChanges() throws IOException {
+        long applicationsLength;
+        synchronized (this) {
+            applicationsLength = lastApplicationsLength;
+        }
+        return persistence.getJournalRecords() > 0 || applicationsLength != persistence.seal().getApplicationsLength();
+    }
+
+    /**
+     * Folds the journal and applications file, as they stand now, into a new
+     * checkpoint, and waits until it has been committed. Compactions normally run
+     * on the compactor's own thread; this runs one on the calling thread.
+     *
+     * @throws IOException if the changes made so far could not be written, or
+     *         the data could not be read, in which case nothing is compacted
+     */
+    public void compact() throws IOException {
+        synchronized (compactionLock) {
+            long start = System.nanoTime();
+            PersistenceService.SealPoint seal = persistence.seal();
+            byte[] applications;
+            try {
+                if (opportunities == null) {
+                    users = UserRepository.configured();
+                    requests = new RequestRepository();
+                    opportunities = new OpportunityRepository();
+                    loader.loadUpTo(users, requests, opportunities, seal.getJournalLength(), seal.getApplicationsLength());
+                    applicationRows = 0;
+                    supersedingApplicationRows = 0;
+                } else {
+                    loader.replayUpTo(users, requests, opportunities, seal.getJournalLength(), copiedApplicationsLength, seal.getApplicationsLength());
+                }
+                applicationRows += loader.getApplicationRowsRead();
+                supersedingApplicationRows += loader.getSupersedingApplicationRowsRead();
+                if (supersedingApplicationRows * SUPERSEDED_ROW_DIVISOR > applicationRows) {
+                    // Parsed, so that only each application's latest row is written back.
+                    for (InternshipOpportunity opp : opportunities.getInternshipOpportunityList()) {
+                        opp.getApplicationList();
+                    }
+                    opportunities.markApplicationFileOutdated();
+                }
+                saveFiles.saveStudentCSV(users);
+                saveFiles.saveStaffCSV(users);
+                saveFiles.saveCompanyRepCSV(users);
+                saveFiles.saveCompanyRepReqCSV(requests);
+                saveFiles.saveInternshipOpportunityCSV(opportunities);
+                saveFiles.saveApplicationCSV(opportunities);
+                saveFiles.saveInternshipWithdrawalRequests(requests);
+                if (storage.keepsSnapshot() && !users.isDiskBacked()) {
+                    saveFiles.saveSnapshot(users, requests, opportunities);
+                }
+                LinkedHashMap<String, byte[]> files = saveFiles.takeRenderedFiles();
+                applications = files.remove(SaveFiles.APPLICATIONS_PATH);
+                if (storage.needsFullCheckpoint()) {
+                    addUnchangedCSVFiles(files);
+                }
+                StorageBackend.Checkpoint checkpoint = storage.newCheckpoint(files);
+                if (!checkpoint.isEmpty() || applications != null || seal.getJournalLength() > 0) {
+                    long committed = persistence.getCompactionsCommitted();
+                    persistence.submitCompaction(checkpoint, applications, seal);
+                    persistence.flush();
+                    if (persistence.getCompactionsCommitted() == committed) {
+                        throw new IOException("The checkpoint could not be committed; the journal is kept");
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                // The copy was marked saved as it was rendered, so it no longer matches the data files.
+                discardCopy();
+                throw e;
+            }
+            if (applications == null) {
+                copiedApplicationsLength = seal.getApplicationsLength();
+            } else {
+                // The rewritten file starts with the rendered rows; rows appended since the seal point follow them.
+                copiedApplicationsLength = applications.length;
+                applicationRows = countRows(applications);
+                supersedingApplicationRows = 0;
+            }
+            // Taken after the commit, since rewriting the applications file changes its length.
+            long applicationsLength = persistence.seal().getApplicationsLength();
+            long elapsed = System.nanoTime() - start;
+            synchronized (this) {
+                lastCompactionNanos = System.nanoTime();
+                lastApplicationsLength = applicationsLength;
+                compactions++;
+                recordsCompacted += seal.getJournalRecords();
+                totalCompactionNanos += elapsed;
+                maxCompactionNanos = Math.max(maxCompactionNanos, elapsed);
+            }
+        }
+    }
+
+    /** @return the number of compactions run */
+    public synchronized long getCompactions(){
+        return compactions;
+    }
+
+    /**
+     * Summarises the compactions run so far.
+     *
+     * @return a one-line summary
+     */
+    public synchronized String getStatistics(){
+        return String.format("Compaction: %d compactions, %d journal records folded, average %.1f ms, slowest %.1f ms",
+            compactions, recordsCompacted, compactions == 0 ? 0 : totalCompactionNanos / 1e6 / compactions, maxCompactionNanos / 1e6);
+    }
+
+    /** Counts the rows of a rendered applications file, after its header line. */
+    private static long countRows(byte[] applications){
+        long lines = 0;
+        for (byte b : applications) {
+            if (b == '\n') {
+                lines++;
+            }
+        }
+        return Math.max(lines - 1, 0);
+    }
+
+    /** Drops the copy of the data, deleting its users' file if they were kept on disk. */
+    private void discardCopy(){
+        if (users != null) {
+            users.close();
+        }
+        users = null;
+        requests = null;
+        opportunities = null;
+    }
+
+    /**
+     * Adds the CSV file of every table that was not rendered, so that a backend
+     * being filled for the first time, or converted to another codec, receives
+     * all of them. A table is only left
+     * unrendered if nothing changed it after it was read from its file.
+     *
+     * @throws IOException if a table's file could not be read; the checkpoint
+     *         must then not be committed, as the backend would hold the table as empty
+     */
+    private static void addUnchangedCSVFiles(LinkedHashMap<String, byte[]> files) throws IOException {
+        CSVStorage csvFiles = new CSVStorage();
+        for (StorageBackend.Table table : StorageBackend.Table.values()) {
+            if (files.containsKey(table.getPath())) continue;
+            ByteBuffer content = csvFiles.readTable(table);
+            if (content != null) {
+                byte[] bytes = new byte[content.remaining()];
+                content.get(bytes);
+                files.put(table.getPath(), bytes);
+            }
+        }
+    }
+
+    private void run(){
+        while (true) {
+            synchronized (this) {
+                if (!checkRequested && !stopped) {
+                    try {
+                        wait(CHECK_INTERVAL_MILLIS);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (stopped) {
+                    return;
+                }
+                checkRequested = false;
+            }
+            try {
+                if (isDue()) {
+                    compact();
+                }
+            } catch (IOException | RuntimeException e) {
+                // A compaction that fails leaves the journal in place; the next one retries.
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -0,0 +1,354 @@
+package util;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+
+/**
+ * How a data file is compressed, told apart by the extension added to its name.
+ *
+ * <ul>
+ *     <li>{@link #NONE}: plain CSV, such as {@code student_list.csv};</li>
+ *     <li>{@link #GZIP}: one gzip stream, such as {@code student_list.csv.gz};</li>
+ *     <li>{@link #BLOCK}: gzip in independent blocks of up to {@link #BLOCK_SIZE}
+ *     bytes, such as {@code student_list.csv.bgz}.</li>
+ * </ul>
+ *
+ * <p>A block-compressed file is a series of complete gzip members, so any gzip
+ * tool reads it as one file. Each member records its own length in a gzip extra
+ * field, so {@link #read(Path)} can find every block without inflating the ones
+ * before it, and inflates them in parallel on the common {@link ForkJoinPool}.
+ * Files are otherwise read and written through the streams returned by
+ * {@link #decode(InputStream)} and {@link #encode(OutputStream)}.</p>
+ *
+ * <p>{@link #configured()} returns the codec named by the {@code compression}
+ * system property, {@code none}, {@code gzip} or {@code block}.</p>
+ */
+public enum DataCodec {
+    NONE(""),
+    GZIP(".gz"),
+    BLOCK(".bgz");
+
+    /** Name of the system property that selects the codec data files are written with. */
+    public static final String PROPERTY = "compression";
+    /** Most uncompressed bytes held in one block of a block-compressed file. */
+    public static final int BLOCK_SIZE = 256 << 10;
+
+    private static final int GZIP_MAGIC = 0x8b1f;
+    private static final int FLAG_EXTRA = 4;
+    /** Length of a member's fixed header, its extra field length and its block length subfield. */
+    private static final int BLOCK_HEADER_SIZE = 10 + 2 + 8;
+    /** Length of a member's CRC-32 and uncompressed size. */
+    private static final int TRAILER_SIZE = 8;
+    /** Identifies the extra subfield holding a member's length. */
+    private static final byte SUBFIELD_ID1 = 'B', SUBFIELD_ID2 = 'K';
+
+    private final String extension;
+
+    DataCodec(String extension){
+        this.extension = extension;
+    }
+
+    /** @return the extension added to the name of a file compressed with this codec */
+    public String getExtension(){
+        return extension;
+    }
+
+    /**
+     * Finds the codec a file was written with, from its name.
+     *
+     * @param path the file
+     * @return the codec whose extension the name ends with, or {@link #NONE}
+     */
+    public static DataCodec forPath(String path){
+        for (DataCodec codec : values()) {
+            if (codec != NONE && path.endsWith(codec.extension)) {
+                return codec;
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Returns the codec selected by the {@value #PROPERTY} system property.
+     *
+     * @return the codec, or {@code null} if the property is not set
+     * @throws IllegalArgumentException if the property names no codec
+     */
+    public static DataCodec configured(){
+        String name = System.getProperty(PROPERTY);
+        if (name == null) {
+            return null;
+        }
+        for (DataCodec codec : values()) {
+            if (codec.name().equalsIgnoreCase(name)) {
+                return codec;
+            }
+        }
+        throw new IllegalArgumentException("Unknown compression: " + name);
+    }
+
+    /**
+     * Wraps a stream so that what is written to it is compressed with this codec.
+     * Closing the returned stream finishes the compressed data and closes {@code out}.
+     *
+     * @param out receives the compressed bytes
+     * @return the stream to write the uncompressed bytes to
+     * @throws IOException if the stream cannot be written
+     */
+    public OutputStream encode(OutputStream out) throws IOException {
+        switch (this) {
+            case GZIP:
+                return new GZIPOutputStream(out, 1 << 16);
+            case BLOCK:
+                return new BlockOutputStream(out);
+            default:
+                return out;
+        }
+    }
+
+    /**
+     * Wraps a stream so that what is read from it is decompressed with this codec.
+     * Closing the returned stream closes {@code in}.
+     *
+     * @param in supplies the compressed bytes
+     * @return the stream to read the uncompressed bytes from
+     * @throws IOException if the stream does not hold data in this format
+     */
+    public InputStream decode(InputStream in) throws IOException {
+        // A block-compressed file is a valid multi-member gzip file.
+        return this == NONE ? in : new GZIPInputStream(in, 1 << 16);
+    }
+
+    /**
+     * Compresses a whole file's contents.
+     *
+     * @param content the uncompressed contents
+     * @return the contents as they are stored with this codec
+     */
+    public byte[] encode(byte[] content){
+        if (this == NONE) {
+            return content;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(content.length / 4 + 64);
+        try (OutputStream out = encode(bytes)) {
+            out.write(content);
+        } catch (IOException e) {
+            // ByteArrayOutputStream does not throw.
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Reads and decompresses a whole file written with this codec. Plain files of at
+     * least {@link ParallelCSVReader#PARALLEL_THRESHOLD} bytes are memory-mapped
+     * rather than copied into memory.
+     *
+     * @param path the file
+     * @return the uncompressed contents, positioned at their start
+     * @throws IOException if the file cannot be read, is not in this format, or
+     *         decompresses to more than 2 GB
+     */
+    public ByteBuffer read(Path path) throws IOException {
+        if (this == BLOCK) {
+            ByteBuffer blocks = readBlocks(path);
+            if (blocks != null) {
+                return blocks;
+            }
+        } else if (this == NONE) {
+            if (!ParallelCSVReader.isLarge(path)) {
+                return ByteBuffer.wrap(Files.readAllBytes(path));
+            }
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+        }
+        try (InputStream in = decode(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            return ByteBuffer.wrap(in.readAllBytes());
+        }
+    }
+
+    /**
+     * Inflates every block of a block-compressed file, in parallel.
+     *
+     * @return the contents, or {@code null} if some member does not record its
+     *         length, so the file has to be read as a stream instead
+     */
+    private static ByteBuffer readBlocks(Path path) throws IOException {
+        ByteBuffer file;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                return null;
+            }
+            file = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        ArrayList<int[]> blocks = new ArrayList<>();
+        long total = 0;
+        int position = 0;
+        while (position < file.limit()) {
+            int length = blockLength(file, position);
+            if (length < 0) {
+                return null;
+            }
+            int size = file.getInt(position + length - 4);
+            blocks.add(new int[] {position, length, (int) total, size});
+            total += Integer.toUnsignedLong(size);
+            position += length;
+        }
+        if (total > Integer.MAX_VALUE) {
+            throw new IOException(path + " is too large to load");
+        }
+        byte[] content = new byte[(int) total];
+        ArrayList<ForkJoinTask<Void>> tasks = new ArrayList<>();
+        for (int[] block : blocks) {
+            tasks.add(ForkJoinPool.commonPool().submit(() -> {
+                inflateBlock(file, block[0], block[1], content, block[2], block[3]);
+                return null;
+            }));
+        }
+        try {
+            for (ForkJoinTask<Void> task : tasks) {
+                task.join();
+            }
+        } catch (RuntimeException e) {
+            throw new IOException(path + " is not a valid block-compressed file", e);
+        }
+        return ByteBuffer.wrap(content);
+    }
+
+    /**
+     * Reads the length of the member starting at a position from its extra field.
+     *
+     * @return the length, or {@code -1} if the member does not record it
+     */
+    private static int blockLength(ByteBuffer file, int position){
+        if (file.limit() - position < BLOCK_HEADER_SIZE + TRAILER_SIZE
+                || (file.getShort(position) & 0xffff) != GZIP_MAGIC
+                || file.get(position + 3) != FLAG_EXTRA
+                || file.getShort(position + 10) != 8
+                || file.get(position + 12) != SUBFIELD_ID1
+                || file.get(position + 13) != SUBFIELD_ID2
+                || file.getShort(position + 14) != 4) {
+            return -1;
+        }
+        int length = file.getInt(position + 16);
+        return length < BLOCK_HEADER_SIZE + TRAILER_SIZE || length > file.limit() - position ? -1 : length;
+    }
+
+    /** Inflates one block into its place in the contents. {@code file} must be little-endian. */
+    private static void inflateBlock(ByteBuffer file, int position, int length, byte[] content, int offset, int size){
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(file.slice(position + BLOCK_HEADER_SIZE, length - BLOCK_HEADER_SIZE - TRAILER_SIZE));
+            int inflated = 0;
+            while (inflated < size && !inflater.finished()) {
+                int n = inflater.inflate(content, offset + inflated, size - inflated);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                inflated += n;
+            }
+            CRC32 checksum = new CRC32();
+            checksum.update(content, offset, inflated);
+            if (inflated != size || (int) checksum.getValue() != file.getInt(position + length - TRAILER_SIZE)) {
+                throw new IllegalStateException("Block at " + position + " is corrupt");
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Block at " + position + " is corrupt", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Writes gzip members of up to {@link #BLOCK_SIZE} uncompressed bytes, each
+     * recording its length in an extra subfield.
+     */
+    private static final class BlockOutputStream extends OutputStream {
+        private final OutputStream out;
+        private final byte[] block = new byte[BLOCK_SIZE];
+        private int count = 0;
+        private boolean written = false;
+        private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        private final ByteArrayOutputStream member = new ByteArrayOutputStream();
+        private final byte[] deflated = new byte[1 << 16];
+
+        private BlockOutputStream(OutputStream out){
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (count == block.length) {
+                writeBlock();
+            }
+            block[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (count == block.length) {
+                    writeBlock();
+                }
+                int n = Math.min(len, block.length - count);
+                System.arraycopy(b, off, block, count, n);
+                count += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                // An empty file is still written as one empty member, so it is valid gzip.
+                if (count > 0 || !written) {
+                    writeBlock();
+                }
+                out.close();
+            } finally {
+                deflater.end();
+            }
+        }
+
+        private void writeBlock() throws IOException {
+            member.reset();
+            deflater.reset();
+            deflater.setInput(block, 0, count);
+            deflater.finish();
+            while (!deflater.finished()) {
+                member.write(deflated, 0, deflater.deflate(deflated));
+            }
+            CRC32 checksum = new CRC32();
+            checksum.update(block, 0, count);
+            ByteBuffer header = ByteBuffer.allocate(BLOCK_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putShort((short) GZIP_MAGIC).put((byte) Deflater.DEFLATED).put((byte) FLAG_EXTRA)
+                .putInt(0).put((byte) 0).put((byte) 255)
+                .putShort((short) 8).put(SUBFIELD_ID1).put(SUBFIELD_ID2).putShort((short) 4)
+                .putInt(BLOCK_HEADER_SIZE + member.size() + TRAILER_SIZE);
+            ByteBuffer trailer = ByteBuffer.allocate(TRAILER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            trailer.putInt((int) checksum.getValue()).putInt(count);
+            out.write(header.array());
+            member.writeTo(out);
+            out.write(trailer.array());
+            count = 0;
+            written = true;
+        }
+    }
+}
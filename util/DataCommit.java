@@ -0,0 +1,431 @@
+package util;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * Writes a group of data files so that either all of them or none of them are
+ * replaced, even if the program stops part-way through.
+ *
+ * <p>Files are never written in place. {@link #stage(String, byte[])} writes a
+ * staging copy next to the real file ({@code student_list.csv.tmp}) and records
+ * its size and CRC-32 checksum. {@link #commit()} then:</p>
+ * <ol>
+ *     <li>flushes every staging file to disk;</li>
+ *     <li>writes a new {@code data/manifest.csv} listing the size and checksum of
+ *     every data file, and renames it into place; this rename is the point at
+ *     which the whole group is committed;</li>
+ *     <li>renames each staging file over the file it replaces.</li>
+ * </ol>
+ *
+ * <p>If the program stops before the manifest is renamed, the old files and
+ * manifest are untouched and the staging files are discarded by
+ * {@link #recover(String)}. If it stops afterwards, recovery finishes the job by
+ * renaming every staging file that matches the manifest into place. If a rename
+ * fails after the manifest was renamed, it is tried again, and if it still fails
+ * the commit is left {@link #isIncomplete() incomplete}: the group is committed,
+ * but nothing may be appended to the data files until recovery has run, since
+ * recovery replaces them with their staging files.</p>
+ *
+ * <p>Recovery refuses to go on if a data file no longer matches the manifest,
+ * for example because it was edited by hand or damaged, rather than load data
+ * the system did not write. A file that was changed on purpose can be accepted
+ * as it is by starting with {@code -D}{@value #RECOVERY_PROPERTY}{@code =accept},
+ * which records its current size and checksum in the manifest.</p>
+ *
+ * <p>A file that is appended to between commits, such as the applications file,
+ * is staged as appendable. Its manifest entry then only vouches for the contents
+ * it was committed with, so rows appended since are not reported as a change.</p>
+ *
+ * <p>A data file can also be removed as part of a group, through
+ * {@link #stageDeletion(String)}: the commit drops it from the manifest, and only
+ * deletes it once the group is committed. A file that is not in the manifest
+ * belongs to no committed group, so readers that go by the manifest, such as
+ * {@link CSVStorage}, ignore it even if its deletion did not complete.</p>
+ *
+ * <p>All files staged before a commit are flushed and published together, so a
+ * checkpoint that rewrites several files pays for a single manifest write rather
+ * than one commit per file.</p>
+ */
+public class DataCommit {
+    /** Name of the manifest file, stored alongside the data files. */
+    public static final String MANIFEST_NAME = "manifest.csv";
+    /** Suffix added to the name of a file while it is being written. */
+    public static final String STAGING_SUFFIX = ".tmp";
+    /** System property that, set to {@code accept}, has recovery accept data files that do not match the manifest. */
+    public static final String RECOVERY_PROPERTY = "recovery";
+    /** Number of times a committed staging file's rename is tried before the commit is left incomplete. */
+    private static final int RENAME_ATTEMPTS = 3;
+    /** Time between attempts at a failed rename, in milliseconds. */
+    private static final long RENAME_RETRY_MILLIS = 100;
+
+    /** Files written since the last commit, keyed by their final path. */
+    private LinkedHashMap<Path, StagedFile> staged = new LinkedHashMap<>();
+    /** Files to be removed by the next commit. */
+    private LinkedHashSet<Path> deletions = new LinkedHashSet<>();
+    /** Whether a group was committed without all of its files being moved into place. */
+    private boolean incomplete = false;
+
+    /** A staging file together with its manifest entry. */
+    private static class StagedFile {
+        private final Path stagingPath;
+        private final ManifestEntry entry;
+
+        private StagedFile(Path stagingPath, ManifestEntry entry){
+            this.stagingPath = stagingPath;
+            this.entry = entry;
+        }
+    }
+
+    /** The size and checksum recorded in the manifest for one data file. */
+    private static class ManifestEntry {
+        private final long size;
+        private final long checksum;
+        /** Whether the file may have grown since, in which case the size and checksum cover its start. */
+        private final boolean appendable;
+
+        private ManifestEntry(long size, long checksum, boolean appendable){
+            this.size = size;
+            this.checksum = checksum;
+            this.appendable = appendable;
+        }
+    }
+
+    /**
+     * Writes the new contents of a data file to a staging copy. The real file is
+     * only replaced when {@link #commit()} succeeds.
+     *
+     * @param path    the data file to replace
+     * @param content the file's new contents
+     * @throws IOException if the staging file cannot be written
+     */
+    public void stage(String path, byte[] content) throws IOException {
+        stage(path, content, false);
+    }
+
+    /**
+     * Writes the new contents of a data file to a staging copy. The real file is
+     * only replaced when {@link #commit()} succeeds.
+     *
+     * @param path       the data file to replace
+     * @param content    the file's new contents
+     * @param appendable {@code true} if the file is appended to after it is committed
+     * @throws IOException if the staging file cannot be written, or an earlier
+     *         commit is incomplete and its staging files must be kept for recovery
+     */
+    public void stage(String path, byte[] content, boolean appendable) throws IOException {
+        if (incomplete) {
+            throw new IOException("An earlier commit is incomplete; restart to recover the data files");
+        }
+        Path filePath = Paths.get(path);
+        Path stagingPath = stagingPath(filePath);
+        CRC32 checksum = new CRC32();
+        checksum.update(content);
+        staged.put(filePath, new StagedFile(stagingPath, new ManifestEntry(content.length, checksum.getValue(), appendable)));
+        Files.write(stagingPath, content);
+    }
+
+    /**
+     * Removes a data file as part of the next commit: it is dropped from the
+     * manifest, and deleted once the group has been committed.
+     *
+     * @param path the data file to remove
+     */
+    public void stageDeletion(String path){
+        deletions.add(Paths.get(path));
+    }
+
+    /**
+     * Discards a staged file, for example because it could not be written completely.
+     *
+     * @param path the data file whose staging copy should be discarded
+     */
+    public void discard(String path){
+        StagedFile file = staged.remove(Paths.get(path));
+        if (file != null) {
+            try {
+                Files.deleteIfExists(file.stagingPath);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Discards every staged file without committing any of them.
+     */
+    public void abort(){
+        for (Path path : new ArrayList<>(staged.keySet())) {
+            discard(path.toString());
+        }
+        deletions.clear();
+    }
+
+    /**
+     * Atomically replaces every staged file, removes every file staged for
+     * deletion and updates the manifest.
+     *
+     * <p>Files are committed in the order they were staged, and files to be
+     * removed are deleted after them; one that cannot be deleted is left, outside
+     * the manifest. Once the manifest has
+     * been renamed into place, a staging file that cannot be renamed over its data
+     * file is tried again; if it still cannot be, the commit is left
+     * {@link #isIncomplete() incomplete}: the staging files not yet renamed are
+     * left for {@link #recover(String)}, and nothing more can be staged.</p>
+     *
+     * @return {@code true} if every staged file was committed and moved into
+     *         place, or nothing was staged; {@code false} if the group was not
+     *         committed, or is incomplete
+     */
+    public boolean commit(){
+        if (staged.isEmpty() && deletions.isEmpty()) {
+            return true;
+        }
+        Path dir = (staged.isEmpty() ? deletions.iterator().next() : staged.keySet().iterator().next()).toAbsolutePath().getParent();
+        try {
+            LinkedHashMap<String, ManifestEntry> manifest = readManifest(dir);
+            for (Path path : deletions) {
+                manifest.remove(path.getFileName().toString());
+            }
+            for (Map.Entry<Path, StagedFile> e : staged.entrySet()) {
+                StagedFile file = e.getValue();
+                sync(file.stagingPath);
+                manifest.put(e.getKey().getFileName().toString(), file.entry);
+            }
+            writeManifest(dir, manifest);
+        } catch (IOException e) {
+            e.printStackTrace();
+            abort();
+            return false;
+        }
+        // The group is committed; its files must be in place before anything is appended to them.
+        syncDirectory(dir);
+        for (Iterator<Map.Entry<Path, StagedFile>> files = staged.entrySet().iterator(); files.hasNext();) {
+            Map.Entry<Path, StagedFile> e = files.next();
+            if (!moveIntoPlace(e.getValue().stagingPath, e.getKey())) {
+                incomplete = true;
+                staged.clear();
+                deletions.clear();
+                return false;
+            }
+            files.remove();
+        }
+        for (Path path : deletions) {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        deletions.clear();
+        syncDirectory(dir);
+        return true;
+    }
+
+    /**
+     * Checks whether a group was committed without all of its staging files being
+     * renamed into place. The data files must then not be appended to, since
+     * {@link #recover(String)} replaces them with their staging files when the
+     * program next starts.
+     *
+     * @return {@code true} if a commit is incomplete
+     */
+    public boolean isIncomplete(){
+        return incomplete;
+    }
+
+    /**
+     * Brings the data files in a directory back to a consistent state after the
+     * program stopped, possibly in the middle of a commit.
+     *
+     * <p>Staging files that match the manifest belong to a committed group and are
+     * renamed into place; any others belong to a group that was never committed and
+     * are deleted. Every data file must then match the manifest. One that does not
+     * is only accepted, and recorded in the manifest as it now is, if the
+     * {@value #RECOVERY_PROPERTY} system property is {@code accept}.</p>
+     *
+     * @param dataDir the directory holding the data files and manifest
+     * @throws IOException if the directory cannot be recovered, or a data file
+     *         does not match the manifest and changes are not accepted; the data
+     *         must then not be loaded
+     */
+    public static void recover(String dataDir) throws IOException {
+        Path dir = Paths.get(dataDir);
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        LinkedHashMap<String, ManifestEntry> manifest = readManifest(dir);
+        try (DirectoryStream<Path> stagingFiles = Files.newDirectoryStream(dir, "*" + STAGING_SUFFIX)) {
+            for (Path stagingFile : stagingFiles) {
+                String name = stagingFile.getFileName().toString();
+                name = name.substring(0, name.length() - STAGING_SUFFIX.length());
+                ManifestEntry entry = manifest.get(name);
+                if (entry != null && matches(stagingFile, entry)) {
+                    Files.move(stagingFile, dir.resolve(name), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } else {
+                    Files.delete(stagingFile);
+                }
+            }
+        }
+        syncDirectory(dir);
+        ArrayList<String> changed = new ArrayList<>();
+        for (Map.Entry<String, ManifestEntry> e : manifest.entrySet()) {
+            Path file = dir.resolve(e.getKey());
+            if (Files.exists(file) && !matches(file, e.getValue())) {
+                changed.add(e.getKey());
+            }
+        }
+        if (changed.isEmpty()) {
+            return;
+        }
+        if (!"accept".equals(System.getProperty(RECOVERY_PROPERTY))) {
+            throw new IOException("The data files " + changed + " in " + dir + " have changed since they were last saved."
+                + " Restore them, or start with -D" + RECOVERY_PROPERTY + "=accept to keep them as they are.");
+        }
+        for (String name : changed) {
+            byte[] content = Files.readAllBytes(dir.resolve(name));
+            CRC32 checksum = new CRC32();
+            checksum.update(content);
+            manifest.put(name, new ManifestEntry(content.length, checksum.getValue(), manifest.get(name).appendable));
+            System.out.println("Accepted the changes to " + dir.resolve(name) + ".");
+        }
+        writeManifest(dir, manifest);
+        syncDirectory(dir);
+    }
+
+    /**
+     * Lists the data files in a directory that belong to a committed group.
+     *
+     * @param dataDir the directory holding the data files and manifest
+     * @return the names of the files in the manifest, empty if there is none or it
+     *         cannot be read
+     */
+    public static Set<String> committedFiles(String dataDir){
+        try {
+            return readManifest(Paths.get(dataDir)).keySet();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return new LinkedHashSet<>();
+        }
+    }
+
+    private static Path stagingPath(Path path){
+        return path.resolveSibling(path.getFileName() + STAGING_SUFFIX);
+    }
+
+    /**
+     * Writes a manifest to a staging file, flushes it to disk and renames it into
+     * place. The rename is the point at which the group it describes is committed.
+     */
+    private static void writeManifest(Path dir, LinkedHashMap<String, ManifestEntry> manifest) throws IOException {
+        StringBuilder content = new StringBuilder("File,Size,CRC32,Appendable\n");
+        for (Map.Entry<String, ManifestEntry> e : manifest.entrySet()) {
+            content.append(String.format("%s,%d,%08x,%b\n", e.getKey(), e.getValue().size, e.getValue().checksum, e.getValue().appendable));
+        }
+        Path manifestPath = dir.resolve(MANIFEST_NAME);
+        Path manifestStaging = stagingPath(manifestPath);
+        Files.write(manifestStaging, content.toString().getBytes(StandardCharsets.UTF_8));
+        sync(manifestStaging);
+        Files.move(manifestStaging, manifestPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Renames a committed staging file over its data file, trying again if the
+     * rename fails.
+     *
+     * @return {@code true} if the file was moved into place
+     */
+    private static boolean moveIntoPlace(Path stagingPath, Path path){
+        for (int attempt = 1; ; attempt++) {
+            try {
+                Files.move(stagingPath, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                return true;
+            } catch (IOException e) {
+                if (attempt == RENAME_ATTEMPTS) {
+                    e.printStackTrace();
+                    return false;
+                }
+            }
+            try {
+                Thread.sleep(RENAME_RETRY_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+    }
+
+    private static LinkedHashMap<String, ManifestEntry> readManifest(Path dir) throws IOException {
+        LinkedHashMap<String, ManifestEntry> manifest = new LinkedHashMap<>();
+        Path manifestPath = dir.resolve(MANIFEST_NAME);
+        if (!Files.exists(manifestPath)) {
+            return manifest;
+        }
+        try (BufferedReader br = Files.newBufferedReader(manifestPath, StandardCharsets.UTF_8)) {
+            String line;
+            boolean isHeader = true;
+            while ((line = br.readLine()) != null) {
+                if (isHeader) {
+                    isHeader = false;
+                    continue;
+                }
+                String[] data = line.split(",");
+                if (data.length < 3) continue;
+                boolean appendable = data.length > 3 && Boolean.parseBoolean(data[3]);
+                manifest.put(data[0], new ManifestEntry(Long.parseLong(data[1]), Long.parseLong(data[2], 16), appendable));
+            }
+        }
+        return manifest;
+    }
+
+    private static boolean matches(Path file, ManifestEntry entry) throws IOException {
+        long size = Files.size(file);
+        if (entry.appendable ? size < entry.size : size != entry.size) {
+            return false;
+        }
+        CRC32 checksum = new CRC32();
+        byte[] buffer = new byte[8192];
+        long remaining = entry.size;
+        try (InputStream in = Files.newInputStream(file)) {
+            int n;
+            while (remaining > 0 && (n = in.read(buffer, 0, (int) Math.min(buffer.length, remaining))) > 0) {
+                checksum.update(buffer, 0, n);
+                remaining -= n;
+            }
+        }
+        return checksum.getValue() == entry.checksum;
+    }
+
+    private static void sync(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Flushes a directory's entries so that renames within it survive a power
+     * loss. Not every platform allows a directory to be opened, so this is best effort.
+     */
+    private static void syncDirectory(Path dir){
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Directories cannot be opened on some platforms; the renames are still atomic.
+        }
+    }
+}
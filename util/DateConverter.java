@@ -0,0 +1,155 @@
+package util;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Utility class that converts between the textual dates used in the data files
+ * and console, and the numeric form in which the system stores them.
+ *
+ * <p>Two representations are used:</p>
+ * <ul>
+ *     <li>Calendar dates, such as application opening and closing dates, are
+ *     stored as epoch days (days since 1970-01-01).</li>
+ *     <li>Timestamps, such as when an application was submitted, are stored as
+ *     epoch milliseconds. Local date-times are interpreted as UTC so that a value
+ *     formats back to the same text it was parsed from.</li>
+ * </ul>
+ *
+ * <p>Text is parsed once, when a file is loaded or the user enters a value, and
+ * formatted only when it is written to a file or shown on screen.</p>
+ */
+public class DateConverter {
+    /** Stored in place of a timestamp that was missing or could not be parsed. */
+    public static final long UNKNOWN_DATE_TIME = Long.MIN_VALUE;
+    /** Stored in place of a calendar date that was missing or could not be parsed. */
+    public static final long UNKNOWN_DATE = Long.MIN_VALUE;
+
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+
+    /**
+     * Parses an ISO-8601 date ({@code YYYY-MM-DD}) into an epoch day.
+     *
+     * @param date the date text
+     * @return the number of days since 1970-01-01
+     * @throws DateTimeParseException if the text is not a valid date
+     */
+    public static long parseDate(String date){
+        return LocalDate.parse(date.trim()).toEpochDay();
+    }
+
+    /**
+     * Parses a date read from a data file or the journal into an epoch day,
+     * tolerating text that is not a date so that one bad row does not stop the
+     * rest of the file from loading.
+     *
+     * @param date the date text, or {@code null}
+     * @return the number of days since 1970-01-01, or {@link #UNKNOWN_DATE} if the
+     *         text is empty or not a valid date
+     */
+    public static long parseStoredDate(String date){
+        if (date == null || date.isBlank()) {
+            return UNKNOWN_DATE;
+        }
+        try {
+            return parseDate(date);
+        } catch (DateTimeParseException e) {
+            return UNKNOWN_DATE;
+        }
+    }
+
+    /**
+     * Formats an epoch day as an ISO-8601 date ({@code YYYY-MM-DD}).
+     *
+     * @param epochDay the number of days since 1970-01-01
+     * @return the date text, or an empty string for {@link #UNKNOWN_DATE}
+     */
+    public static String formatDate(long epochDay){
+        if (epochDay == UNKNOWN_DATE) {
+            return "";
+        }
+        return LocalDate.ofEpochDay(epochDay).toString();
+    }
+
+    /**
+     * Returns today's date as an epoch day.
+     *
+     * @return the number of days from 1970-01-01 to today
+     */
+    public static long today(){
+        return LocalDate.now().toEpochDay();
+    }
+
+    /**
+     * Returns the timestamp at the start of the given day.
+     *
+     * @param epochDay the number of days since 1970-01-01
+     * @return the epoch milliseconds at midnight UTC of that day
+     */
+    public static long startOfDay(long epochDay){
+        return epochDay * MILLIS_PER_DAY;
+    }
+
+    /**
+     * Parses a timestamp into epoch milliseconds.
+     *
+     * <p>Both ISO-8601 local date-times ({@code 2025-11-11T15:26:20.7994431}) and
+     * plain dates ({@code 2025-11-15}, taken as the start of that day) are accepted.
+     * Precision beyond milliseconds is dropped.</p>
+     *
+     * @param dateTime the timestamp text
+     * @return the epoch milliseconds, or {@link #UNKNOWN_DATE_TIME} if the text is
+     *         empty or not a recognised timestamp
+     */
+    public static long parseDateTime(String dateTime){
+        if (dateTime == null || dateTime.isBlank()) {
+            return UNKNOWN_DATE_TIME;
+        }
+        String text = dateTime.trim();
+        try {
+            if (text.indexOf('T') >= 0) {
+                return LocalDateTime.parse(text).toInstant(ZoneOffset.UTC).toEpochMilli();
+            }
+            return startOfDay(parseDate(text));
+        } catch (DateTimeParseException e) {
+            return UNKNOWN_DATE_TIME;
+        }
+    }
+
+    /**
+     * Formats epoch milliseconds as ISO-8601 text.
+     *
+     * <p>Timestamps falling exactly at the start of a day are written as a plain
+     * date, matching how they are recorded when only the date is known.</p>
+     *
+     * @param epochMillis the timestamp
+     * @return the timestamp text, or an empty string for {@link #UNKNOWN_DATE_TIME}
+     */
+    public static String formatDateTime(long epochMillis){
+        StringBuilder text = new StringBuilder(32);
+        appendDateTime(text, epochMillis);
+        return text.toString();
+    }
+
+    /**
+     * Appends epoch milliseconds as ISO-8601 text, exactly as
+     * {@link #formatDateTime(long)} formats them, without creating a string.
+     *
+     * @param out         the text to append to
+     * @param epochMillis the timestamp
+     */
+    public static void appendDateTime(StringBuilder out, long epochMillis){
+        if (epochMillis == UNKNOWN_DATE_TIME) {
+            return;
+        }
+        if (Math.floorMod(epochMillis, MILLIS_PER_DAY) == 0) {
+            DateTimeFormatter.ISO_LOCAL_DATE.formatTo(LocalDate.ofEpochDay(Math.floorDiv(epochMillis, MILLIS_PER_DAY)), out);
+            return;
+        }
+        DateTimeFormatter.ISO_LOCAL_DATE_TIME.formatTo(LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneOffset.UTC), out);
+    }
+}
@@ -0,0 +1,212 @@
+package util;
+import java.io.IOException;
+import entities.Application;
+import entities.CompanyRep;
+import entities.CompanyRepCreationReq;
+import entities.InternshipOpportunity;
+import entities.InternshipWithdrawalReq;
+import entities.User;
+
+/**
+ * Append-only write-ahead journal of changes made to the system's data.
+ *
+ * <p>Instead of rewriting every CSV file whenever something changes, each change
+ * is appended to {@code data/journal.log} as a single line at the time it is
+ * made. On startup {@link LoadFiles} loads the CSV files and then replays the
+ * journal on top of them. The CSV files therefore act as checkpoints: a
+ * {@link Compactor} periodically folds the journal into them in the background,
+ * rendering the files whose data has changed through {@link SaveFiles} and
+ * cutting the journal back to the entries made since. The rewritten files are
+ * committed together as one atomic group, so the many changes made between
+ * checkpoints reach the CSV files in a single commit. With a {@link PageStore}
+ * as the {@link StorageBackend}, the store takes the place of the CSV files as
+ * the checkpoint.</p>
+ *
+ * <p>Applications are not journaled. A new application, and every change to an
+ * application's status, is appended as a row of {@link SaveFiles#APPLICATIONS_PATH}
+ * instead, which is already the application's permanent record; a checkpoint
+ * therefore never has to rewrite a file because of an application.</p>
+ *
+ * <p>Neither records nor application rows are written on the calling thread:
+ * both are queued on a {@link PersistenceService}, which writes them in the
+ * background in the order they were made.</p>
+ *
+ * <p>Each line is a comma-separated record whose first field names its type:</p>
+ * <ul>
+ *     <li>{@code OPPORTUNITY_STATUS,opportunityID,STATUS}</li>
+ *     <li>{@code OPPORTUNITY,} followed by the opportunity's CSV columns without its application list</li>
+ *     <li>{@code WITHDRAWAL_REQUEST,studentID,opportunityID,title,companyName,reason}</li>
+ *     <li>{@code WITHDRAWAL_REQUEST_REMOVED,studentID,opportunityID}</li>
+ *     <li>{@code COMPANY_REP_REQUEST,companyRepID,name,companyName,department,position}</li>
+ *     <li>{@code COMPANY_REP_REQUEST_REMOVED,companyRepID}</li>
+ *     <li>{@code COMPANY_REP,} followed by the representative's CSV columns</li>
+ *     <li>{@code PASSWORD,userID,password,ROLE}</li>
+ * </ul>
+ *
+ * <p>Journals written before applications had their own file may also hold
+ * {@code APPLY,opportunityID,applicationIndex,studentID,appliedDateTime} and
+ * {@code APPLICATION_STATUS,opportunityID,applicationIndex,STATUS} records, which
+ * are still replayed. Older {@code PASSWORD} records name no role; they change
+ * the password of the first user found with the ID, looking among students,
+ * then career staff, then company representatives.</p>
+ *
+ * <p>Text fields are quoted as in the CSV files, through
+ * {@link CSVTokenizer#quote(String)}.</p>
+ *
+ * <p>Records state the result of a change rather than the operation that caused
+ * it, so replaying a record that is already reflected in the CSV files leaves the
+ * data unchanged.</p>
+ */
+public class Journal {
+    /** Location of the journal file. */
+    public static final String JOURNAL_PATH = "data/journal.log";
+    /** Number of journal entries at which the journal is folded into the CSV files without waiting for the compaction interval. */
+    public static final int CHECKPOINT_INTERVAL = 1000;
+
+    private PersistenceService persistence;
+    private Compactor compactor;
+
+    /**
+     * Constructs a journal.
+     *
+     * @param persistence the service that writes records in the background
+     * @param compactor   the compactor that folds the journal into the CSV files
+     */
+    public Journal(PersistenceService persistence, Compactor compactor){
+        this.persistence = persistence;
+        this.compactor = compactor;
+    }
+
+    /**
+     * Appends an application, as it now stands, to the applications file. This
+     * records a new application, once it has been added to its opportunity, and
+     * every later change to its status.
+     *
+     * @param application the new or changed application
+     */
+    public void recordApplication(Application application){
+        persistence.submitApplicationRow(SaveFiles.formatApplication(application));
+    }
+
+    /**
+     * Records the current status of an opportunity.
+     *
+     * @param opportunity the opportunity whose status changed
+     */
+    public void recordOpportunityStatus(InternshipOpportunity opportunity){
+        append(String.format("OPPORTUNITY_STATUS,%d,%s", opportunity.getOpportunityID(), opportunity.getStatus().name()));
+    }
+
+    /**
+     * Records every field of an opportunity except its applications, after it
+     * has been created, edited or had its visibility toggled.
+     *
+     * @param opportunity the opportunity to record
+     */
+    public void recordOpportunity(InternshipOpportunity opportunity){
+        append(String.format("OPPORTUNITY,%d,%s,%s,%s,%s,%s,%s,%s,%s,%s,%d,%s,%b",
+            opportunity.getOpportunityID(),
+            CSVTokenizer.quote(opportunity.getInternshipTitle()),
+            CSVTokenizer.quote(opportunity.getDescription()),
+            opportunity.getInternshipLevel().name(),
+            opportunity.getPreferredMajor().name(),
+            DateConverter.formatDate(opportunity.getApplicationOpeningDate()),
+            DateConverter.formatDate(opportunity.getApplicationClosingDate()),
+            CSVTokenizer.quote(opportunity.getCompanyName()),
+            CSVTokenizer.quote(opportunity.getDepartment()),
+            CSVTokenizer.quote(opportunity.getCompanyRepInCharge()),
+            opportunity.getNoOfSlots(),
+            opportunity.getStatus().name(),
+            opportunity.getVisible()));
+    }
+
+    /**
+     * Records a newly submitted withdrawal request.
+     *
+     * @param req the withdrawal request
+     */
+    public void recordWithdrawalRequest(InternshipWithdrawalReq req){
+        append(String.format("WITHDRAWAL_REQUEST,%s,%d,%s,%s,%s",
+            CSVTokenizer.quote(req.getUserID()), req.getOpportunityID(), CSVTokenizer.quote(req.getInternshipTitle()),
+            CSVTokenizer.quote(req.getCompanyName()), CSVTokenizer.quote(req.getWithdrawalReason())));
+    }
+
+    /**
+     * Records that a withdrawal request has been processed and removed.
+     *
+     * @param req the withdrawal request
+     */
+    public void recordWithdrawalRequestRemoved(InternshipWithdrawalReq req){
+        append(String.format("WITHDRAWAL_REQUEST_REMOVED,%s,%d", CSVTokenizer.quote(req.getUserID()), req.getOpportunityID()));
+    }
+
+    /**
+     * Records a newly submitted company representative account creation request.
+     *
+     * @param req the account creation request
+     */
+    public void recordCompanyRepRequest(CompanyRepCreationReq req){
+        append(String.format("COMPANY_REP_REQUEST,%s,%s,%s,%s,%s",
+            CSVTokenizer.quote(req.getUserID()), CSVTokenizer.quote(req.getName()), CSVTokenizer.quote(req.getCompanyName()),
+            CSVTokenizer.quote(req.getDepartment()), CSVTokenizer.quote(req.getPosition())));
+    }
+
+    /**
+     * Records that an account creation request has been processed and removed.
+     *
+     * @param req the account creation request
+     */
+    public void recordCompanyRepRequestRemoved(CompanyRepCreationReq req){
+        append(String.format("COMPANY_REP_REQUEST_REMOVED,%s", CSVTokenizer.quote(req.getUserID())));
+    }
+
+    /**
+     * Records a newly created company representative account.
+     *
+     * @param companyRep the new account
+     */
+    public void recordCompanyRep(CompanyRep companyRep){
+        append(String.format("COMPANY_REP,%s,%s,%s,%s,%s,%s",
+            CSVTokenizer.quote(companyRep.getUserId()), CSVTokenizer.quote(companyRep.getName()), CSVTokenizer.quote(companyRep.getCompanyName()),
+            CSVTokenizer.quote(companyRep.getDepartment()), CSVTokenizer.quote(companyRep.getPosition()), CSVTokenizer.quote(companyRep.getPassword())));
+    }
+
+    /**
+     * Records a user's new password.
+     *
+     * @param user the user who changed their password
+     */
+    public void recordPassword(User user){
+        append(String.format("PASSWORD,%s,%s,%s", CSVTokenizer.quote(user.getUserId()), CSVTokenizer.quote(user.getPassword()), user.getRole().name()));
+    }
+
+    /**
+     * Asks the {@link Compactor} to check whether a checkpoint is due, for
+     * example because at least {@link #CHECKPOINT_INTERVAL} entries have been
+     * journaled since the last one. The check, and any compaction, run in the
+     * background, so this returns straight away.
+     */
+    public void checkpointIfDue(){
+        compactor.requestCheck();
+    }
+
+    /**
+     * Waits until every record and application row made so far has been written
+     * and forced to disk, so that the changes can be reported to the user as saved.
+     *
+     * @throws IOException if they could not be written; they stay queued and are
+     *         retried in the background
+     */
+    public void sync() throws IOException {
+        persistence.flush();
+    }
+
+    /**
+     * Queues one record to be appended to the journal file.
+     *
+     * @param record the record line, without a line terminator
+     */
+    private void append(String record){
+        persistence.submitRecord(record);
+    }
+}
@@ -2,7 +2,28 @@ package util;
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import entities.User.Role;
 import entities.User;
@@ -20,6 +41,10 @@ import repositories.UserRepository;
 import repositories.OpportunityRepository;
 import repositories.RequestRepository;
 import entities.InternshipOpportunity.Status;
+import util.StorageBackend.Table;
+import util.UserFactory.CompanyRepColumn;
+import util.UserFactory.StaffColumn;
+import util.UserFactory.StudentColumn;
 
 /**
  * Utility class responsible for loading all CSV files into the system's repositories.
@@ -30,51 +55,490 @@ import entities.InternshipOpportunity.Status;
  *     <li>Career staff accounts</li>
  *     <li>Company representative accounts</li>
  *     <li>Company representative account creation requests</li>
- *     <li>Internship opportunities (with deserialized application lists)</li>
+ *     <li>Internship opportunities</li>
+ *     <li>Applications, joined back into their opportunities' application lists</li>
  *     <li>Internship withdrawal requests</li>
  * </ul>
  *
  * <p>All CSV files are expected to follow the formats defined by the project.
- * This class is typically called at system startup to populate the repositories
+ * Rows, and the records of the journal, are read with a {@link CSVTokenizer},
+ * so quoted fields may contain commas. A table's file may be compressed, in
+ * which case {@link CSVStorage} picks its {@link DataCodec} from the file's
+ * extension and decompresses it as it is read. This class is typically called at system startup to populate the repositories
  * before any operations begin.</p>
+ *
+ * <p>The files are independent of each other, apart from withdrawal requests,
+ * which may need the loaded opportunities, so {@link #loadCSVs} reads them on
+ * separate threads. The time taken by each startup phase is recorded and can be
+ * printed with {@link #getStartupTimings()}.</p>
  */
 public class LoadFiles {
+    private static final InternshipLevel[] INTERNSHIP_LEVELS = InternshipLevel.values();
+    private static final Major[] MAJORS = Major.values();
+    private static final Status[] STATUSES = Status.values();
+    private static final ApplicationStatus[] APPLICATION_STATUSES = ApplicationStatus.values();
+    private static final Role[] ROLES = Role.values();
+    /** Number of files, or chains of dependent files, loaded at the same time. */
+    private static final int LOADER_THREADS = 5;
+
+    /** The steps of loading, in the order they are reported. */
+    private enum Phase {
+        RECOVERY("recovery"),
+        SNAPSHOT("snapshot"),
+        STUDENTS("students"),
+        CAREER_STAFF("career staff"),
+        COMPANY_REPS("company reps"),
+        COMPANY_REP_REQUESTS("company rep requests"),
+        OPPORTUNITIES("opportunities"),
+        WITHDRAWAL_REQUESTS("withdrawal requests"),
+        APPLICATIONS("applications"),
+        CSV_FILES("CSV files"),
+        JOURNAL("journal replay"),
+        TOTAL("total");
+
+        private final String label;
+
+        Phase(String label){
+            this.label = label;
+        }
+    }
+
+    /** The columns of {@code data/company_rep_req_list.csv}. */
+    private enum CompanyRepRequestColumn implements ColumnMap.Column {
+        COMPANY_REP_ID("CompanyRepID"), NAME("Name"), COMPANY_NAME("CompanyName"), DEPARTMENT("Department"), POSITION("Position");
+
+        private final String header;
+
+        CompanyRepRequestColumn(String header){
+            this.header = header;
+        }
+
+        @Override
+        public String getHeader(){
+            return header;
+        }
+    }
+
+    /**
+     * The columns of {@code data/internship_opps.csv}. Files written before
+     * applications had their own file end with an {@code ApplicationList} column.
+     */
+    private enum OpportunityColumn implements ColumnMap.Column {
+        OPPORTUNITY_ID("OpportunityID", true),
+        TITLE("Title", false),
+        DESCRIPTION("Description", false),
+        LEVEL("Level", true),
+        PREFERRED_MAJOR("PreferredMajor", true),
+        OPENING_DATE("OpeningDate", false),
+        CLOSING_DATE("ClosingDate", false),
+        COMPANY_NAME("CompanyName", false),
+        DEPARTMENT("Department", false),
+        COMPANY_REP_IN_CHARGE("CompanyRepInCharge", false),
+        SLOTS("Slots", false),
+        STATUS("Status", true),
+        VISIBLE("Visible", false),
+        APPLICATION_LIST("ApplicationList", false);
+
+        private final String header;
+        private final boolean indexed;
+
+        OpportunityColumn(String header, boolean indexed){
+            this.header = header;
+            this.indexed = indexed;
+        }
+
+        @Override
+        public String getHeader(){
+            return header;
+        }
+
+        @Override
+        public boolean isIndexed(){
+            return indexed;
+        }
+    }
+
+    /**
+     * The columns of {@code data/withdrawal_req_list.csv}. Files written before
+     * opportunity IDs were introduced have no {@code OpportunityID} column.
+     */
+    private enum WithdrawalColumn implements ColumnMap.Column {
+        STUDENT_ID("StudentID"), OPPORTUNITY_ID("OpportunityID"), INTERNSHIP_TITLE("InternshipTitle"), COMPANY_NAME("CompanyName"), WITHDRAWAL_REASON("WithdrawalReason");
+
+        private final String header;
+
+        WithdrawalColumn(String header){
+            this.header = header;
+        }
+
+        @Override
+        public String getHeader(){
+            return header;
+        }
+    }
+
+    /** Time taken by each phase of the last load, in nanoseconds. */
+    private final EnumMap<Phase, Long> phaseNanos = new EnumMap<>(Phase.class);
+    /** Whether the last opportunity file loaded still listed each opportunity's applications in a column. */
+    private boolean applicationColumnLoaded = false;
+    /** Whether the last applications file read has rows without an {@code ApplicationIndex} column. */
+    private boolean applicationRowsUnindexed = false;
+    /** Next free application position of each opportunity, as of the application rows read so far. */
+    private final HashMap<Integer, Integer> nextApplicationIndex = new HashMap<>();
+    /** Number of application rows in the last part of the applications file read. */
+    private long applicationRowsRead = 0;
+    /** Number of those rows that only update an application read before them. */
+    private long supersedingApplicationRowsRead = 0;
+    /** The backend the data is checkpointed to. */
+    private final StorageBackend storage;
+    /** The backend the tables are read from: {@link #storage}, or the CSV files until it holds any data. */
+    private volatile StorageBackend source;
+    /** The columns of each table that are parsed. */
+    private final Projection projection;
+    /**
+     * Whether a file that cannot be read fails the current load, rather than
+     * being reported and read as empty; set for the loads of a {@link Compactor},
+     * whose copy must hold all of the data.
+     */
+    private volatile boolean readErrorsFatal = false;
+
+    /**
+     * Constructs a loader that reads the CSV files.
+     */
+    public LoadFiles(){
+        this(new CSVStorage());
+    }
+
+    /**
+     * Constructs a loader that reads the tables from the given backend, or from
+     * the CSV files while the backend holds no data.
+     *
+     * @param storage the backend the data is checkpointed to
+     */
+    public LoadFiles(StorageBackend storage){
+        this(storage, Projection.ALL);
+    }
+
+    /**
+     * Constructs a loader that reads the tables from the given backend, or from
+     * the CSV files while the backend holds no data, and only parses the columns
+     * of each table named by a projection. What it loads is incomplete, so the
+     * repositories it loads into are marked read-only; it is meant for tools that
+     * only read a few columns.
+     *
+     * @param storage the backend the data is checkpointed to
+     * @param projection the columns to parse
+     */
+    public LoadFiles(StorageBackend storage, Projection projection){
+        this.storage = storage;
+        this.source = storage;
+        this.projection = projection;
+    }
+
+    /**
+     * Loads all required CSV files into the corresponding repositories, then
+     * replays the {@link Journal} of changes made since they were last written.
+     * The loaded data is marked as saved before the replay, so only what the
+     * journal changes is rewritten at the next compaction.
+     *
+     * <p>Before anything is read, {@link DataCommit#recover(String)} finishes or
+     * discards a save that was interrupted part-way through, and checks that the
+     * data files are as they were saved. A loader with a projection only reads,
+     * and may run while the application is saving, so it leaves that to the
+     * application's next startup; what it reads may then be from before the
+     * interrupted save. The tables are read
+     * from the {@link StorageBackend} this loader was given; if it holds no data
+     * yet, they are read from the CSV files instead and left marked as unsaved, so
+     * the first compaction moves all of them into the backend. If the tables are
+     * read from the CSV files and a {@link BinarySnapshot} at least as new as every
+     * one of them exists, the data is read from it instead. Otherwise the tables
+     * are loaded concurrently, each into its own part of the repositories;
+     * opportunities and then withdrawal requests are loaded by the same thread, so
+     * every table is still read in order.</p>
+     *
+     * <p>The applications file is read on its own thread while the other data
+     * loads, and joined into the opportunities last, once the journal has
+     * recreated any opportunity added since the last compaction. An applications
+     * file saved before each row carried the application's position is reported,
+     * since it can only be read keyed by student. If the
+     * opportunity file was written before applications had their own file, its
+     * applications are loaded from it, and both files are left marked as unsaved
+     * so that the next compaction moves them into the applications file.</p>
+     *
+     * <p>The {@link Compactor} keeps the journal to a bounded length, so the
+     * journal replay takes no longer than replaying the changes of one compaction
+     * interval.</p>
+     *
+     * @param users the repository storing user accounts
+     * @param requests the repository storing account creation and withdrawal requests
+     * @param opportunities the repository storing internship opportunities
+     * @return the number of journal entries replayed
+     * @throws IOException if the data directory could not be recovered, or its
+     *         files have changed since they were saved, in which case nothing is
+     *         loaded; or if users kept on disk could not be written there
+     */
+    public int loadCSVs(UserRepository users, RequestRepository requests, OpportunityRepository opportunities) throws IOException {
+        readErrorsFatal = false;
+        long start = System.nanoTime();
+        if (projection.isComplete()) {
+            DataCommit.recover("data");
+        }
+        long recoveryNanos = System.nanoTime() - start;
+        int entries;
+        try {
+            entries = load(users, requests, opportunities, start, Long.MAX_VALUE, Long.MAX_VALUE);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        record(Phase.RECOVERY, recoveryNanos);
+        if (applicationRowsUnindexed) {
+            System.out.println(SaveFiles.APPLICATIONS_PATH + " was saved without application positions;"
+                + " a student's repeated applications to one opportunity are read as one.");
+        }
+        return entries;
+    }
+
     /**
-     * Loads all required CSV files into the corresponding repositories.
+     * Loads the data as it stood when the journal and applications file had the
+     * given lengths, ignoring anything appended to them since. This is the state
+     * a {@link Compactor} folds into a new checkpoint; unlike {@link #loadCSVs},
+     * it leaves an interrupted save for the next startup to recover, and it fails
+     * if any of the files cannot be read rather than loading what it can.
      *
      * @param users the repository storing user accounts
      * @param requests the repository storing account creation and withdrawal requests
      * @param opportunities the repository storing internship opportunities
+     * @param journalLength number of bytes of the journal to replay
+     * @param applicationsLength number of bytes of the applications file to read
+     * @return the number of journal entries replayed
+     * @throws IOException if a table, the journal or the applications file could
+     *         not be read; the repositories then hold only part of the data
      */
-    public void loadCSVs(UserRepository users, RequestRepository requests, OpportunityRepository opportunities){
-        loadStudentCSV(users);
-        loadCareerStaffCSV(users);
-        loadCompanyRepCSV(users);
-        loadCompanyRepReqCSV(requests);
-        loadWithdrawalRequestCSV(requests);
-        loadOpportunityCSV(opportunities);
+    public int loadUpTo(UserRepository users, RequestRepository requests, OpportunityRepository opportunities, long journalLength, long applicationsLength) throws IOException {
+        readErrorsFatal = true;
+        try {
+            return load(users, requests, opportunities, System.nanoTime(), journalLength, applicationsLength);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Brings repositories loaded through {@link #loadUpTo} forward to a later
+     * point, by replaying the journal up to the given length and adding the rows
+     * of the applications file between the given positions. Journal records are
+     * replayed from the start of the file; a {@link Compactor} has cut the
+     * journal back to the records made since the point the repositories were
+     * loaded at, and replaying a record that is already reflected in them
+     * changes nothing.
+     *
+     * @param users the repository storing user accounts
+     * @param requests the repository storing account creation and withdrawal requests
+     * @param opportunities the repository storing internship opportunities
+     * @param journalLength number of bytes of the journal to replay
+     * @param applicationsStart position in the applications file up to which its
+     *                          rows are already held, which must be at a row boundary
+     * @param applicationsLength position in the applications file up to which to read
+     * @return the number of journal entries replayed
+     * @throws IOException if the journal or the applications file could not be
+     *         read; the repositories may then hold only part of the changes
+     */
+    public int replayUpTo(UserRepository users, RequestRepository requests, OpportunityRepository opportunities, long journalLength, long applicationsStart, long applicationsLength) throws IOException {
+        readErrorsFatal = true;
+        try {
+            int entries = replayJournal(users, requests, opportunities, journalLength);
+            addStoredApplications(opportunities, readApplicationRows(applicationsStart, applicationsLength));
+            return entries;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /** @return the number of rows in the part of the applications file read by the last load or replay */
+    public long getApplicationRowsRead(){
+        return applicationRowsRead;
+    }
+
+    /**
+     * Returns how many of the rows read by the last load or replay updated the
+     * status of an application given by an earlier row, so that the earlier row
+     * is superseded. Rows written before applications carried their position
+     * are not counted.
+     *
+     * @return the number of superseding rows
+     */
+    public long getSupersedingApplicationRowsRead(){
+        return supersedingApplicationRowsRead;
+    }
+
+    /**
+     * Loads the data, timing the phases from {@code start}.
+     */
+    private int load(UserRepository users, RequestRepository requests, OpportunityRepository opportunities, long start, long journalLength, long applicationsLength){
+        synchronized (phaseNanos) {
+            phaseNanos.clear();
+        }
+        applicationColumnLoaded = false;
+        ExecutorService applicationReader = Executors.newSingleThreadExecutor();
+        Future<LinkedHashMap<Integer, String>> applicationRows = applicationReader.submit(() -> timed(Phase.APPLICATIONS, () -> readApplicationRows(0, applicationsLength)));
+        applicationReader.shutdown();
+        boolean migrating = !storage.exists();
+        source = migrating ? new CSVStorage() : storage;
+        BinarySnapshot snapshot = new BinarySnapshot();
+        boolean snapshotRead = source.keepsSnapshot() && !users.isDiskBacked() && snapshot.isUpToDate() && timed(Phase.SNAPSHOT, () -> snapshot.read(users, requests, opportunities));
+        if (!snapshotRead) {
+            timed(Phase.CSV_FILES, () -> loadConcurrently(users, requests, opportunities));
+        }
+        if (applicationColumnLoaded) {
+            opportunities.markApplicationFileOutdated();
+        }
+        if (!migrating) {
+            for (Role role : Role.values()) {
+                users.markSaved(role);
+            }
+            requests.markCompanyRepCreationReqsSaved();
+            requests.markInternshipWithdrawalReqsSaved();
+            if (!applicationColumnLoaded) {
+                opportunities.markSaved();
+            }
+        }
+        int entries = timed(Phase.JOURNAL, () -> replayJournal(users, requests, opportunities, journalLength));
+        try {
+            addStoredApplications(opportunities, applicationRows.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+        if (!projection.isComplete()) {
+            users.markReadOnly();
+            requests.markReadOnly();
+            opportunities.markReadOnly();
+        }
+        record(Phase.TOTAL, System.nanoTime() - start);
+        return entries;
+    }
+
+    /**
+     * Loads the six CSV files on a pool of loader threads and waits for all of
+     * them to finish.
+     *
+     * @param users the repository storing user accounts
+     * @param requests the repository storing account creation and withdrawal requests
+     * @param opportunities the repository storing internship opportunities
+     */
+    private void loadConcurrently(UserRepository users, RequestRepository requests, OpportunityRepository opportunities){
+        ExecutorService loader = Executors.newFixedThreadPool(LOADER_THREADS);
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            tasks.add(loader.submit(() -> timed(Phase.STUDENTS, () -> loadStudentCSV(users))));
+            tasks.add(loader.submit(() -> timed(Phase.CAREER_STAFF, () -> loadCareerStaffCSV(users))));
+            tasks.add(loader.submit(() -> timed(Phase.COMPANY_REPS, () -> loadCompanyRepCSV(users))));
+            tasks.add(loader.submit(() -> timed(Phase.COMPANY_REP_REQUESTS, () -> loadCompanyRepReqCSV(requests))));
+            tasks.add(loader.submit(() -> {
+                timed(Phase.OPPORTUNITIES, () -> loadOpportunityCSV(opportunities));
+                timed(Phase.WITHDRAWAL_REQUESTS, () -> loadWithdrawalRequestCSV(requests, opportunities));
+            }));
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // Malformed rows fail the same way they would if the files were loaded one by one.
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            loader.shutdown();
+        }
+    }
+
+    /**
+     * Summarises how long each phase of the last {@link #loadCSVs} call took.
+     *
+     * <p>Phases that did not run are left out. The slowest of the concurrently
+     * loaded chains, the snapshot or each chain of CSV files, and the applications
+     * file, is named as the critical path, as it alone decides how long loading
+     * the files took.</p>
+     *
+     * @return a one-line summary
+     */
+    public String getStartupTimings(){
+        synchronized (phaseNanos) {
+            StringJoiner summary = new StringJoiner(", ", "Startup: ", "");
+            for (Phase phase : Phase.values()) {
+                Long nanos = phaseNanos.get(phase);
+                if (nanos != null) {
+                    summary.add(String.format("%s %.1f ms", phase.label, nanos / 1e6));
+                }
+            }
+            String criticalPath = null;
+            long slowest = -1;
+            for (Phase phase : new Phase[] {Phase.SNAPSHOT, Phase.STUDENTS, Phase.CAREER_STAFF, Phase.COMPANY_REPS, Phase.COMPANY_REP_REQUESTS, Phase.OPPORTUNITIES, Phase.APPLICATIONS}) {
+                Long nanos = phaseNanos.get(phase);
+                if (nanos == null) continue;
+                if (phase == Phase.OPPORTUNITIES) {
+                    nanos += phaseNanos.getOrDefault(Phase.WITHDRAWAL_REQUESTS, 0L);
+                }
+                if (nanos > slowest) {
+                    slowest = nanos;
+                    criticalPath = phase == Phase.OPPORTUNITIES ? "opportunities, then withdrawal requests" : phase.label;
+                }
+            }
+            if (criticalPath != null) {
+                summary.add("critical path: " + criticalPath);
+            }
+            return summary.toString();
+        }
+    }
+
+    private void timed(Phase phase, Runnable step){
+        long start = System.nanoTime();
+        step.run();
+        record(phase, System.nanoTime() - start);
+    }
+
+    private <T> T timed(Phase phase, Supplier<T> step){
+        long start = System.nanoTime();
+        T result = step.get();
+        record(phase, System.nanoTime() - start);
+        return result;
+    }
+
+    private void record(Phase phase, long nanos){
+        synchronized (phaseNanos) {
+            phaseNanos.put(phase, nanos);
+        }
     }
     /**
      * Loads student accounts from {@code data/student_list.csv} into the UserRepository.
      *
-     * <p>Each row is delegated to {@link UserFactory} to parse and construct a Student object.</p>
+     * <p>Each row is delegated to {@link UserFactory} to parse and construct a
+     * Student object, with its fields found by name from the file's header.
+     * Large tables are parsed in parallel by {@link ParallelCSVReader}. If the
+     * repository keeps students on disk, the rows are handed to it unparsed.</p>
      *
      * @param userRepository the repository where students will be added
+     * @throws UncheckedIOException if the repository keeps students on disk and
+     *         they could not be written there
      */
     public void loadStudentCSV(UserRepository userRepository){
         UserFactory userFactory = new UserFactory();
-        String pathString = "data/student_list.csv";
-        String line;
-        try(BufferedReader br = new BufferedReader(new FileReader(pathString))){
-            line = br.readLine();
-            while ((line = br.readLine())!=null){
-                User user = userFactory.addUser(line, Role.STUDENT);
-                Student student = (Student)user;
-                userRepository.addStudent(student);
-            }
-        } catch (IOException e){
-            e.printStackTrace();
-        } 
+        ByteBuffer content = readTable(Table.STUDENTS);
+        ColumnMap<StudentColumn> columns = readColumns(Table.STUDENTS, content, StudentColumn.class);
+        Function<String, Student> parser = line -> userFactory.addStudent(new CSVTokenizer(line), columns);
+        if (userRepository.isDiskBacked()) {
+            loadRowsToDisk(content, rows -> userRepository.loadStudentRows(rows, columns.indexOf(StudentColumn.STUDENT_ID), parser));
+            return;
+        }
+        for (Student student : parseRows(content, parser)) {
+            userRepository.addStudent(student);
+        }
     }
     /**
      * Loads career staff accounts from {@code data/staff_list.csv}.
@@ -83,38 +547,31 @@ public class LoadFiles {
      */
     public void loadCareerStaffCSV(UserRepository userRepository){
         UserFactory userFactory = new UserFactory();
-        String pathString = "data/staff_list.csv";
-        String line;
-        try(BufferedReader br = new BufferedReader(new FileReader(pathString))){
-            line = br.readLine();
-            while ((line = br.readLine())!=null){
-                User user = userFactory.addUser(line, Role.CAREER_STAFF);
-                CareerStaff careerStaff = (CareerStaff)user;
-                userRepository.addCareerStaff(careerStaff);
-            }
-        } catch (IOException e){
-            e.printStackTrace();
-        } 
+        ByteBuffer content = readTable(Table.CAREER_STAFF);
+        ColumnMap<StaffColumn> columns = readColumns(Table.CAREER_STAFF, content, StaffColumn.class);
+        for (CareerStaff staff : parseRows(content, line -> userFactory.addCareerStaff(new CSVTokenizer(line), columns))) {
+            userRepository.addCareerStaff(staff);
+        }
     }
     /**
      * Loads company representative accounts from {@code data/company_rep_list.csv}.
      *
      * @param userRepository the repository where company reps will be added
+     * @throws UncheckedIOException if the repository keeps company reps on disk
+     *         and they could not be written there
      */
     public void loadCompanyRepCSV(UserRepository userRepository){
         UserFactory userFactory = new UserFactory();
-        String pathString = "data/company_rep_list.csv";
-        String line;
-        try(BufferedReader br = new BufferedReader(new FileReader(pathString))){
-            line = br.readLine();
-            while ((line = br.readLine())!=null){
-                User user = userFactory.addUser(line, Role.COMPANY_REP);
-                CompanyRep companyRep = (CompanyRep)user;
-                userRepository.addCompanyRep(companyRep);
-            }
-        } catch (IOException e){
-            e.printStackTrace();
-        } 
+        ByteBuffer content = readTable(Table.COMPANY_REPS);
+        ColumnMap<CompanyRepColumn> columns = readColumns(Table.COMPANY_REPS, content, CompanyRepColumn.class);
+        Function<String, CompanyRep> parser = line -> userFactory.addCompanyRep(new CSVTokenizer(line), columns);
+        if (userRepository.isDiskBacked()) {
+            loadRowsToDisk(content, rows -> userRepository.loadCompanyRepRows(rows, columns.indexOf(CompanyRepColumn.COMPANY_REP_ID), parser));
+            return;
+        }
+        for (CompanyRep companyRep : parseRows(content, parser)) {
+            userRepository.addCompanyRep(companyRep);
+        }
     }
     
     /**
@@ -124,96 +581,706 @@ public class LoadFiles {
      * @param requestRepository the repository where the requests will be stored
      */
     public void loadCompanyRepReqCSV(RequestRepository requestRepository){
-        String pathString = "data/company_rep_req_list.csv";
-        String line;
-        try(BufferedReader br = new BufferedReader(new FileReader(pathString))){
-            line = br.readLine();
-            while ((line = br.readLine())!=null){
-                String[] data = line.split(",");
-                CompanyRepCreationReq req = new CompanyRepCreationReq(data[0],data[1],data[2],data[3],data[4]);
-                requestRepository.addCompanyReqCreationReq(req);
+        ByteBuffer content = readTable(Table.COMPANY_REP_REQUESTS);
+        ColumnMap<CompanyRepRequestColumn> columns = readColumns(Table.COMPANY_REP_REQUESTS, content, CompanyRepRequestColumn.class);
+        for (CompanyRepCreationReq req : parseRows(content, line -> {
+            CSVTokenizer fields = new CSVTokenizer(line);
+            String userID = null, name = null, companyName = null, department = null, position = null;
+            for (int i = 0; i < columns.width(); i++) {
+                CompanyRepRequestColumn column = columns.get(i);
+                if (column == null) {
+                    fields.skip();
+                    continue;
+                }
+                switch (column) {
+                    case COMPANY_REP_ID -> userID = fields.next();
+                    case NAME -> name = fields.next();
+                    case COMPANY_NAME -> companyName = fields.next();
+                    case DEPARTMENT -> department = fields.next();
+                    case POSITION -> position = fields.next();
+                }
             }
-        } catch (IOException e){
-            e.printStackTrace();
-        } 
+            return new CompanyRepCreationReq(userID, name, companyName, department, position);
+        })) {
+            requestRepository.addCompanyReqCreationReq(req);
+        }
     }
 
     /**
-     * Loads internship opportunities from {@code data/internship_opps.csv},
-     * including deserialization of any stored application lists.
+     * Loads internship opportunities from {@code data/internship_opps.csv}.
+     *
+     * <p>Fields are found by name from the file's header. Files written before
+     * opportunity IDs were introduced have no {@code OpportunityID} column; their
+     * opportunities are numbered by the repository in file order. Files written
+     * before applications had their own file end with an {@code ApplicationList}
+     * column, which is deserialized into each opportunity's application list.
+     * Opening and closing dates are parsed into epoch days here, once. Large
+     * tables are parsed in parallel by {@link ParallelCSVReader}.</p>
      *
      * @param opportunityRepository the repository where opportunities will be added
      */
     public void loadOpportunityCSV(OpportunityRepository opportunityRepository){
-        String pathString = "data/internship_opps.csv";
-        String line;
-        try(BufferedReader br = new BufferedReader(new FileReader(pathString))){
-            line = br.readLine();
-            while ((line = br.readLine())!=null){
-                String[] data = line.split(",", -1);
-                InternshipLevel level = InternshipLevel.valueOf(data[2]);
-                Major major = Major.valueOf(data[3]);
-                Status status = Status.valueOf(data[10]);
-                ArrayList<Application> applicationList = new ArrayList<>();
-                if(data.length >= 13 && !data[12].isEmpty()){
-                    applicationList = deserializeApplications(data[12]);
-                }
-                InternshipOpportunity internshipOpp = new InternshipOpportunity(data[0], data[1], level, major, data[4], data[5], data[6], data[7], data[8], Integer.parseInt(data[9]),status, Boolean.parseBoolean(data[11]),applicationList);
-                opportunityRepository.addInternshipOpportunity(internshipOpp);
+        ByteBuffer content = readTable(Table.OPPORTUNITIES);
+        ColumnMap<OpportunityColumn> columns = readColumns(Table.OPPORTUNITIES, content, OpportunityColumn.class);
+        applicationColumnLoaded = columns.contains(OpportunityColumn.APPLICATION_LIST);
+        for (InternshipOpportunity internshipOpp : parseRows(content, line -> parseOpportunity(new CSVTokenizer(line), columns))) {
+            opportunityRepository.addInternshipOpportunity(internshipOpp);
+        }
+    }
+
+    /**
+     * Matches a table's header against the columns its loader knows, keeping
+     * those in this loader's projection.
+     *
+     * @param table the table
+     * @param content the table's contents, or {@code null} if there are none
+     * @param type the enum of known columns
+     * @return the table's columns
+     */
+    private <C extends Enum<C> & ColumnMap.Column> ColumnMap<C> readColumns(Table table, ByteBuffer content, Class<C> type){
+        return ColumnMap.read(content == null ? null : ParallelCSVReader.readHeader(content), type, projection.columnsOf(table));
+    }
+
+    /**
+     * Reads a table from the backend chosen by the current load.
+     *
+     * @param table the table to read
+     * @return its contents, or {@code null} if there are none, or if they could
+     *         not be read and read errors do not fail the load
+     */
+    private ByteBuffer readTable(Table table){
+        try {
+            ByteBuffer content = source.readTable(table);
+            if (content == null) {
+                System.out.println("No saved " + table.getPath() + " found");
             }
+            return content;
+        } catch (IOException e){
+            readFailed(e);
+            return null;
+        }
+    }
+
+    /**
+     * Handles a file that could not be read, by failing the load if
+     * {@link #readErrorsFatal} is set, or otherwise reporting it so the load
+     * carries on without the file's data.
+     *
+     * @param e the failure
+     * @throws UncheckedIOException wrapping {@code e}, if read errors are fatal
+     */
+    private void readFailed(IOException e){
+        if (readErrorsFatal) {
+            throw new UncheckedIOException(e);
+        }
+        e.printStackTrace();
+    }
+
+    /** Receives a table's contents to keep on disk. */
+    private interface DiskLoader {
+        void load(ByteBuffer content) throws IOException;
+    }
+
+    /**
+     * Hands a table's rows to a repository that keeps them on disk, without
+     * parsing them.
+     *
+     * @throws UncheckedIOException if the rows could not be written to disk,
+     *         which would leave every user in the table unable to log in
+     */
+    private void loadRowsToDisk(ByteBuffer content, DiskLoader loader){
+        if (content == null) {
+            return;
+        }
+        try {
+            loader.load(content);
         } catch (IOException e){
-            e.printStackTrace();
-        } 
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Parses every row of a table after its header.
+     *
+     * @param content the table's contents, or {@code null} if there are none
+     * @param parser converts one row; may be called concurrently
+     * @return the parsed rows, in order
+     */
+    private static <T> List<T> parseRows(ByteBuffer content, Function<String, T> parser){
+        return content == null ? new ArrayList<>() : ParallelCSVReader.parseLines(content, parser);
+    }
+
+    /**
+     * Parses one row of {@code data/internship_opps.csv}.
+     *
+     * @param fields a tokenizer positioned at the start of the CSV row
+     * @param columns the file's columns
+     * @return the opportunity, with an ID of {@code 0} if the file has none, and
+     *         {@code null}, zero, {@code false} or an unknown date for the
+     *         columns not parsed
+     */
+    private InternshipOpportunity parseOpportunity(CSVTokenizer fields, ColumnMap<OpportunityColumn> columns){
+        int opportunityID = 0;
+        String title = null, description = null, companyName = null, department = null, companyRep = null;
+        InternshipLevel level = null;
+        Major major = null;
+        long openingDate = DateConverter.UNKNOWN_DATE, closingDate = DateConverter.UNKNOWN_DATE;
+        int slots = 0;
+        Status status = null;
+        boolean visible = false;
+        ArrayList<Application> applicationList = new ArrayList<>();
+        for (int i = 0; i < columns.width(); i++) {
+            OpportunityColumn column = columns.get(i);
+            if (column == null) {
+                fields.skip();
+                continue;
+            }
+            switch (column) {
+                case OPPORTUNITY_ID -> opportunityID = fields.nextInt();
+                case TITLE -> title = fields.next();
+                case DESCRIPTION -> description = fields.next();
+                case LEVEL -> level = fields.nextEnum(INTERNSHIP_LEVELS);
+                case PREFERRED_MAJOR -> major = fields.nextEnum(MAJORS);
+                case OPENING_DATE -> openingDate = DateConverter.parseStoredDate(fields.next());
+                case CLOSING_DATE -> closingDate = DateConverter.parseStoredDate(fields.next());
+                case COMPANY_NAME -> companyName = fields.next();
+                case DEPARTMENT -> department = fields.next();
+                case COMPANY_REP_IN_CHARGE -> companyRep = fields.next();
+                case SLOTS -> slots = fields.nextInt();
+                case STATUS -> status = fields.nextEnum(STATUSES);
+                case VISIBLE -> visible = fields.nextBoolean();
+                case APPLICATION_LIST -> {
+                    // Opportunities without applications may leave the column out.
+                    if (!fields.nextIsEmpty()) {
+                        applicationList = deserializeApplications(fields.next());
+                    } else if (fields.hasNext()) {
+                        fields.skip();
+                    }
+                }
+            }
+        }
+        return new InternshipOpportunity(opportunityID, title, description, level, major, openingDate, closingDate, companyName, department, companyRep, slots, status, visible, applicationList);
     }
 
      /**
-     * Converts a serialized application list (stored in CSV as a single field)
-     * back into a list of {@link Application} objects.
+     * Converts a serialized application list, stored as a single field by opportunity
+     * files written before applications had their own file, back into a list of
+     * {@link Application} objects.
      *
      * <p>The format for each application entry is:</p>
      * <pre>
      * studentId;appliedDate;STATUS
      * </pre>
-     * Entries are separated by {@code |}.
+     * Entries are separated by {@code |}. The applied date may be a date or a
+     * date-time; it is parsed into epoch milliseconds, and anything unrecognised
+     * is recorded as unknown.
      *
      * @param data the serialized application string
      * @return a list of Application objects
      */
-    private ArrayList<Application> deserializeApplications(String data) {
+    private static ArrayList<Application> deserializeApplications(String data) {
         ArrayList<Application> apps = new ArrayList<>();
         if (data == null || data.isEmpty()) return apps;
 
-        String[] tokens = data.split("\\|");
-        for (String token : tokens) {
-            String[] parts = token.split(";");
-            if (parts.length < 3) continue;
-            String studentId = parts[0];
-            String appliedDate = parts[1];
-            ApplicationStatus level = ApplicationStatus.valueOf(parts[2]);
+        CSVTokenizer parts = new CSVTokenizer(';');
+        int start = 0;
+        while (start < data.length()) {
+            int end = data.indexOf('|', start);
+            if (end < 0) end = data.length();
+            parts.reset(data, start, end);
+            start = end + 1;
+            String studentId = parts.next();
+            if (!parts.hasNext()) continue;
+            long appliedDate = DateConverter.parseDateTime(parts.next());
+            if (!parts.hasNext()) continue;
+            ApplicationStatus level = parts.nextEnum(APPLICATION_STATUSES);
             Application app = new Application(studentId, appliedDate, level);
             apps.add(app);
         }
         return apps;
     }
 
+    /**
+     * Joins the applications in {@link SaveFiles#APPLICATIONS_PATH} into their
+     * opportunities' application lists.
+     *
+     * <p>The file holds one row per submitted application or status change, in the
+     * order they were made:</p>
+     * <pre>
+     * opportunityID,studentID,appliedDateTime,STATUS
+     * </pre>
+     * Here the rows are only grouped by opportunity, without being parsed; each
+     * opportunity keeps its rows as text, through
+     * {@link InternshipOpportunity#addStoredApplications}, until its applications
+     * are first used. Rows for an opportunity that does not exist are skipped, and
+     * a missing file means there are no applications.
+     *
+     * @param opportunityRepository the repository holding the loaded opportunities
+     */
+    public void loadApplicationCSV(OpportunityRepository opportunityRepository){
+        addStoredApplications(opportunityRepository, readApplicationRows(0, Long.MAX_VALUE));
+    }
+
+    /**
+     * Reads part of the applications file and groups its rows by opportunity ID,
+     * parsing nothing but the ID and, to count the rows that supersede others,
+     * the application's position.
+     *
+     * @param from position to start reading at: 0 to read the file from its
+     *             header, or a row boundary to read only the rows after it
+     * @param length position to stop reading at, which must be a row boundary
+     * @return each opportunity's rows, each ending in a line feed, in the order
+     *         the opportunities first appear in the part read
+     */
+    private LinkedHashMap<Integer, String> readApplicationRows(long from, long length){
+        LinkedHashMap<Integer, String> rowsByOpportunity = new LinkedHashMap<>();
+        applicationRowsRead = 0;
+        supersedingApplicationRowsRead = 0;
+        if (from == 0) {
+            applicationRowsUnindexed = false;
+            nextApplicationIndex.clear();
+        }
+        Path path = Paths.get(SaveFiles.APPLICATIONS_PATH);
+        if (!Files.exists(path) || from >= length) {
+            return rowsByOpportunity;
+        }
+        String text;
+        try {
+            // Read whole and sliced, which is much faster than a line at a time for a file of short rows.
+            text = new String(readRange(path, from, length), StandardCharsets.UTF_8);
+        } catch (IOException e){
+            readFailed(e);
+            return rowsByOpportunity;
+        }
+        int start = 0;
+        if (from == 0) {
+            int headerEnd = text.indexOf('\n');
+            applicationRowsUnindexed = headerEnd >= 0 && headerEnd + 1 < text.length() && !text.startsWith(SaveFiles.APPLICATIONS_HEADER);
+            // A file without a complete header line holds no rows.
+            start = headerEnd < 0 ? text.length() : headerEnd + 1;
+        }
+        // Runs of consecutive rows for the same opportunity, as start and end positions in the text.
+        LinkedHashMap<Integer, ArrayList<int[]>> runsByOpportunity = new LinkedHashMap<>();
+        int[] run = null;
+        int runID = 0;
+        while (start < text.length()) {
+            int end = text.indexOf('\n', start);
+            end = end < 0 ? text.length() : end + 1;
+            int comma = text.indexOf(',', start);
+            if (comma > start && comma < end) {
+                int opportunityID = Integer.parseInt(text, start, comma, 10);
+                countApplicationRow(text, opportunityID, comma + 1, end);
+                if (run != null && opportunityID == runID && run[1] == start) {
+                    run[1] = end;
+                } else {
+                    run = new int[] {start, end};
+                    runID = opportunityID;
+                    runsByOpportunity.computeIfAbsent(opportunityID, k -> new ArrayList<>()).add(run);
+                }
+            }
+            start = end;
+        }
+        for (Map.Entry<Integer, ArrayList<int[]>> e : runsByOpportunity.entrySet()) {
+            ArrayList<int[]> runs = e.getValue();
+            String rows;
+            if (runs.size() == 1) {
+                rows = text.substring(runs.get(0)[0], runs.get(0)[1]);
+            } else {
+                StringBuilder joined = new StringBuilder();
+                for (int[] r : runs) {
+                    joined.append(text, r[0], r[1]);
+                }
+                rows = joined.toString();
+            }
+            // Only the file's last row can be missing its line feed.
+            rowsByOpportunity.put(e.getKey(), rows.endsWith("\n") ? rows : rows + "\n");
+        }
+        return rowsByOpportunity;
+    }
+
+    /**
+     * Counts a row of the applications file, and whether it supersedes an
+     * earlier row by naming a position already taken.
+     *
+     * @param text the text holding the row
+     * @param opportunityID the row's opportunity ID
+     * @param start position of the field after the opportunity ID
+     * @param end position after the row
+     */
+    private void countApplicationRow(String text, int opportunityID, int start, int end){
+        applicationRowsRead++;
+        int comma = text.indexOf(',', start);
+        // Rows without a position start this field with a student ID rather than a digit.
+        if (comma <= start || comma >= end || !Character.isDigit(text.charAt(start))) {
+            return;
+        }
+        int index = Integer.parseInt(text, start, comma, 10);
+        int next = nextApplicationIndex.getOrDefault(opportunityID, 0);
+        if (index < next) {
+            supersedingApplicationRowsRead++;
+        } else {
+            nextApplicationIndex.put(opportunityID, index + 1);
+        }
+    }
+
+    /**
+     * Reads the bytes of a file between two positions.
+     *
+     * @param path the file to read
+     * @param from the position of the first byte to read
+     * @param to the position after the last byte to read, or {@link Long#MAX_VALUE} for the end of the file
+     * @return the bytes read, which are fewer if the file is shorter
+     * @throws IOException if the file cannot be read
+     */
+    private static byte[] readRange(Path path, long from, long to) throws IOException {
+        if (from == 0) {
+            return readPrefix(path, to);
+        }
+        try (InputStream in = Files.newInputStream(path)) {
+            in.skipNBytes(from);
+            return in.readNBytes((int) Math.min(to - from, Integer.MAX_VALUE));
+        }
+    }
+
+    /**
+     * Reads the first bytes of a file.
+     *
+     * @param path the file to read
+     * @param length the number of bytes to read, or {@link Long#MAX_VALUE} for the whole file
+     * @return the bytes read, which are fewer if the file is shorter
+     * @throws IOException if the file cannot be read
+     */
+    private static byte[] readPrefix(Path path, long length) throws IOException {
+        if (length == Long.MAX_VALUE) {
+            return Files.readAllBytes(path);
+        }
+        try (InputStream in = Files.newInputStream(path)) {
+            return in.readNBytes((int) Math.min(length, Integer.MAX_VALUE));
+        }
+    }
+
+    /**
+     * Hands each opportunity its rows of the applications file, skipping rows for
+     * opportunities that do not exist.
+     */
+    private void addStoredApplications(OpportunityRepository opportunityRepository, LinkedHashMap<Integer, String> rowsByOpportunity){
+        for (Map.Entry<Integer, String> e : rowsByOpportunity.entrySet()) {
+            InternshipOpportunity opp = opportunityRepository.getInternshipOpportunityByID(e.getKey());
+            if (opp != null) {
+                opp.addStoredApplications(e.getValue(), LoadFiles::parseApplicationRows);
+            }
+        }
+    }
+
+    /**
+     * Converts one opportunity's rows of the applications file into its
+     * application list.
+     *
+     * <p>Each row names the application's position in the list. The first row
+     * for a position gives the application there, and each later row for it
+     * replaces its status. Incomplete rows are skipped.</p>
+     *
+     * <p>Rows written before applications carried their position have no
+     * {@code ApplicationIndex} column, and are keyed by student instead: a
+     * student's first such row adds an application after the others, and each
+     * later one replaces the status of that student's latest application.</p>
+     *
+     * @param rows the rows, each ending in a line feed
+     * @return a list of Application objects, in order of position, each holding
+     *         the position it was stored at
+     */
+    static ArrayList<Application> parseApplicationRows(String rows){
+        TreeMap<Integer, Application> appsByIndex = new TreeMap<>();
+        // Latest application of each student, for rows without an application index.
+        HashMap<String, Application> appsByStudent = new HashMap<>();
+        CSVTokenizer fields = new CSVTokenizer();
+        int start = 0;
+        while (start < rows.length()) {
+            int end = rows.indexOf('\n', start);
+            if (end < 0) end = rows.length();
+            fields.reset(rows, start, end > start && rows.charAt(end - 1) == '\r' ? end - 1 : end);
+            start = end + 1;
+            fields.skip();
+            if (!fields.hasNext()) continue;
+            String first = fields.next();
+            if (!fields.hasNext()) continue;
+            String second = fields.next();
+            if (!fields.hasNext()) continue;
+            String third = fields.next();
+            int index;
+            String studentID;
+            long appliedDate;
+            ApplicationStatus status;
+            if (fields.hasNext()) {
+                index = Integer.parseInt(first);
+                studentID = second;
+                appliedDate = DateConverter.parseDateTime(third);
+                status = fields.nextEnum(APPLICATION_STATUSES);
+            } else {
+                studentID = first;
+                appliedDate = DateConverter.parseDateTime(second);
+                status = ApplicationStatus.valueOf(third);
+                Application latest = appsByStudent.get(studentID);
+                index = latest != null ? latest.getApplicationIndex() : appsByIndex.isEmpty() ? 0 : appsByIndex.lastKey() + 1;
+            }
+            Application app = appsByIndex.get(index);
+            if (app != null) {
+                app.setApplicationStatus(status);
+            } else if (index >= 0) {
+                app = new Application(studentID, appliedDate, status, index);
+                appsByStudent.put(studentID, app);
+                appsByIndex.put(index, app);
+            }
+        }
+        return new ArrayList<>(appsByIndex.values());
+    }
+
     /**
      * Loads internship withdrawal requests from
      * {@code data/withdrawal_req_list.csv}.
      *
+     * <p>Opportunities must already be loaded: requests saved before opportunity
+     * IDs were introduced are matched to their opportunity by title and company
+     * name.</p>
+     *
      * @param requestRepository the repository where withdrawal requests will be stored
+     * @param opportunityRepository the repository holding the loaded opportunities
      */
-    public void loadWithdrawalRequestCSV(RequestRepository requestRepository){
-        String pathString = "data/withdrawal_req_list.csv";
+    public void loadWithdrawalRequestCSV(RequestRepository requestRepository, OpportunityRepository opportunityRepository){
+        ByteBuffer content = readTable(Table.WITHDRAWAL_REQUESTS);
+        ColumnMap<WithdrawalColumn> columns = readColumns(Table.WITHDRAWAL_REQUESTS, content, WithdrawalColumn.class);
+        boolean hasOpportunityID = columns.contains(WithdrawalColumn.OPPORTUNITY_ID);
+        for (InternshipWithdrawalReq withdrawalReq : parseRows(content, line -> {
+            CSVTokenizer fields = new CSVTokenizer(line);
+            String studentID = null, title = null, companyName = null, reason = null;
+            int opportunityID = 0;
+            for (int i = 0; i < columns.width(); i++) {
+                WithdrawalColumn column = columns.get(i);
+                if (column == null) {
+                    fields.skip();
+                    continue;
+                }
+                switch (column) {
+                    case STUDENT_ID -> studentID = fields.next();
+                    case OPPORTUNITY_ID -> opportunityID = fields.nextInt();
+                    case INTERNSHIP_TITLE -> title = fields.next();
+                    case COMPANY_NAME -> companyName = fields.next();
+                    // Older files did not quote the reason, so as the last column it takes the rest of the row.
+                    case WITHDRAWAL_REASON -> reason = columns.isLastField(i) ? remainingText(fields) : fields.next();
+                }
+            }
+            if (!hasOpportunityID && title != null && companyName != null) {
+                String oppTitle = title;
+                String oppCompanyName = companyName;
+                opportunityID = opportunityRepository.getInternshipOpportunityList().stream()
+                    .filter(opp -> opp.getInternshipTitle().equals(oppTitle) && opp.getCompanyName().equals(oppCompanyName))
+                    .mapToInt(InternshipOpportunity::getOpportunityID)
+                    .findFirst()
+                    .orElse(0);
+            }
+            return new InternshipWithdrawalReq(studentID, opportunityID, title, companyName, reason);
+        })) {
+            requestRepository.addInternshipWithdrawalReq(withdrawalReq);
+        }
+    }
+
+    /**
+     * Replays {@code data/journal.log} on top of the data loaded from the CSV files.
+     *
+     * <p>Records are applied directly to the repositories and entities in the order
+     * they were written. Records that refer to an opportunity, application or user
+     * that does not exist are skipped. A missing journal means there is nothing to
+     * replay. Applications recorded by a journal written before applications had
+     * their own file leave the applications file marked as outdated, so that they
+     * are moved into it.</p>
+     *
+     * @param users the repository storing user accounts
+     * @param requests the repository storing account creation and withdrawal requests
+     * @param opportunities the repository storing internship opportunities
+     * @return the number of journal entries read
+     */
+    public int replayJournal(UserRepository users, RequestRepository requests, OpportunityRepository opportunities){
+        return replayJournal(users, requests, opportunities, Long.MAX_VALUE);
+    }
+
+    private int replayJournal(UserRepository users, RequestRepository requests, OpportunityRepository opportunities, long length){
+        Path journalPath = Paths.get(Journal.JOURNAL_PATH);
+        if (!Files.exists(journalPath)) {
+            return 0;
+        }
+        UserFactory userFactory = new UserFactory();
+        CSVTokenizer fields = new CSVTokenizer();
+        int entries = 0;
         String line;
-        try(BufferedReader br = new BufferedReader(new FileReader(pathString))){
-            line = br.readLine();
+        try(BufferedReader br = length == Long.MAX_VALUE ? new BufferedReader(new FileReader(Journal.JOURNAL_PATH))
+                : new BufferedReader(new StringReader(new String(readPrefix(journalPath, length), StandardCharsets.UTF_8)))){
             while ((line = br.readLine())!=null){
-                String[] data = line.split(",");
-                InternshipWithdrawalReq withdrawalReq = new InternshipWithdrawalReq(data[0], data[1], data[2], data[3]);
-                requestRepository.addInternshipWithdrawalReq(withdrawalReq);
+                if (line.isEmpty()) continue;
+                entries++;
+                fields.reset(line);
+                String type = fields.next();
+                switch (type) {
+                    case "APPLY" -> {
+                        InternshipOpportunity opp = opportunities.getInternshipOpportunityByID(fields.nextInt());
+                        int index = fields.nextInt();
+                        if (opp != null && opp.getApplicationList().size() == index) {
+                            String studentID = fields.next();
+                            opp.addApplication(new Application(studentID, DateConverter.parseDateTime(fields.next()), ApplicationStatus.PENDING));
+                            opportunities.markApplicationFileOutdated();
+                        }
+                    }
+                    case "APPLICATION_STATUS" -> {
+                        InternshipOpportunity opp = opportunities.getInternshipOpportunityByID(fields.nextInt());
+                        int index = fields.nextInt();
+                        if (opp != null && index >= 0 && index < opp.getApplicationList().size()) {
+                            opp.getApplicationList().get(index).setApplicationStatus(fields.nextEnum(APPLICATION_STATUSES));
+                            opportunities.markApplicationFileOutdated();
+                        }
+                    }
+                    case "OPPORTUNITY_STATUS" -> {
+                        InternshipOpportunity opp = opportunities.getInternshipOpportunityByID(fields.nextInt());
+                        if (opp != null) {
+                            opp.setStatus(fields.nextEnum(STATUSES));
+                        }
+                    }
+                    case "OPPORTUNITY" -> replayOpportunity(fields, opportunities);
+                    case "WITHDRAWAL_REQUEST" -> {
+                        String studentID = fields.next();
+                        int opportunityID = fields.nextInt();
+                        if (findWithdrawalRequest(requests, studentID, opportunityID) == null) {
+                            String title = fields.next();
+                            String companyName = fields.next();
+                            requests.addInternshipWithdrawalReq(new InternshipWithdrawalReq(studentID, opportunityID, title, companyName, remainingText(fields)));
+                        }
+                    }
+                    case "WITHDRAWAL_REQUEST_REMOVED" -> {
+                        String studentID = fields.next();
+                        InternshipWithdrawalReq req = findWithdrawalRequest(requests, studentID, fields.nextInt());
+                        if (req != null) {
+                            requests.deleteInternshipWithdrawalReq(req);
+                        }
+                    }
+                    case "COMPANY_REP_REQUEST" -> {
+                        String companyRepID = fields.next();
+                        if (findCompanyRepRequest(requests, companyRepID) == null) {
+                            requests.addCompanyReqCreationReq(new CompanyRepCreationReq(companyRepID, fields.next(), fields.next(), fields.next(), fields.next()));
+                        }
+                    }
+                    case "COMPANY_REP_REQUEST_REMOVED" -> {
+                        CompanyRepCreationReq req = findCompanyRepRequest(requests, fields.next());
+                        if (req != null) {
+                            requests.deleteCompanyReqCreationReq(req);
+                        }
+                    }
+                    case "COMPANY_REP" -> {
+                        User user = userFactory.addUser(fields, Role.COMPANY_REP);
+                        users.addCompanyRep((CompanyRep)user);
+                    }
+                    case "PASSWORD" -> {
+                        String userID = fields.next();
+                        String password = fields.next();
+                        User user;
+                        if (fields.hasNext()) {
+                            user = findUser(users, userID, fields.nextEnum(ROLES));
+                        } else {
+                            // Written before records named the role: the first user with the ID.
+                            user = users.findStudentByUserID(userID);
+                            if (user == null) user = users.findCareerStaffByUserID(userID);
+                            if (user == null) user = users.findCompanyRepByUserID(userID);
+                        }
+                        if (user != null) {
+                            users.changePassword(user, password);
+                        }
+                    }
+                    default -> System.out.println("Skipping unknown journal record: " + type);
+                }
             }
         } catch (IOException e){
-            e.printStackTrace();
-        } 
+            readFailed(e);
+        }
+        return entries;
+    }
+
+    /**
+     * Applies an {@code OPPORTUNITY} journal record, creating the opportunity if it
+     * is not yet loaded or otherwise overwriting its fields.
+     *
+     * @param fields a tokenizer positioned just after the record type
+     * @param opportunities the repository storing internship opportunities
+     */
+    private void replayOpportunity(CSVTokenizer fields, OpportunityRepository opportunities){
+        int opportunityID = fields.nextInt();
+        String title = fields.next();
+        String description = fields.next();
+        InternshipLevel level = fields.nextEnum(INTERNSHIP_LEVELS);
+        Major major = fields.nextEnum(MAJORS);
+        long openingDate = DateConverter.parseStoredDate(fields.next());
+        long closingDate = DateConverter.parseStoredDate(fields.next());
+        String companyName = fields.next();
+        String department = fields.next();
+        String companyRep = fields.next();
+        int slots = fields.nextInt();
+        Status status = fields.nextEnum(STATUSES);
+        boolean visible = fields.nextBoolean();
+        InternshipOpportunity opp = opportunities.getInternshipOpportunityByID(opportunityID);
+        if (opp == null) {
+            opportunities.addInternshipOpportunity(new InternshipOpportunity(opportunityID, title, description, level, major, openingDate, closingDate, companyName, department, companyRep, slots, status, visible, new ArrayList<>()));
+            return;
+        }
+        opp.setInternshipTitle(title);
+        opp.setDescription(description);
+        opp.setInternshipLevel(level);
+        opp.setPreferredMajor(major);
+        opp.setApplicationOpeningDate(openingDate);
+        opp.setApplicationClosingDate(closingDate);
+        opp.setDepartment(department);
+        opp.setCompanyRepInCharge(companyRep);
+        opp.setNoOfSlots(slots);
+        opp.setStatus(status);
+        if (opp.getVisible() != visible) {
+            opp.toggleVisibility();
+        }
+    }
+
+    /**
+     * Reads the last field of a record, a free-text reason. Files and journals
+     * written before fields were quoted left commas in the reason unescaped, so
+     * any further fields are joined back onto it.
+     *
+     * @param fields a tokenizer positioned at the last field
+     * @return the reason
+     */
+    private static String remainingText(CSVTokenizer fields){
+        String text = fields.next();
+        while (fields.hasNext()) {
+            text += "," + fields.next();
+        }
+        return text;
+    }
+
+    private static User findUser(UserRepository users, String userID, Role role){
+        return switch (role) {
+            case STUDENT -> users.findStudentByUserID(userID);
+            case CAREER_STAFF -> users.findCareerStaffByUserID(userID);
+            case COMPANY_REP -> users.findCompanyRepByUserID(userID);
+        };
+    }
+
+    private InternshipWithdrawalReq findWithdrawalRequest(RequestRepository requests, String studentID, int opportunityID){
+        for (InternshipWithdrawalReq req : requests.getInternshipWithdrawalReqList()) {
+            if (req.getUserID().equals(studentID) && req.getOpportunityID() == opportunityID) {
+                return req;
+            }
+        }
+        return null;
+    }
+
+    private CompanyRepCreationReq findCompanyRepRequest(RequestRepository requests, String companyRepID){
+        for (CompanyRepCreationReq req : requests.getAllCompanyRepCreationReq()) {
+            if (req.getUserID().equals(companyRepID)) {
+                return req;
+            }
+        }
+        return null;
     }
 }
@@ -0,0 +1,494 @@
+package util;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps every table in a single file, {@code data/store.db}, made up of
+ * {@link #PAGE_SIZE}-byte pages, so that a checkpoint only writes the pages
+ * holding rows that changed rather than rewriting whole files.
+ *
+ * <p>Each table is the same text as its CSV file, divided into chunks of whole
+ * rows, each stored in its own page (or, for a row longer than a page, in
+ * several). Chunk boundaries are chosen from the contents of the rows
+ * themselves: a chunk ends after a row whose hash falls in a range proportional
+ * to the row's length, one chance in {@link #TARGET_CHUNK_SIZE} per byte, and a
+ * chunk also ends before a row that would not fit in its page, so pages end up
+ * about two thirds full. Because a
+ * boundary depends only on the rows around it, changing, adding or removing a
+ * row only changes the chunks near it; every other chunk is found unchanged,
+ * by its length and checksums, and its page is reused without being written.</p>
+ *
+ * <p>Pages used by the committed version are never overwritten. A checkpoint
+ * writes its new chunks to free pages, followed by a directory listing every
+ * table's chunks and their pages, and flushes them to disk. The version is then
+ * published by a small root file, {@code data/store.root}, pointing to the
+ * directory, which is staged in the same {@link DataCommit} group as the journal
+ * being cut back: the store and the journal are committed together, and if the
+ * program stops before then, the previous root still describes an intact
+ * version and the pages written in the meantime are simply free again.</p>
+ *
+ * <p>File layout, big-endian:</p>
+ * <pre>
+ * root:       int magic, int version, long sequence, int directory length,
+ *             int directory CRC-32, int directory page count, int[] directory pages
+ * directory:  int table count, then per table: UTF name, int chunk count, then
+ *             per chunk: int length, int CRC-32, long hash, int page count, int[] pages
+ * </pre>
+ *
+ * <p>The store does not keep a {@link BinarySnapshot}, which would have to be
+ * rewritten in full at every checkpoint. Its methods are synchronized; the
+ * directory is read when the store is first used and kept in memory.</p>
+ */
+public class PageStore implements StorageBackend {
+    /** Location of the file of pages. */
+    public static final String STORE_PATH = "data/store.db";
+    /** Location of the root file, which names the committed version's directory. */
+    public static final String ROOT_PATH = "data/store.root";
+    /** Size of one page, in bytes. */
+    public static final int PAGE_SIZE = 4096;
+    /** Average size a chunk of rows would have if it were not limited to a page, in bytes. */
+    private static final int TARGET_CHUNK_SIZE = PAGE_SIZE;
+    private static final int MAGIC = 0x494D5350;
+    private static final int VERSION = 1;
+
+    private final Path path;
+    private final Path rootPath;
+    /** Chunks of each table in the committed version, keyed by table name; {@code null} until opened. */
+    private LinkedHashMap<String, List<Chunk>> tables;
+    /** Pages the committed version's directory is stored in. */
+    private int[] directoryPages;
+    /**
+     * Pages that must not be overwritten: those of the committed version, and
+     * those written by any checkpoint that failed since. A commit can fail after
+     * its group is already published, in which case it is completed at the next
+     * startup, so its pages are kept until a later checkpoint is committed.
+     */
+    private BitSet usedPages;
+    private long sequence;
+
+    private long checkpoints = 0;
+    private long pagesWritten = 0;
+    private long pagesReused = 0;
+
+    /** A run of whole rows of a table, together with the pages it is stored in. */
+    private static final class Chunk {
+        private final int length;
+        private final int crc;
+        private final long hash;
+        private final int[] pages;
+
+        private Chunk(int length, int crc, long hash, int[] pages){
+            this.length = length;
+            this.crc = crc;
+            this.hash = hash;
+            this.pages = pages;
+        }
+
+        /** @return a key identifying the chunk's contents */
+        private String key(){
+            return length + ":" + crc + ":" + hash;
+        }
+    }
+
+    /**
+     * Constructs a store kept in the given files, which are created by the first
+     * checkpoint.
+     *
+     * @param path     the file of pages
+     * @param rootPath the root file; it must be in the same directory as the
+     *                 journal, so they can be committed together
+     */
+    public PageStore(String path, String rootPath){
+        this.path = Paths.get(path);
+        this.rootPath = Paths.get(rootPath);
+    }
+
+    @Override
+    public boolean exists(){
+        return Files.exists(rootPath);
+    }
+
+    @Override
+    public boolean keepsSnapshot(){
+        return false;
+    }
+
+    @Override
+    public synchronized ByteBuffer readTable(Table table) throws IOException {
+        open();
+        List<Chunk> chunks = tables.get(table.name());
+        if (chunks == null) {
+            return null;
+        }
+        long total = 0;
+        for (Chunk chunk : chunks) {
+            total += chunk.length;
+        }
+        if (total > Integer.MAX_VALUE) {
+            throw new IOException("Table " + table + " is too large to read");
+        }
+        byte[] content = new byte[(int) total];
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            int offset = 0;
+            for (Chunk chunk : chunks) {
+                readPages(channel, chunk.pages, content, offset, chunk.length);
+                if (crc(content, offset, chunk.length) != chunk.crc) {
+                    throw new IOException("Corrupt page " + chunk.pages[0] + " in " + path);
+                }
+                offset += chunk.length;
+            }
+        }
+        return ByteBuffer.wrap(content);
+    }
+
+    @Override
+    public Checkpoint newCheckpoint(Map<String, byte[]> files){
+        LinkedHashMap<String, byte[]> changed = new LinkedHashMap<>();
+        for (Map.Entry<String, byte[]> e : files.entrySet()) {
+            Table table = Table.forPath(e.getKey());
+            if (table != null) {
+                changed.put(table.name(), e.getValue());
+            }
+        }
+        return new Checkpoint() {
+            /** The version written by {@link #write}, if any. */
+            private Version pending;
+
+            @Override
+            public boolean isEmpty(){
+                return changed.isEmpty();
+            }
+
+            @Override
+            public void write(DataCommit group) throws IOException {
+                if (!changed.isEmpty()) {
+                    pending = prepare(changed);
+                    group.stage(rootPath.toString(), pending.root);
+                }
+            }
+
+            @Override
+            public void completed(boolean committed){
+                if (pending != null) {
+                    finish(pending, committed);
+                }
+            }
+        };
+    }
+
+    /**
+     * Summarises the checkpoints written since the store was opened.
+     *
+     * @return a one-line summary
+     */
+    public synchronized String getStatistics(){
+        return String.format("Page store: %d checkpoints, %d pages written, %d unchanged pages reused",
+            checkpoints, pagesWritten, pagesReused);
+    }
+
+    /** @return the number of chunk and directory pages written since the store was opened */
+    public synchronized long getPagesWritten(){
+        return pagesWritten;
+    }
+
+    /** @return the number of unchanged pages kept by checkpoints since the store was opened */
+    public synchronized long getPagesReused(){
+        return pagesReused;
+    }
+
+    /** A version of the store written to disk, waiting for its root to be committed. */
+    private static final class Version {
+        private final LinkedHashMap<String, List<Chunk>> tables;
+        private final int[] directoryPages;
+        private final byte[] root;
+        private final long pagesWritten;
+        private final long pagesReused;
+
+        private Version(LinkedHashMap<String, List<Chunk>> tables, int[] directoryPages, byte[] root, long pagesWritten, long pagesReused){
+            this.tables = tables;
+            this.directoryPages = directoryPages;
+            this.root = root;
+            this.pagesWritten = pagesWritten;
+            this.pagesReused = pagesReused;
+        }
+    }
+
+    /**
+     * Writes the pages of a new version of the store in which the given tables
+     * have the given contents, and every other table is unchanged, and flushes
+     * them to disk.
+     *
+     * @param changed the new contents of each changed table, keyed by table name
+     * @return the new version, with the root that publishes it
+     * @throws IOException if the pages cannot be written
+     */
+    private synchronized Version prepare(LinkedHashMap<String, byte[]> changed) throws IOException {
+        open();
+        LinkedHashMap<String, List<Chunk>> newTables = new LinkedHashMap<>(tables);
+        long written = 0;
+        long reused = 0;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            for (Map.Entry<String, byte[]> e : changed.entrySet()) {
+                HashMap<String, Chunk> previous = new HashMap<>();
+                for (Chunk chunk : tables.getOrDefault(e.getKey(), List.of())) {
+                    previous.put(chunk.key(), chunk);
+                }
+                byte[] content = e.getValue();
+                ArrayList<Chunk> chunks = new ArrayList<>();
+                int start = 0;
+                for (int end : chunkEnds(content)) {
+                    int length = end - start;
+                    int crc = crc(content, start, length);
+                    long hash = hash(content, start, end);
+                    Chunk chunk = previous.get(length + ":" + crc + ":" + hash);
+                    if (chunk != null) {
+                        reused += chunk.pages.length;
+                    } else {
+                        int[] pages = allocate((length + PAGE_SIZE - 1) / PAGE_SIZE);
+                        writePages(channel, pages, content, start, length);
+                        written += pages.length;
+                        chunk = new Chunk(length, crc, hash, pages);
+                    }
+                    chunks.add(chunk);
+                    start = end;
+                }
+                newTables.put(e.getKey(), chunks);
+            }
+            byte[] directory = encodeDirectory(newTables);
+            int[] newDirectoryPages = allocate(Math.max(1, (directory.length + PAGE_SIZE - 1) / PAGE_SIZE));
+            writePages(channel, newDirectoryPages, directory, 0, directory.length);
+            written += newDirectoryPages.length;
+            channel.force(true);
+            return new Version(newTables, newDirectoryPages, encodeRoot(sequence + 1, directory, newDirectoryPages), written, reused);
+        }
+    }
+
+    /**
+     * Makes a version the committed one once its root has been committed, or
+     * otherwise keeps its pages from being reused until one is.
+     */
+    private synchronized void finish(Version version, boolean committed){
+        if (!committed) {
+            return;
+        }
+        tables = version.tables;
+        directoryPages = version.directoryPages;
+        sequence++;
+        usedPages = usedPages(tables, directoryPages);
+        checkpoints++;
+        pagesWritten += version.pagesWritten;
+        pagesReused += version.pagesReused;
+    }
+
+    /**
+     * Reads the committed root and the directory it points to, if the store has
+     * not been opened yet.
+     */
+    private void open() throws IOException {
+        if (tables != null) {
+            return;
+        }
+        LinkedHashMap<String, List<Chunk>> opened = new LinkedHashMap<>();
+        int[] openedDirectoryPages = new int[0];
+        long openedSequence = 0;
+        if (exists()) {
+            ByteBuffer root = ByteBuffer.wrap(Files.readAllBytes(rootPath));
+            if (root.remaining() < 28 || root.getInt() != MAGIC || root.getInt() != VERSION) {
+                throw new IOException("Not a page store root: " + rootPath);
+            }
+            openedSequence = root.getLong();
+            int directoryLength = root.getInt();
+            int directoryCrc = root.getInt();
+            openedDirectoryPages = new int[root.getInt()];
+            for (int i = 0; i < openedDirectoryPages.length; i++) {
+                openedDirectoryPages[i] = root.getInt();
+            }
+            byte[] directory = new byte[directoryLength];
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                readPages(channel, openedDirectoryPages, directory, 0, directoryLength);
+            }
+            if (crc(directory, 0, directoryLength) != directoryCrc) {
+                throw new IOException("Corrupt directory in " + path);
+            }
+            opened = decodeDirectory(directory);
+        }
+        tables = opened;
+        directoryPages = openedDirectoryPages;
+        sequence = openedSequence;
+        usedPages = usedPages(opened, openedDirectoryPages);
+    }
+
+    /**
+     * Divides a table's contents into chunks of whole rows.
+     *
+     * @param content the table's header line and rows
+     * @return the end position of each chunk, in order
+     */
+    private static List<Integer> chunkEnds(byte[] content){
+        ArrayList<Integer> ends = new ArrayList<>();
+        int start = 0;
+        int position = 0;
+        while (position < content.length) {
+            int lineEnd = position;
+            while (lineEnd < content.length && content[lineEnd++] != '\n') {
+                // Finds the end of the row, including its line feed.
+            }
+            if (lineEnd - start > PAGE_SIZE && position > start) {
+                // The row does not fit in the chunk's page, so it starts the next chunk.
+                ends.add(position);
+                start = position;
+            }
+            long hash = hash(content, position, lineEnd);
+            int length = lineEnd - position;
+            position = lineEnd;
+            if (Long.remainderUnsigned(hash, TARGET_CHUNK_SIZE) < length) {
+                ends.add(position);
+                start = position;
+            }
+        }
+        if (start < content.length) {
+            ends.add(content.length);
+        }
+        return ends;
+    }
+
+    /** Finds free pages, marking them as used. */
+    private int[] allocate(int count){
+        int[] pages = new int[count];
+        int page = 0;
+        for (int i = 0; i < count; i++) {
+            page = usedPages.nextClearBit(page);
+            usedPages.set(page);
+            pages[i] = page;
+        }
+        return pages;
+    }
+
+    private static BitSet usedPages(Map<String, List<Chunk>> tables, int[] directoryPages){
+        BitSet used = new BitSet();
+        for (List<Chunk> chunks : tables.values()) {
+            for (Chunk chunk : chunks) {
+                for (int page : chunk.pages) {
+                    used.set(page);
+                }
+            }
+        }
+        for (int page : directoryPages) {
+            used.set(page);
+        }
+        return used;
+    }
+
+    private static void writePages(FileChannel channel, int[] pages, byte[] content, int start, int length) throws IOException {
+        for (int i = 0; i < pages.length; i++) {
+            int offset = i * PAGE_SIZE;
+            ByteBuffer page = ByteBuffer.wrap(content, start + offset, Math.min(PAGE_SIZE, length - offset));
+            long position = (long) pages[i] * PAGE_SIZE;
+            while (page.hasRemaining()) {
+                position += channel.write(page, position);
+            }
+        }
+    }
+
+    private static void readPages(FileChannel channel, int[] pages, byte[] content, int start, int length) throws IOException {
+        for (int i = 0; i < pages.length; i++) {
+            int offset = i * PAGE_SIZE;
+            ByteBuffer page = ByteBuffer.wrap(content, start + offset, Math.min(PAGE_SIZE, length - offset));
+            long position = (long) pages[i] * PAGE_SIZE;
+            while (page.hasRemaining()) {
+                int n = channel.read(page, position);
+                if (n < 0) {
+                    throw new IOException("Page " + pages[i] + " is past the end of the store");
+                }
+                position += n;
+            }
+        }
+    }
+
+    private static byte[] encodeRoot(long sequence, byte[] directory, int[] directoryPages){
+        ByteBuffer root = ByteBuffer.allocate(28 + directoryPages.length * Integer.BYTES);
+        root.putInt(MAGIC).putInt(VERSION).putLong(sequence)
+            .putInt(directory.length).putInt(crc(directory, 0, directory.length)).putInt(directoryPages.length);
+        for (int page : directoryPages) {
+            root.putInt(page);
+        }
+        return root.array();
+    }
+
+    private static byte[] encodeDirectory(Map<String, List<Chunk>> tables) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(tables.size());
+            for (Map.Entry<String, List<Chunk>> e : tables.entrySet()) {
+                out.writeUTF(e.getKey());
+                out.writeInt(e.getValue().size());
+                for (Chunk chunk : e.getValue()) {
+                    out.writeInt(chunk.length);
+                    out.writeInt(chunk.crc);
+                    out.writeLong(chunk.hash);
+                    out.writeInt(chunk.pages.length);
+                    for (int page : chunk.pages) {
+                        out.writeInt(page);
+                    }
+                }
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static LinkedHashMap<String, List<Chunk>> decodeDirectory(byte[] directory) throws IOException {
+        LinkedHashMap<String, List<Chunk>> decoded = new LinkedHashMap<>();
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(directory))) {
+            int tableCount = in.readInt();
+            for (int t = 0; t < tableCount; t++) {
+                String name = in.readUTF();
+                int chunkCount = in.readInt();
+                ArrayList<Chunk> chunks = new ArrayList<>(chunkCount);
+                for (int c = 0; c < chunkCount; c++) {
+                    int length = in.readInt();
+                    int crc = in.readInt();
+                    long hash = in.readLong();
+                    int[] pages = new int[in.readInt()];
+                    for (int p = 0; p < pages.length; p++) {
+                        pages[p] = in.readInt();
+                    }
+                    chunks.add(new Chunk(length, crc, hash, pages));
+                }
+                decoded.put(name, chunks);
+            }
+        }
+        return decoded;
+    }
+
+    private static int crc(byte[] bytes, int start, int length){
+        CRC32 crc = new CRC32();
+        crc.update(bytes, start, length);
+        return (int) crc.getValue();
+    }
+
+    /** 64-bit FNV-1a hash of part of an array. */
+    private static long hash(byte[] bytes, int start, int end){
+        long hash = 0xcbf29ce484222325L;
+        for (int i = start; i < end; i++) {
+            hash ^= bytes[i] & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,165 @@
+package util;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Function;
+
+/**
+ * Parses the rows of a large CSV file on several threads.
+ *
+ * <p>The file is memory-mapped with {@link FileChannel#map} and divided into
+ * chunks that each end at a line boundary. Each chunk is decoded and its rows
+ * parsed as a separate task on the common {@link ForkJoinPool}, and the results
+ * are joined back together in file order, so callers can add them to a repository
+ * exactly as if the file had been read line by line.</p>
+ *
+ * <p>Tables read through a {@link StorageBackend} arrive as a buffer rather than
+ * a file, and are parsed the same way by {@link #parseLines(ByteBuffer, Function)}.
+ * Only contents of at least {@link #PARALLEL_THRESHOLD} bytes are divided;
+ * below that the cost of starting tasks outweighs the gain, and the rows are
+ * parsed on the calling thread. The row parser may be called from several
+ * threads at once, so it must not share mutable state.</p>
+ */
+public class ParallelCSVReader {
+    /** Size in bytes from which a file is loaded in parallel. */
+    public static final long PARALLEL_THRESHOLD = 4L << 20;
+    /** Number of chunks per available processor, so uneven chunks still balance. */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    /**
+     * Checks whether a file is large enough to be worth loading in parallel.
+     *
+     * @param path the CSV file
+     * @return {@code true} if the file exists, is at least {@link #PARALLEL_THRESHOLD}
+     *         bytes and is small enough to be mapped in one piece
+     */
+    public static boolean isLarge(Path path){
+        try {
+            long size = Files.size(path);
+            return size >= PARALLEL_THRESHOLD && size <= Integer.MAX_VALUE;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns the first line of a file, without its line terminator.
+     *
+     * @param path the CSV file
+     * @return the header line, or {@code null} if the file is empty
+     * @throws IOException if the file cannot be read
+     */
+    public static String readHeader(Path path) throws IOException {
+        try (BufferedReader br = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            return br.readLine();
+        }
+    }
+
+    /**
+     * Returns the first line of a table's contents, without its line terminator.
+     *
+     * @param buffer the contents, positioned at their start
+     * @return the header line, or {@code null} if the contents are empty
+     */
+    public static String readHeader(ByteBuffer buffer){
+        int size = buffer.limit();
+        if (size == 0) {
+            return null;
+        }
+        int end = nextLine(buffer, 0, size);
+        int lineEnd = end;
+        if (lineEnd > 0 && buffer.get(lineEnd - 1) == '\n') lineEnd--;
+        if (lineEnd > 0 && buffer.get(lineEnd - 1) == '\r') lineEnd--;
+        byte[] bytes = new byte[lineEnd];
+        buffer.duplicate().position(0).get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parses every line after the header, in parallel.
+     *
+     * <p>Lines end at a line feed, optionally preceded by a carriage return, which
+     * is dropped.</p>
+     *
+     * @param path   the CSV file
+     * @param parser converts one line into a result; called concurrently
+     * @param <T>    the type of parsed row
+     * @return the parsed rows, in file order
+     * @throws IOException if the file cannot be mapped
+     */
+    public static <T> ArrayList<T> parseLines(Path path, Function<String, T> parser) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        return parseLines(buffer, parser);
+    }
+
+    /**
+     * Parses every line after the header of a table's contents, in parallel if
+     * they are at least {@link #PARALLEL_THRESHOLD} bytes.
+     *
+     * @param buffer the contents, positioned at their start
+     * @param parser converts one line into a result; may be called concurrently
+     * @param <T>    the type of parsed row
+     * @return the parsed rows, in order
+     */
+    public static <T> ArrayList<T> parseLines(ByteBuffer buffer, Function<String, T> parser){
+        int size = buffer.limit();
+        int start = nextLine(buffer, 0, size);
+        if (size - start < PARALLEL_THRESHOLD) {
+            return parseChunk(buffer, start, size, parser);
+        }
+        int chunkCount = Math.max(1, Runtime.getRuntime().availableProcessors() * CHUNKS_PER_THREAD);
+        int chunkSize = Math.max(1, (size - start) / chunkCount);
+
+        ArrayList<ForkJoinTask<ArrayList<T>>> tasks = new ArrayList<>();
+        while (start < size) {
+            int end = start + chunkSize >= size ? size : nextLine(buffer, start + chunkSize, size);
+            int chunkStart = start;
+            tasks.add(ForkJoinPool.commonPool().submit(() -> parseChunk(buffer, chunkStart, end, parser)));
+            start = end;
+        }
+        ArrayList<T> rows = new ArrayList<>();
+        for (ForkJoinTask<ArrayList<T>> task : tasks) {
+            rows.addAll(task.join());
+        }
+        return rows;
+    }
+
+    /** Returns the position just after the next line feed at or after {@code from}, or {@code size}. */
+    private static int nextLine(ByteBuffer buffer, int from, int size){
+        for (int i = from; i < size; i++) {
+            if (buffer.get(i) == '\n') {
+                return i + 1;
+            }
+        }
+        return size;
+    }
+
+    private static <T> ArrayList<T> parseChunk(ByteBuffer buffer, int start, int end, Function<String, T> parser){
+        byte[] bytes = new byte[end - start];
+        buffer.duplicate().position(start).get(bytes);
+        String text = new String(bytes, StandardCharsets.UTF_8);
+        ArrayList<T> rows = new ArrayList<>();
+        int lineStart = 0;
+        while (lineStart < text.length()) {
+            int lineEnd = text.indexOf('\n', lineStart);
+            int next = lineEnd < 0 ? text.length() : lineEnd + 1;
+            if (lineEnd < 0) lineEnd = text.length();
+            if (lineEnd > lineStart && text.charAt(lineEnd - 1) == '\r') lineEnd--;
+            rows.add(parser.apply(text.substring(lineStart, lineEnd)));
+            lineStart = next;
+        }
+        return rows;
+    }
+}
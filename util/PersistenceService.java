@@ -0,0 +1,491 @@
+package util;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Background service that performs all writes to the data directory, so the
+ * console thread never waits on disk I/O.
+ *
+ * <p>The service is handed three kinds of work:</p>
+ * <ul>
+ *     <li>journal records from the {@link Journal}, which are appended to
+ *     {@link Journal#JOURNAL_PATH} in the order they were submitted;</li>
+ *     <li>application rows from the {@link Journal}, which are appended to
+ *     {@link SaveFiles#APPLICATIONS_PATH} in the order they were submitted;</li>
+ *     <li>compactions from the {@link Compactor}, consisting of a
+ *     {@link StorageBackend.Checkpoint} of the tables that changed and, if it was
+ *     rewritten, the full new contents of the applications file, which are
+ *     committed together through {@link DataCommit}.</li>
+ * </ul>
+ *
+ * <p>Work that builds up while a write is in progress is coalesced: all waiting
+ * records are appended with a single write. A compaction is rendered from the
+ * journal and applications file as they stood at a {@link SealPoint}, taken with
+ * {@link #seal()}. When it is committed, the journal is cut back to the records
+ * appended after that point, and if the compaction rewrote the applications file,
+ * the rows appended after that point are carried over onto its new contents.
+ * Both are read on the writer thread, which is the only thread that appends to
+ * either file, so nothing appended while the compaction was being rendered is
+ * lost.</p>
+ *
+ * <p>Each batch of records and rows is forced to disk before it counts as
+ * written. If a batch cannot be written, for example because the disk is full,
+ * whatever part of it reached the file is cut off again, and the batch is kept at
+ * the front of the queue and retried every {@link #RETRY_MILLIS}. Until it has
+ * been written, {@link #flush()} and {@link #seal()} throw the failure rather than
+ * wait, so that callers can tell the user their changes are not yet saved. If a
+ * compaction is committed but its files cannot all be moved into place, nothing
+ * more is appended at all: the next startup's recovery replaces the journal and
+ * applications file with the committed copies, which would drop any later rows.</p>
+ *
+ * <p>If a compaction cannot be committed, the journal and applications file are
+ * left as they are, and their contents are folded by the next compaction instead.
+ * {@link #shutdown()} writes all outstanding work before the program exits, and
+ * is registered as a shutdown hook when the application starts.</p>
+ */
+public class PersistenceService {
+    /** How long the writer waits before retrying a batch that could not be written, in milliseconds. */
+    public static final long RETRY_MILLIS = 1000;
+
+    /** Journal records waiting to be appended. */
+    private ArrayList<String> pendingRecords = new ArrayList<>();
+    /** Application rows waiting to be appended. */
+    private ArrayList<String> pendingApplicationRows = new ArrayList<>();
+    /** The tables rewritten by the waiting compaction. */
+    private StorageBackend.Checkpoint pendingCheckpoint;
+    /** New contents of the applications file, if the waiting compaction rewrote it. */
+    private byte[] pendingApplications;
+    /** The point the waiting compaction was rendered from, or {@code null} if none is waiting. */
+    private SealPoint pendingSeal;
+    /** Journal records submitted and not yet folded into a committed compaction. */
+    private int journalRecords;
+    /** Number of compactions committed. */
+    private long compactionsCommitted = 0;
+    /** Why the last batch could not be written, or {@code null} if it was written. */
+    private IOException writeFailure;
+    /** Whether the worker is currently writing a batch. */
+    private boolean writing = false;
+    private boolean stopped = false;
+    private DataCommit dataCommit = new DataCommit();
+    private Thread worker;
+
+    private int maxQueueDepth = 0;
+    private long batchesWritten = 0;
+    private long totalWriteNanos = 0;
+    private long maxWriteNanos = 0;
+
+    /**
+     * The lengths of the journal and applications file at the moment a compaction
+     * started reading them. Everything before this point is folded into the
+     * compaction's files; everything after it is kept.
+     */
+    public static class SealPoint {
+        private final long journalLength;
+        private final long applicationsLength;
+        private final int journalRecords;
+
+        private SealPoint(long journalLength, long applicationsLength, int journalRecords){
+            this.journalLength = journalLength;
+            this.applicationsLength = applicationsLength;
+            this.journalRecords = journalRecords;
+        }
+
+        /** @return the length of the journal file in bytes, or {@code 0} if it did not exist */
+        public long getJournalLength(){
+            return journalLength;
+        }
+
+        /** @return the length of the applications file in bytes, or {@code 0} if it did not exist */
+        public long getApplicationsLength(){
+            return applicationsLength;
+        }
+
+        /** @return the number of records in the journal up to this point */
+        public int getJournalRecords(){
+            return journalRecords;
+        }
+    }
+
+    /**
+     * Constructs the service and starts its background writer thread.
+     *
+     * @param journalRecords number of records already in the journal, as replayed at startup
+     */
+    public PersistenceService(int journalRecords){
+        this.journalRecords = journalRecords;
+        worker = new Thread(this::run, "persistence-writer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Queues a record to be appended to the journal.
+     *
+     * @param record the record line, without a line terminator
+     */
+    public synchronized void submitRecord(String record){
+        pendingRecords.add(record);
+        journalRecords++;
+        queued();
+    }
+
+    /**
+     * Queues a row to be appended to the applications file.
+     *
+     * @param row the row, without a line terminator
+     */
+    public synchronized void submitApplicationRow(String row){
+        pendingApplicationRows.add(row);
+        queued();
+    }
+
+    /**
+     * Waits until every record and row submitted so far has been appended, and
+     * returns the resulting lengths of the journal and applications file. Records
+     * and rows can still be submitted while the caller reads the files up to
+     * this point.
+     *
+     * @return the point from which a compaction can be rendered
+     * @throws IOException if the records and rows submitted so far could not be written
+     */
+    public synchronized SealPoint seal() throws IOException {
+        while (writing || !pendingRecords.isEmpty() || !pendingApplicationRows.isEmpty()) {
+            throwWriteFailure();
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        throwWriteFailure();
+        return new SealPoint(sizeOf(Journal.JOURNAL_PATH), sizeOf(SaveFiles.APPLICATIONS_PATH), journalRecords);
+    }
+
+    /**
+     * Queues a compaction. {@code checkpoint} must reflect every journal record
+     * and application row up to {@code seal}; if {@code applications} is given,
+     * it must hold every application as of that point.
+     *
+     * @param checkpoint   the new contents of the changed tables
+     * @param applications the new contents of the applications file, or
+     *                     {@code null} if it is not rewritten
+     * @param seal         the point the compaction was rendered from
+     */
+    public synchronized void submitCompaction(StorageBackend.Checkpoint checkpoint, byte[] applications, SealPoint seal){
+        pendingCheckpoint = checkpoint;
+        pendingApplications = applications;
+        pendingSeal = seal;
+        queued();
+    }
+
+    /**
+     * Returns the number of records in the journal that a compaction has not yet
+     * folded into the data files, which bounds how much is replayed at startup.
+     *
+     * @return the number of journal records since the last committed compaction
+     */
+    public synchronized int getJournalRecords(){
+        return journalRecords;
+    }
+
+    /**
+     * Blocks until all work submitted so far has been written and forced to disk.
+     *
+     * @throws IOException if the records and rows submitted so far could not be
+     *         written; they stay queued and are retried
+     */
+    public synchronized void flush() throws IOException {
+        while (writing || pendingSeal != null || !pendingRecords.isEmpty() || !pendingApplicationRows.isEmpty()) {
+            throwWriteFailure();
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        throwWriteFailure();
+    }
+
+    /**
+     * Writes all outstanding work and stops the writer thread. Changes that could
+     * not be written are reported, as they are lost when the program exits.
+     */
+    public void shutdown(){
+        try {
+            flush();
+        } catch (IOException e) {
+            System.out.println(ConsoleColors.RED+"Some changes could not be saved: " + e.getMessage()+ConsoleColors.RESET);
+        }
+        synchronized (this) {
+            stopped = true;
+            notifyAll();
+        }
+    }
+
+    /** @return the number of journal records, application rows, checkpoints and rewritten files currently waiting to be written */
+    public synchronized int getQueueDepth(){
+        return pendingRecords.size() + pendingApplicationRows.size() + (pendingCheckpoint == null ? 0 : 1) + (pendingApplications == null ? 0 : 1);
+    }
+
+    /** @return the largest number of records, rows, checkpoints and files that have been waiting at once */
+    public synchronized int getMaxQueueDepth(){
+        return maxQueueDepth;
+    }
+
+    /**
+     * Returns the number of compactions committed so far. A compaction that
+     * cannot be committed leaves the journal as it was, so comparing this
+     * before and after {@link #flush()} tells whether a submitted compaction took
+     * effect.
+     *
+     * @return the number of committed compactions
+     */
+    public synchronized long getCompactionsCommitted(){
+        return compactionsCommitted;
+    }
+
+    /** @return the number of batches written by the background thread */
+    public synchronized long getBatchesWritten(){
+        return batchesWritten;
+    }
+
+    /** @return the average time taken to write one batch, in milliseconds */
+    public synchronized double getAverageWriteMillis(){
+        return batchesWritten == 0 ? 0 : totalWriteNanos / 1e6 / batchesWritten;
+    }
+
+    /** @return the longest time taken to write one batch, in milliseconds */
+    public synchronized double getMaxWriteMillis(){
+        return maxWriteNanos / 1e6;
+    }
+
+    /**
+     * Summarises the queue and write latency statistics.
+     *
+     * @return a one-line summary
+     */
+    public synchronized String getStatistics(){
+        return String.format("Persistence: %d batches written, peak queue depth %d, average write %.2f ms, slowest write %.2f ms",
+            batchesWritten, maxQueueDepth, getAverageWriteMillis(), getMaxWriteMillis());
+    }
+
+    /**
+     * Throws the last write failure, unless the writer is trying the batch again.
+     * Its message is meant for users, and names the failure's reason if it has one.
+     */
+    private void throwWriteFailure() throws IOException {
+        if (writeFailure != null && !writing) {
+            String reason = writeFailure.getMessage();
+            throw new IOException("Changes could not be written to the data directory"
+                + (reason == null ? "" : ": " + reason), writeFailure);
+        }
+    }
+
+    private void queued(){
+        maxQueueDepth = Math.max(maxQueueDepth, getQueueDepth());
+        notifyAll();
+    }
+
+    private void run(){
+        while (true) {
+            ArrayList<String> records;
+            ArrayList<String> applicationRows;
+            StorageBackend.Checkpoint checkpoint;
+            byte[] applications;
+            SealPoint seal;
+            synchronized (this) {
+                while (pendingSeal == null && pendingRecords.isEmpty() && pendingApplicationRows.isEmpty() && !stopped) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (pendingSeal == null && pendingRecords.isEmpty() && pendingApplicationRows.isEmpty()) {
+                    return;
+                }
+                records = pendingRecords;
+                pendingRecords = new ArrayList<>();
+                applicationRows = pendingApplicationRows;
+                pendingApplicationRows = new ArrayList<>();
+                checkpoint = pendingCheckpoint;
+                applications = pendingApplications;
+                seal = pendingSeal;
+                pendingCheckpoint = null;
+                pendingApplications = null;
+                pendingSeal = null;
+                writing = true;
+            }
+            long start = System.nanoTime();
+            IOException failure = null;
+            try {
+                appendLines(Journal.JOURNAL_PATH, null, records);
+                records.clear();
+                appendLines(SaveFiles.APPLICATIONS_PATH, SaveFiles.APPLICATIONS_HEADER, applicationRows);
+                applicationRows.clear();
+            } catch (IOException e) {
+                e.printStackTrace();
+                failure = e;
+            }
+            // Records that failed come after the seal point, so the compaction is still valid without them.
+            boolean committed = seal != null && commitCompaction(checkpoint, applications, seal);
+            if (dataCommit.isIncomplete()) {
+                // Recovery will replace the journal and applications file with their staging copies, so appending stops here.
+                failure = new IOException("A checkpoint was committed but not all of its files could be moved into place;"
+                    + " restart to finish it");
+            }
+            long elapsed = System.nanoTime() - start;
+            synchronized (this) {
+                if (committed) {
+                    journalRecords -= seal.getJournalRecords();
+                    compactionsCommitted++;
+                }
+                if (failure != null) {
+                    // Put the batch back ahead of anything submitted since, to keep the order.
+                    records.addAll(pendingRecords);
+                    pendingRecords = records;
+                    applicationRows.addAll(pendingApplicationRows);
+                    pendingApplicationRows = applicationRows;
+                }
+                writeFailure = failure;
+                batchesWritten++;
+                totalWriteNanos += elapsed;
+                maxWriteNanos = Math.max(maxWriteNanos, elapsed);
+                writing = false;
+                notifyAll();
+                if (failure != null) {
+                    if (stopped || dataCommit.isIncomplete()) {
+                        return;
+                    }
+                    try {
+                        wait(RETRY_MILLIS);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Appends lines to a file, each ended by a line feed, and forces them to disk.
+     * If the file is empty it is started with the header, if one is given. If the
+     * lines cannot all be written, the file is cut back to its previous length so
+     * that a retry does not repeat the part that was.
+     *
+     * @param path   the file to append to
+     * @param header the file's header line, or {@code null} if it has none
+     * @param lines  the lines to append, without line terminators
+     * @throws IOException if the lines could not be written or forced to disk
+     */
+    private static void appendLines(String path, String header, List<String> lines) throws IOException {
+        if (lines.isEmpty()) {
+            return;
+        }
+        StringBuilder text = new StringBuilder();
+        for (String line : lines) {
+            text.append(line).append('\n');
+        }
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            long start = channel.size();
+            if (start == 0 && header != null) {
+                text.insert(0, header + '\n');
+            }
+            ByteBuffer bytes = ByteBuffer.wrap(text.toString().getBytes(StandardCharsets.UTF_8));
+            try {
+                channel.position(start);
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+                channel.force(false);
+            } catch (IOException e) {
+                try {
+                    channel.truncate(start);
+                } catch (IOException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Commits a compaction's tables together with what is left of the journal,
+     * which is the records appended after the seal point. If the applications
+     * file was rewritten, the rows appended after the seal point are added to it.
+     * The checkpoint is told whether the group was committed.
+     */
+    private boolean commitCompaction(StorageBackend.Checkpoint checkpoint, byte[] applications, SealPoint seal){
+        boolean committed = false;
+        try {
+            checkpoint.write(dataCommit);
+            if (applications != null) {
+                byte[] rows = readFrom(SaveFiles.APPLICATIONS_PATH, seal.getApplicationsLength());
+                if (seal.getApplicationsLength() == 0) {
+                    // The file was started after the seal point, with a header the new contents already have.
+                    rows = Arrays.copyOfRange(rows, lineEnd(rows), rows.length);
+                }
+                dataCommit.stage(SaveFiles.APPLICATIONS_PATH, concat(applications, rows), true);
+            }
+            if (Files.exists(Paths.get(Journal.JOURNAL_PATH))) {
+                dataCommit.stage(Journal.JOURNAL_PATH, readFrom(Journal.JOURNAL_PATH, seal.getJournalLength()), true);
+            }
+            committed = dataCommit.commit();
+        } catch (IOException e) {
+            e.printStackTrace();
+            dataCommit.abort();
+        }
+        checkpoint.completed(committed);
+        return committed;
+    }
+
+    /** Reads a file from the given position to its end, or nothing if it does not exist. */
+    private static byte[] readFrom(String path, long position) throws IOException {
+        Path filePath = Paths.get(path);
+        if (!Files.exists(filePath)) {
+            return new byte[0];
+        }
+        try (InputStream in = Files.newInputStream(filePath)) {
+            in.skipNBytes(position);
+            return in.readAllBytes();
+        }
+    }
+
+    /** @return the position just after the first line feed, or the length if there is none */
+    private static int lineEnd(byte[] bytes){
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] == '\n') {
+                return i + 1;
+            }
+        }
+        return bytes.length;
+    }
+
+    private static byte[] concat(byte[] first, byte[] second){
+        byte[] joined = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, joined, first.length, second.length);
+        return joined;
+    }
+
+    private static long sizeOf(String path){
+        try {
+            Path filePath = Paths.get(path);
+            return Files.exists(filePath) ? Files.size(filePath) : 0;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package util;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import util.StorageBackend.Table;
+
+/**
+ * The columns of each table that a {@link LoadFiles} should parse, named as in
+ * the tables' header lines.
+ *
+ * <p>Tools that only need a few columns, such as an ID and a status, can load
+ * with a projection to skip parsing the rest; the columns left out are given
+ * {@code null}, zero, {@code false} or an unknown date. A table's key column, such as
+ * {@code StudentID} or {@code OpportunityID}, is always parsed, as are the
+ * columns the repositories index its rows by, such as an opportunity's
+ * {@code Status}. Tables the projection does not mention are parsed in full.</p>
+ *
+ * <p>Data loaded with a projection is incomplete, so it must only be read, never
+ * saved or journaled; {@link LoadFiles} marks the repositories it loads it into
+ * read-only, so that {@link SaveFiles} and the controllers refuse them.
+ * Projections do not change once built, so one can be shared.</p>
+ */
+public final class Projection {
+    /** Parses every column of every table. */
+    public static final Projection ALL = new Projection(new EnumMap<>(Table.class));
+
+    private final EnumMap<Table, Set<String>> columns;
+
+    private Projection(EnumMap<Table, Set<String>> columns){
+        this.columns = columns;
+    }
+
+    /**
+     * Returns a projection that parses only the given columns of a table, and
+     * otherwise the same columns as this one.
+     *
+     * @param table   the table
+     * @param columns names of the columns to parse, as in the table's header line
+     * @return the new projection
+     */
+    public Projection select(Table table, String... columns){
+        EnumMap<Table, Set<String>> selected = new EnumMap<>(this.columns);
+        selected.put(table, Collections.unmodifiableSet(new LinkedHashSet<>(Arrays.asList(columns))));
+        return new Projection(selected);
+    }
+
+    /**
+     * Checks whether the projection parses every column of every table, as
+     * {@link #ALL} does.
+     *
+     * @return {@code true} if no table's columns are narrowed
+     */
+    public boolean isComplete(){
+        return columns.isEmpty();
+    }
+
+    /**
+     * @param table the table
+     * @return names of the table's columns to parse, or {@code null} to parse all of them
+     */
+    public Set<String> columnsOf(Table table){
+        return columns.get(table);
+    }
+}
@@ -1,23 +1,26 @@
 package util;
-import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import entities.*;
+import entities.User.Role;
+import util.StorageBackend.Table;
 import repositories.UserRepository;
 import repositories.OpportunityRepository;
 import repositories.RequestRepository;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 
 /**
- * Utility class responsible for saving all in-memory repository data
- * back into their corresponding CSV files.
+ * Utility class responsible for rendering all in-memory repository data
+ * into the contents of their corresponding CSV files.
  *
  * <p>This class acts as the counterpart to {@link LoadFiles}, ensuring that
  * all user accounts, internship opportunities, and request records are
- * persisted to disk whenever updates occur.</p>
+ * persisted to disk. Individual updates are recorded in the {@link Journal};
+ * the CSV files are rewritten when the {@link Compactor} folds it into them,
+ * from its own copy of the repositories.</p>
  *
  * <p>The following CSV files are written:</p>
  * <ul>
@@ -27,191 +30,335 @@ import java.util.ArrayList;
  *     <li>{@code company_rep_req_list.csv}</li>
  *     <li>{@code withdrawal_req_list.csv}</li>
  *     <li>{@code internship_opps.csv}</li>
+ *     <li>{@code applications.csv}</li>
  * </ul>
  *
- * <p>All files are saved using UTF-8 encoding.</p>
+ * <p>A {@link BinarySnapshot} of the same data is written alongside them so that
+ * startup can skip parsing the CSV files. The contents are handed to the
+ * {@link StorageBackend}, which may keep the tables somewhere other than these
+ * files, or compress them with a {@link DataCodec}; the applications file is
+ * always written as a plain file, since it is appended to.</p>
+ *
+ * <p>The save methods only produce each file's new contents; they are collected
+ * by {@link #takeRenderedFiles()} and written in the background by the
+ * {@link PersistenceService}, which replaces them in one atomic step through
+ * {@link DataCommit}. Rendered data is marked as saved in its repository straight
+ * away; if the files cannot be committed, the journal is kept and the next
+ * compaction renders them again. A repository loaded with a {@link Projection}
+ * holds only part of the data, so the save methods refuse it with an
+ * {@link IllegalStateException} rather than write the missing fields as empty.</p>
+ *
+ * <p>All files are saved using UTF-8 encoding, with every line ended by a line
+ * feed whatever the platform, as the {@link PersistenceService} appends them.
+ * Text fields are written through {@link CSVTokenizer#quote(String)}, so a value
+ * containing a comma is quoted rather than splitting the row. Each repository
+ * records what has changed since it was last saved, and a file is only
+ * rewritten if its contents have changed. When the opportunity file is rewritten, the rows of unchanged
+ * opportunities are reused from the previous save instead of being formatted
+ * again. Rows that are formatted are built field by field in one reused buffer.</p>
+ *
+ * <p>Applications are kept in their own file, one row per application keyed by
+ * opportunity ID and the application's position in the opportunity's list,
+ * rather than in a column of the opportunity file. A student who applied to the
+ * same opportunity twice has two applications, at different positions. The
+ * {@link Journal} appends a row whenever an application is submitted or changes
+ * status, so a new application no longer rewrites the opportunity file; when an
+ * application appears in several rows, the last row gives its current status. The file is only rewritten in full when its repository marks
+ * it as outdated, and applications that have not been parsed since they were
+ * loaded are then written back in their stored form.</p>
  */
 public class SaveFiles {
+    /** Location of the applications file. */
+    public static final String APPLICATIONS_PATH = "data/applications.csv";
+    /** Header line of the applications file. */
+    public static final String APPLICATIONS_HEADER = "OpportunityID,ApplicationIndex,StudentID,AppliedDateTime,Status";
+
+    /** Opportunity rows as last written, keyed by opportunity ID. */
+    private HashMap<Integer, String> opportunityRows = new HashMap<>();
+    /** Buffer in which opportunity rows are built, reused from row to row. */
+    private StringBuilder rowBuffer = new StringBuilder();
+    /** New file contents rendered since they were last taken, keyed by path. */
+    private LinkedHashMap<String, byte[]> renderedFiles = new LinkedHashMap<>();
+    private BinarySnapshot snapshot = new BinarySnapshot();
+
+    /**
+     * Returns the contents rendered by the save methods since the last call, and
+     * starts a new set.
+     *
+     * @return the new contents of each rendered file, keyed by path, in the order
+     *         they were rendered
+     */
+    public LinkedHashMap<String, byte[]> takeRenderedFiles(){
+        LinkedHashMap<String, byte[]> files = renderedFiles;
+        renderedFiles = new LinkedHashMap<>();
+        return files;
+    }
+
+    /**
+     * Renders a {@link BinarySnapshot} of all repositories for
+     * {@link BinarySnapshot#SNAPSHOT_PATH}, if any CSV file has been rendered since
+     * the contents were last taken.
+     *
+     * <p>This should be called after the CSV files have been rendered, so that the
+     * snapshot is written after them and is at least as new as each of them.</p>
+     *
+     * @param users         repository of all user accounts
+     * @param requests      repository of account creation and withdrawal requests
+     * @param opportunities repository of internship opportunities
+     */
+    public void saveSnapshot(UserRepository users, RequestRepository requests, OpportunityRepository opportunities){
+        users.checkWritable();
+        requests.checkWritable();
+        opportunities.checkWritable();
+        if (renderedFiles.isEmpty()) return;
+        byte[] content = snapshot.write(users, requests, opportunities);
+        if (content != null) {
+            renderedFiles.put(BinarySnapshot.SNAPSHOT_PATH, content);
+        }
+    }
+
      /**
-     * Saves all registered students to {@code data/student_list.csv}.
+     * Renders all registered students for {@code data/student_list.csv}.
      *
      * @param userRepository the repository containing the student list
      */
     public void saveStudentCSV(UserRepository userRepository){
-        ArrayList<Student> studentList = userRepository.getStudentList();
-        String path = "data/student_list.csv";
-        Path filePath = Paths.get(path);
-        try (PrintWriter pw = new PrintWriter(Files.newBufferedWriter(filePath, StandardCharsets.UTF_8))) {
-            pw.println("StudentID,Name,Major,Year,Email,Password");
-            for (Student s : studentList) {
+        userRepository.checkWritable();
+        if (!userRepository.hasUnsavedChanges(Role.STUDENT)) return;
+        String path = Table.STUDENTS.getPath();
+        StringWriter content = new StringWriter();
+        try (PrintWriter pw = new PrintWriter(content)) {
+            pw.print("StudentID,Name,Major,Year,Email,Password\n");
+            userRepository.forEachStudent(s -> {
                 String major = s.getMajor() == null ? "" : s.getMajor().name();
-                pw.printf("%s,%s,%s,%d,%s,%s%n",
-                s.getUserId(),
-                s.getName(),
+                pw.printf("%s,%s,%s,%d,%s,%s\n",
+                CSVTokenizer.quote(s.getUserId()),
+                CSVTokenizer.quote(s.getName()),
                 major,
                 s.getYearOfStudy(),
-                s.getEmail(),
-                s.getPassword());
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
+                CSVTokenizer.quote(s.getEmail()),
+                CSVTokenizer.quote(s.getPassword()));
+            });
         }
+        renderedFiles.put(path, content.toString().getBytes(StandardCharsets.UTF_8));
+        userRepository.markSaved(Role.STUDENT);
     }
 
     /**
-     * Saves all career staff users to {@code data/staff_list.csv}.
+     * Renders all career staff users for {@code data/staff_list.csv}.
      *
      * @param userRepository the repository containing the staff list
      */
     public void saveStaffCSV(UserRepository userRepository){
+        userRepository.checkWritable();
+        if (!userRepository.hasUnsavedChanges(Role.CAREER_STAFF)) return;
         ArrayList<CareerStaff> staffList = userRepository.getCareerStaffList();
-        String path = "data/staff_list.csv";
-        Path filePath = Paths.get(path);
-        try (PrintWriter pw = new PrintWriter(Files.newBufferedWriter(filePath, StandardCharsets.UTF_8))) {
-            pw.println("StaffID,Name,Department,Email,Password");
+        String path = Table.CAREER_STAFF.getPath();
+        StringWriter content = new StringWriter();
+        try (PrintWriter pw = new PrintWriter(content)) {
+            pw.print("StaffID,Name,Department,Email,Password\n");
             for (CareerStaff s : staffList) {
-                pw.printf("%s,%s,%s,%s,%s%n",
-                s.getUserId(),
-                s.getName(),
-                s.getStaffDepartment(),
-                s.getEmail(),
-                s.getPassword());
+                pw.printf("%s,%s,%s,%s,%s\n",
+                CSVTokenizer.quote(s.getUserId()),
+                CSVTokenizer.quote(s.getName()),
+                CSVTokenizer.quote(s.getStaffDepartment()),
+                CSVTokenizer.quote(s.getEmail()),
+                CSVTokenizer.quote(s.getPassword()));
             }
-        } catch (IOException e) {
-            e.printStackTrace();
         }
+        renderedFiles.put(path, content.toString().getBytes(StandardCharsets.UTF_8));
+        userRepository.markSaved(Role.CAREER_STAFF);
     }
     
      /**
-     * Saves all career staff users to {@code data/staff_list.csv}.
+     * Renders all career staff users for {@code data/staff_list.csv}.
      *
      * @param userRepository the repository containing the staff list
      */
     public void saveCompanyRepCSV(UserRepository userRepository){
-        ArrayList<CompanyRep> companyRepList = userRepository.getCompanyRepList();
-        String path = "data/company_rep_list.csv";
-        Path filePath = Paths.get(path);
-        try (PrintWriter pw = new PrintWriter(Files.newBufferedWriter(filePath, StandardCharsets.UTF_8))) {
-            pw.println("CompanyRepID,Name,CompanyName,Department,Position,Password");
-            for (CompanyRep s : companyRepList) {
-                pw.printf("%s,%s,%s,%s,%s,%s%n",
-                s.getUserId(),
-                s.getName(),
-                s.getCompanyName(),
-                s.getDepartment(),
-                s.getPosition(),
-                s.getPassword());
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
+        userRepository.checkWritable();
+        if (!userRepository.hasUnsavedChanges(Role.COMPANY_REP)) return;
+        String path = Table.COMPANY_REPS.getPath();
+        StringWriter content = new StringWriter();
+        try (PrintWriter pw = new PrintWriter(content)) {
+            pw.print("CompanyRepID,Name,CompanyName,Department,Position,Password\n");
+            userRepository.forEachCompanyRep(s -> pw.printf("%s,%s,%s,%s,%s,%s\n",
+                CSVTokenizer.quote(s.getUserId()),
+                CSVTokenizer.quote(s.getName()),
+                CSVTokenizer.quote(s.getCompanyName()),
+                CSVTokenizer.quote(s.getDepartment()),
+                CSVTokenizer.quote(s.getPosition()),
+                CSVTokenizer.quote(s.getPassword())));
         }
+        renderedFiles.put(path, content.toString().getBytes(StandardCharsets.UTF_8));
+        userRepository.markSaved(Role.COMPANY_REP);
     }
 
     /**
-     * Saves all company representatives to {@code data/company_rep_list.csv}.
+     * Renders all company representatives for {@code data/company_rep_list.csv}.
      *
      * @param userRepository the repository containing the company rep list
      */
     public void saveCompanyRepReqCSV(RequestRepository requestRepository){
+        requestRepository.checkWritable();
+        if (!requestRepository.hasUnsavedCompanyRepCreationReqs()) return;
         ArrayList<CompanyRepCreationReq> companyRepReqList = requestRepository.getAllCompanyRepCreationReq();
-        String path = "data/company_rep_req_list.csv";
-        Path filePath = Paths.get(path);
-        try (PrintWriter pw = new PrintWriter(Files.newBufferedWriter(filePath, StandardCharsets.UTF_8))) {
-            pw.println("CompanyRepID,Name,CompanyName,Department,Position");
+        String path = Table.COMPANY_REP_REQUESTS.getPath();
+        StringWriter content = new StringWriter();
+        try (PrintWriter pw = new PrintWriter(content)) {
+            pw.print("CompanyRepID,Name,CompanyName,Department,Position\n");
             for (CompanyRepCreationReq s : companyRepReqList) {
-                pw.printf("%s,%s,%s,%s,%s%n",
-                s.getUserID(),
-                s.getName(),
-                s.getCompanyName(),
-                s.getDepartment(),
-                s.getPosition());
+                pw.printf("%s,%s,%s,%s,%s\n",
+                CSVTokenizer.quote(s.getUserID()),
+                CSVTokenizer.quote(s.getName()),
+                CSVTokenizer.quote(s.getCompanyName()),
+                CSVTokenizer.quote(s.getDepartment()),
+                CSVTokenizer.quote(s.getPosition()));
             }
-        } catch (IOException e) {
-            e.printStackTrace();
         }
+        renderedFiles.put(path, content.toString().getBytes(StandardCharsets.UTF_8));
+        requestRepository.markCompanyRepCreationReqsSaved();
     }
 
     /**
-     * Saves all internship withdrawal requests into
+     * Renders all internship withdrawal requests for
      * {@code data/withdrawal_req_list.csv}.
      *
      * @param requestRepository repository containing withdrawal requests
      */
     public void saveInternshipWithdrawalRequests(RequestRepository requestRepository){
+        requestRepository.checkWritable();
+        if (!requestRepository.hasUnsavedInternshipWithdrawalReqs()) return;
         ArrayList<InternshipWithdrawalReq> internshipWithdrawalReqs = requestRepository.getInternshipWithdrawalReqList();
-        String path = "data/withdrawal_req_list.csv";
-        Path filePath = Paths.get(path);
-        try (PrintWriter pw = new PrintWriter(Files.newBufferedWriter(filePath, StandardCharsets.UTF_8))) {
-            pw.println("StudentID,InternshipTitle,CompanyName,WithdrawalReason");
+        String path = Table.WITHDRAWAL_REQUESTS.getPath();
+        StringWriter content = new StringWriter();
+        try (PrintWriter pw = new PrintWriter(content)) {
+            pw.print("StudentID,OpportunityID,InternshipTitle,CompanyName,WithdrawalReason\n");
             for (InternshipWithdrawalReq s : internshipWithdrawalReqs) {
-                pw.printf("%s,%s,%s,%s",
-                s.getUserID(),
-                s.getInternshipTitle(),
-                s.getCompanyName(),
-                s.getWithdrawalReason());
+                pw.printf("%s,%d,%s,%s,%s\n",
+                CSVTokenizer.quote(s.getUserID()),
+                s.getOpportunityID(),
+                CSVTokenizer.quote(s.getInternshipTitle()),
+                CSVTokenizer.quote(s.getCompanyName()),
+                CSVTokenizer.quote(s.getWithdrawalReason()));
             }
-        } catch (IOException e) {
-            e.printStackTrace();
         }
+        renderedFiles.put(path, content.toString().getBytes(StandardCharsets.UTF_8));
+        requestRepository.markInternshipWithdrawalReqsSaved();
     }
 
     /**
-     * Saves all internship opportunities to {@code data/internship_opps.csv},
-     * including a serialized representation of their application lists.
+     * Renders all internship opportunities for {@code data/internship_opps.csv},
+     * without their applications, which are saved by {@link #saveApplicationCSV}.
+     *
+     * <p>Only opportunities added or changed since the last save are formatted;
+     * the rows of the others are reused as they were last written.</p>
      *
      * @param opportunities repository containing all internship opportunities
      */
     public void saveInternshipOpportunityCSV(OpportunityRepository opportunities){
+        opportunities.checkWritable();
+        if (!opportunities.hasUnsavedChanges()) return;
         ArrayList<InternshipOpportunity> opportunityList = opportunities.getInternshipOpportunityList();
-        String path = "data/internship_opps.csv";
-        Path filePath = Paths.get(path);
-        try (PrintWriter pw = new PrintWriter(Files.newBufferedWriter(filePath, StandardCharsets.UTF_8))) {
-            pw.println("Title,Description,Level,PreferredMajor,OpeningDate,ClosingDate,CompanyName,Department,CompanyRepInCharge,Slots,Status,Visible,ApplicationList");
+        String path = Table.OPPORTUNITIES.getPath();
+        StringWriter content = new StringWriter();
+        try (PrintWriter pw = new PrintWriter(content)) {
+            pw.print("OpportunityID,Title,Description,Level,PreferredMajor,OpeningDate,ClosingDate,CompanyName,Department,CompanyRepInCharge,Slots,Status,Visible\n");
             for (InternshipOpportunity s : opportunityList) {
-                String applicationList = serializeApplications(s.getApplicationList());
-                String level = s.getInternshipLevel() == null ? "" : s.getInternshipLevel().name();
-                String preferredMajors = s.getPreferredMajor() == null ? "" : s.getPreferredMajor().name();
-                String status = s.getStatus() == null ? "" : s.getStatus().name();
-                pw.printf("%s,%s,%s,%s,%s,%s,%s,%s,%s,%d,%s,%b,%s%n",
-                    s.getInternshipTitle(),
-                    s.getDescription(),
-                    level,
-                    preferredMajors,
-                    s.getApplicationOpeningDate(),
-                    s.getApplicationClosingDate(),
-                    s.getCompanyName(),
-                    s.getDepartment(),
-                    s.getCompanyRepInCharge(),
-                    s.getNoOfSlots(),
-                    status,
-                    s.getVisible(),
-                    applicationList);
+                String row = opportunityRows.get(s.getOpportunityID());
+                if (row == null || opportunities.hasUnsavedChanges(s.getOpportunityID())) {
+                    row = formatOpportunity(s);
+                    opportunityRows.put(s.getOpportunityID(), row);
+                }
+                pw.print(row);
+                pw.print('\n');
             }
-        } catch (IOException e) {
-            e.printStackTrace();
         }
+        renderedFiles.put(path, content.toString().getBytes(StandardCharsets.UTF_8));
+        opportunities.markSaved();
     }
 
     /**
-     * Serializes a list of {@link Application} objects into a single CSV-compatible string.
+     * Formats one internship opportunity as a row of {@code data/internship_opps.csv}.
      *
-     * <p>The format for each application entry is:</p>
-     * <pre>
-     * studentId;appliedDate;STATUS
-     * </pre>
-     * Entries are separated using {@code |}.
+     * @param s the opportunity to format
+     * @return the CSV row, without a line terminator
+     */
+    private String formatOpportunity(InternshipOpportunity s){
+        StringBuilder row = rowBuffer;
+        row.setLength(0);
+        row.append(s.getOpportunityID()).append(',');
+        appendField(row, s.getInternshipTitle()).append(',');
+        appendField(row, s.getDescription()).append(',');
+        appendName(row, s.getInternshipLevel()).append(',');
+        appendName(row, s.getPreferredMajor()).append(',');
+        row.append(DateConverter.formatDate(s.getApplicationOpeningDate())).append(',');
+        row.append(DateConverter.formatDate(s.getApplicationClosingDate())).append(',');
+        appendField(row, s.getCompanyName()).append(',');
+        appendField(row, s.getDepartment()).append(',');
+        appendField(row, s.getCompanyRepInCharge()).append(',');
+        row.append(s.getNoOfSlots()).append(',');
+        appendName(row, s.getStatus()).append(',');
+        row.append(s.getVisible());
+        return row.toString();
+    }
+
+    /**
+     * Renders every application for {@link #APPLICATIONS_PATH}, if the file has
+     * been marked as outdated; otherwise it is kept up to date by appending.
+     *
+     * <p>Applications that are still stored as text are written back as they were
+     * loaded, without being parsed.</p>
+     *
+     * @param opportunities repository containing all internship opportunities
+     */
+    public void saveApplicationCSV(OpportunityRepository opportunities){
+        opportunities.checkWritable();
+        if (!opportunities.isApplicationFileOutdated()) return;
+        StringBuilder content = new StringBuilder();
+        content.append(APPLICATIONS_HEADER).append('\n');
+        for (InternshipOpportunity s : opportunities.getInternshipOpportunityList()) {
+            if (!s.isApplicationListLoaded()) {
+                String stored = s.getSerializedApplications();
+                // Rows loaded from a file written with CRLF line ends keep them until written back.
+                content.append(stored.indexOf('\r') < 0 ? stored : stored.replace("\r\n", "\n"));
+                continue;
+            }
+            for (Application a : s.getApplicationList()) {
+                appendApplication(content, a).append('\n');
+            }
+        }
+        renderedFiles.put(APPLICATIONS_PATH, content.toString().getBytes(StandardCharsets.UTF_8));
+        opportunities.markApplicationFileSaved();
+    }
+
+    /**
+     * Formats an application's current state as a row of {@link #APPLICATIONS_PATH}.
      *
-     * @param apps the list of applications to serialize
-     * @return a compact string representation of all applications
+     * @param a an application that has been added to its opportunity
+     * @return the CSV row, without a line terminator
      */
-    private String serializeApplications(ArrayList<Application> apps) {
-        if (apps == null || apps.isEmpty()) return "";
-        return apps.stream()
-            .map(a -> {
-                String status = a.getApplicationStatus() == null ? "" : a.getApplicationStatus().name();
-                return a.getStudentID() + ";" + a.getAppliedDateTime() + ";" + status;
-            })
-            .reduce((a, b) -> a + "|" + b)
-            .orElse("");
+    static String formatApplication(Application a){
+        return appendApplication(new StringBuilder(64), a).toString();
+    }
+
+    private static StringBuilder appendApplication(StringBuilder row, Application a){
+        row.append(a.getOpportunity().getOpportunityID()).append(',');
+        row.append(a.getApplicationIndex()).append(',');
+        appendField(row, a.getStudentID()).append(',');
+        DateConverter.appendDateTime(row, a.getAppliedDateTime());
+        row.append(',');
+        return appendName(row, a.getApplicationStatus());
+    }
+
+    private static StringBuilder appendField(StringBuilder row, String value){
+        int start = row.length();
+        row.append(value);
+        CSVTokenizer.quoteFrom(row, start);
+        return row;
+    }
+
+    private static StringBuilder appendName(StringBuilder row, Enum<?> value){
+        return value == null ? row : row.append(value.name());
     }
 }
@@ -0,0 +1,170 @@
+package util;
+import repositories.OpportunityRepository;
+import repositories.RequestRepository;
+import repositories.UserRepository;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+/**
+ * Where the checkpointed contents of the repositories are kept.
+ *
+ * <p>{@link UserRepository}, {@link RequestRepository} and
+ * {@link OpportunityRepository} are saved as six {@link Table tables}, each a
+ * header line followed by one CSV row per record, in the formats read by
+ * {@link LoadFiles} and rendered by {@link SaveFiles}. A backend only decides
+ * where those tables are stored: {@link LoadFiles} reads them through
+ * {@link #readTable(Table)}, and the {@link Compactor} hands their new contents
+ * to {@link #newCheckpoint(Map)}, which the {@link PersistenceService} writes on
+ * its own thread. The controllers never see the backend.</p>
+ *
+ * <p>Two backends are provided:</p>
+ * <ul>
+ *     <li>{@link CSVStorage}, the CSV files under {@code data/}, each rewritten in
+ *     full when it changes, with a {@link BinarySnapshot} to speed up loading;</li>
+ *     <li>{@link PageStore}, a single file of fixed-size pages, which only writes
+ *     the pages holding rows that changed.</li>
+ * </ul>
+ *
+ * <p>The journal and the applications file are append-only logs rather than
+ * checkpoints, and are kept as files whichever backend is used.</p>
+ *
+ * <p>{@link #configured()} picks the backend named by the {@code storage}
+ * system property, {@code csv} by default or {@code pages}. A backend that holds
+ * no data yet is filled from the CSV files by the first compaction.</p>
+ */
+public interface StorageBackend {
+    /** Name of the system property that selects the backend. */
+    String PROPERTY = "storage";
+
+    /** The tables a checkpoint consists of, named after the CSV files that hold them. */
+    enum Table {
+        STUDENTS("data/student_list.csv"),
+        CAREER_STAFF("data/staff_list.csv"),
+        COMPANY_REPS("data/company_rep_list.csv"),
+        COMPANY_REP_REQUESTS("data/company_rep_req_list.csv"),
+        OPPORTUNITIES("data/internship_opps.csv"),
+        WITHDRAWAL_REQUESTS("data/withdrawal_req_list.csv");
+
+        private final String path;
+
+        Table(String path){
+            this.path = path;
+        }
+
+        /** @return the path of the CSV file holding this table */
+        public String getPath(){
+            return path;
+        }
+
+        /**
+         * Finds the table held in a CSV file.
+         *
+         * @param path the path of the file
+         * @return the table, or {@code null} if the file does not hold one
+         */
+        public static Table forPath(String path){
+            for (Table table : values()) {
+                if (table.path.equals(path)) {
+                    return table;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * New contents of some of the tables, rendered by a compaction and waiting to
+     * be written.
+     */
+    interface Checkpoint {
+        /** @return {@code true} if nothing needs to be written */
+        boolean isEmpty();
+
+        /**
+         * Writes the new contents. This is called on the
+         * {@link PersistenceService}'s writer thread, before the group is
+         * committed; contents that are replaced as whole files are staged in the
+         * group, so they are committed together with the journal being cut back.
+         * Anything written directly must be durable when this returns.
+         *
+         * @param group the commit that will cut back the journal
+         * @throws IOException if the contents cannot be written; the journal is
+         *         then kept
+         */
+        void write(DataCommit group) throws IOException;
+
+        /**
+         * Called on the writer thread once the group has been committed, or has
+         * failed to be.
+         *
+         * @param committed {@code true} if the group was committed
+         */
+        default void completed(boolean committed){
+        }
+    }
+
+    /**
+     * Checks whether the backend holds any saved data. If it does not,
+     * {@link LoadFiles} reads the CSV files instead.
+     *
+     * @return {@code true} if at least one table has been saved to this backend
+     */
+    boolean exists();
+
+    /**
+     * Checks whether the next checkpoint should write every table, including those
+     * that have not changed since they were read.
+     *
+     * @return {@code true} if the backend holds no data yet, or holds some tables
+     *         in a form it would no longer write them in
+     */
+    default boolean needsFullCheckpoint(){
+        return !exists();
+    }
+
+    /**
+     * Checks whether a {@link BinarySnapshot} of the tables is kept alongside them.
+     *
+     * @return {@code true} if the snapshot should be written and read
+     */
+    boolean keepsSnapshot();
+
+    /**
+     * Reads one table's header line and rows.
+     *
+     * @param table the table to read
+     * @return the table's contents, positioned at its start, or {@code null} if
+     *         the table has never been saved
+     * @throws IOException if the table cannot be read
+     */
+    ByteBuffer readTable(Table table) throws IOException;
+
+    /**
+     * Prepares the new contents of the changed tables to be written.
+     *
+     * @param files the full new contents of each changed table, and of the
+     *              snapshot if one is kept, keyed by CSV path
+     * @return the checkpoint to hand to the {@link PersistenceService}
+     */
+    Checkpoint newCheckpoint(Map<String, byte[]> files);
+
+    /**
+     * Returns the backend selected by the {@value #PROPERTY} system property.
+     *
+     * @return a {@link PageStore} if the property is {@code pages}, otherwise a {@link CSVStorage}
+     * @throws IllegalArgumentException if the property names no backend, or the
+     *         {@value DataCodec#PROPERTY} property names no codec
+     */
+    static StorageBackend configured(){
+        String name = System.getProperty(PROPERTY, "csv");
+        switch (name) {
+            case "csv":
+                return new CSVStorage();
+            case "pages":
+                return new PageStore(PageStore.STORE_PATH, PageStore.ROOT_PATH);
+            default:
+                throw new IllegalArgumentException("Unknown storage backend: " + name);
+        }
+    }
+}
@@ -20,9 +20,69 @@ import entities.User;
  *     <li><b>COMPANY_REP</b>: {@code userId, name, companyName, department, position, password}</li>
  * </ul>
  *
- * <p>If an unsupported role is provided, an {@link IllegalArgumentException} is thrown.</p>
+ * <p>Fields are read with a {@link CSVTokenizer}, so quoted fields may contain
+ * commas. If an unsupported role is provided, an {@link IllegalArgumentException}
+ * is thrown.</p>
+ *
+ * <p>{@link #addUser(String, Role)} expects the fields in the order above, as
+ * the {@link Journal} records them. Rows of the user files are read with
+ * {@link #addStudent}, {@link #addCareerStaff} and {@link #addCompanyRep}
+ * instead, which find each field through a {@link ColumnMap} built from the
+ * file's header, so the columns may be in any order and those left out of a
+ * {@link Projection} are skipped.</p>
+ *
+ * <p>The factory holds no state, so one instance can be shared by the threads
+ * that load a file in parallel.</p>
  */
 public class UserFactory {
+    /** The columns of {@code data/student_list.csv}. */
+    public enum StudentColumn implements ColumnMap.Column {
+        STUDENT_ID("StudentID"), NAME("Name"), MAJOR("Major"), YEAR("Year"), EMAIL("Email"), PASSWORD("Password");
+
+        private final String header;
+
+        StudentColumn(String header){
+            this.header = header;
+        }
+
+        @Override
+        public String getHeader(){
+            return header;
+        }
+    }
+
+    /** The columns of {@code data/staff_list.csv}. */
+    public enum StaffColumn implements ColumnMap.Column {
+        STAFF_ID("StaffID"), NAME("Name"), DEPARTMENT("Department"), EMAIL("Email"), PASSWORD("Password");
+
+        private final String header;
+
+        StaffColumn(String header){
+            this.header = header;
+        }
+
+        @Override
+        public String getHeader(){
+            return header;
+        }
+    }
+
+    /** The columns of {@code data/company_rep_list.csv}. */
+    public enum CompanyRepColumn implements ColumnMap.Column {
+        COMPANY_REP_ID("CompanyRepID"), NAME("Name"), COMPANY_NAME("CompanyName"), DEPARTMENT("Department"), POSITION("Position"), PASSWORD("Password");
+
+        private final String header;
+
+        CompanyRepColumn(String header){
+            this.header = header;
+        }
+
+        @Override
+        public String getHeader(){
+            return header;
+        }
+    }
+
     /**
      * Parses a CSV line and creates the appropriate {@link User} subclass instance
      * based on the given {@link Role}.
@@ -32,22 +92,124 @@ public class UserFactory {
      * @return a fully constructed {@link User} instance
      *
      * @throws IllegalArgumentException if the role is unknown
-     * @throws ArrayIndexOutOfBoundsException if the CSV line does not contain enough fields
+     * @throws java.util.NoSuchElementException if the CSV line does not contain enough fields
      */
     public User addUser(String line, Role role){
+        return addUser(new CSVTokenizer(line), role);
+    }
+
+    /**
+     * Creates the appropriate {@link User} subclass instance from the remaining
+     * fields of a CSV record.
+     *
+     * @param fields a tokenizer positioned at the record's first user field
+     * @param role the type of user to construct (Student, CareerStaff, or CompanyRep)
+     * @return a fully constructed {@link User} instance
+     *
+     * @throws IllegalArgumentException if the role is unknown
+     * @throws java.util.NoSuchElementException if the record does not contain enough fields
+     */
+    public User addUser(CSVTokenizer fields, Role role){
         switch (role) {
             case STUDENT:
-                String[] data = line.split(",");
-                int yearOfStudy = Integer.valueOf(data[3]);
-                return new Student(data[0],data[1],data[2],yearOfStudy, data[4], data[5]);
+                String userId = fields.next();
+                String name = fields.next();
+                String major = fields.next();
+                int yearOfStudy = fields.nextInt();
+                return new Student(userId, name, major, yearOfStudy, fields.next(), fields.next());
             case CAREER_STAFF:
-                String[] data2 = line.split(",");
-                return new CareerStaff(data2[0],data2[1],data2[2],data2[3], data2[4]);
+                return new CareerStaff(fields.next(), fields.next(), fields.next(), fields.next(), fields.next());
             case COMPANY_REP:
-                String[] data3 = line.split(",");
-                return new CompanyRep(data3[0],data3[1],data3[2],data3[3],data3[4], data3[5]);
+                return new CompanyRep(fields.next(), fields.next(), fields.next(), fields.next(), fields.next(), fields.next());
             default:
                 throw new IllegalArgumentException("Unknown role: " + role);        
         } 
     }
+
+    /**
+     * Creates a {@link Student} from a row of the student file.
+     *
+     * @param fields  a tokenizer positioned at the start of the row
+     * @param columns the file's columns
+     * @return the student, with {@code null} or zero for the columns not parsed,
+     *         and the default major if that column is not parsed
+     * @throws java.util.NoSuchElementException if the row ends before a parsed column
+     */
+    public Student addStudent(CSVTokenizer fields, ColumnMap<StudentColumn> columns){
+        String userId = null, name = null, email = null, password = null;
+        // The constructor requires a major; an empty one gives the default.
+        String major = "";
+        int yearOfStudy = 0;
+        for (int i = 0; i < columns.width(); i++) {
+            StudentColumn column = columns.get(i);
+            if (column == null) {
+                fields.skip();
+                continue;
+            }
+            switch (column) {
+                case STUDENT_ID -> userId = fields.next();
+                case NAME -> name = fields.next();
+                case MAJOR -> major = fields.next();
+                case YEAR -> yearOfStudy = fields.nextInt();
+                case EMAIL -> email = fields.next();
+                case PASSWORD -> password = fields.next();
+            }
+        }
+        return new Student(userId, name, major, yearOfStudy, email, password);
+    }
+
+    /**
+     * Creates a {@link CareerStaff} from a row of the staff file.
+     *
+     * @param fields  a tokenizer positioned at the start of the row
+     * @param columns the file's columns
+     * @return the staff member, with {@code null} for the columns not parsed
+     * @throws java.util.NoSuchElementException if the row ends before a parsed column
+     */
+    public CareerStaff addCareerStaff(CSVTokenizer fields, ColumnMap<StaffColumn> columns){
+        String userId = null, name = null, department = null, email = null, password = null;
+        for (int i = 0; i < columns.width(); i++) {
+            StaffColumn column = columns.get(i);
+            if (column == null) {
+                fields.skip();
+                continue;
+            }
+            switch (column) {
+                case STAFF_ID -> userId = fields.next();
+                case NAME -> name = fields.next();
+                case DEPARTMENT -> department = fields.next();
+                case EMAIL -> email = fields.next();
+                case PASSWORD -> password = fields.next();
+            }
+        }
+        return new CareerStaff(userId, name, department, email, password);
+    }
+
+    /**
+     * Creates a {@link CompanyRep} from a row of the company representative file.
+     *
+     * @param fields  a tokenizer positioned at the start of the row
+     * @param columns the file's columns
+     * @return the representative, with {@code null} for the columns not parsed
+     * @throws java.util.NoSuchElementException if the row ends before a parsed column
+     */
+    public CompanyRep addCompanyRep(CSVTokenizer fields, ColumnMap<CompanyRepColumn> columns){
+        String userId = null, name = null, companyName = null, department = null, position = null, password = null;
+        for (int i = 0; i < columns.width(); i++) {
+            CompanyRepColumn column = columns.get(i);
+            if (column == null) {
+                fields.skip();
+                continue;
+            }
+            switch (column) {
+                case COMPANY_REP_ID -> userId = fields.next();
+                case NAME -> name = fields.next();
+                case COMPANY_NAME -> companyName = fields.next();
+                case DEPARTMENT -> department = fields.next();
+                case POSITION -> position = fields.next();
+                case PASSWORD -> password = fields.next();
+            }
+        }
+        return new CompanyRep(userId, name, companyName, department, position, password);
+    }
 }